@@ -25,6 +25,7 @@ import nars.util.Events.FrameStart;
 import nars.util.Events.Perceive;
 import nars.config.Plugins;
 import nars.control.DerivationContext.DerivationFilter;
+import nars.control.RealtimeScheduler;
 import nars.control.WorkingCycle;
 import nars.entity.BudgetValue;
 import nars.entity.Concept;
@@ -34,6 +35,7 @@ import nars.entity.Stamp;
 import nars.entity.Task;
 import nars.io.Answered;
 import nars.io.InPort;
+import nars.io.InputThreads;
 import nars.io.Input;
 import nars.io.Output;
 import nars.io.Output.ERR;
@@ -47,6 +49,7 @@ import nars.language.Tense;
 import nars.operator.Operator;
 import nars.io.Echo;
 import nars.lab.util.ConceptMonitor;
+import nars.storage.Bag;
 import nars.storage.LevelBag;
 
 
@@ -79,6 +82,8 @@ public class NAR implements Runnable {
 
     
     private Thread thread = null;
+    /** set while running in real time */
+    private volatile RealtimeScheduler realtime;
     long minCyclePeriodMS;
     
     /**
@@ -141,16 +146,15 @@ public class NAR implements Runnable {
     private boolean inputting = true;
     private boolean threadYield;
     
-    private int inputSelected = 0; //counter for the current selected input channel
     private boolean ioChanged;
     
     private int cyclesPerFrame = 1; //how many memory cycles to execute in one NAR cycle
     
     public Memory NewMemory(RuntimeParameters p) {
         return new Memory(p, 
-                new WorkingCycle(new LevelBag(Parameters.CONCEPT_BAG_LEVELS, Parameters.CONCEPT_BAG_SIZE)), 
-                new LevelBag<>(Parameters.NOVEL_TASK_BAG_LEVELS, Parameters.NOVEL_TASK_BAG_SIZE),
-                new LevelBag<>(Parameters.SEQUENCE_BAG_LEVELS, Parameters.SEQUENCE_BAG_SIZE));
+                new WorkingCycle(Bag.newBag(Parameters.CONCEPT_BAG_TYPE, Parameters.CONCEPT_BAG_LEVELS, Parameters.CONCEPT_BAG_SIZE)), 
+                Bag.newBag(Parameters.NOVEL_TASK_BAG_TYPE, Parameters.NOVEL_TASK_BAG_LEVELS, Parameters.NOVEL_TASK_BAG_SIZE),
+                new LevelBag<>(Parameters.SEQUENCE_BAG_LEVELS, p.sequenceBagSize.get()));
     }
     
     public NAR() {
@@ -177,7 +181,7 @@ public class NAR implements Runnable {
         int numInputs = inputChannels.size();
         for (int i = 0; i < numInputs; i++) {
             InPort port = inputChannels.get(i);
-            port.input.finished(true);
+            port.finish();
         }
         inputChannels.clear();        
         newInputChannels.clear();
@@ -402,6 +406,22 @@ public class NAR implements Runnable {
             emit(ERR.class, ex);
         }
         
+        return addedInput(i);
+    }
+
+    /** 
+     * Adds an input channel which is read on its own thread (see InPort.poll),
+     * for inputs which block, such as files, sockets and the console. Its
+     * input reaches memory when it has been read, so the timing is not repeatable.
+     */
+    public ObjectTaskInPort addInputPolled(final Input channel) {
+        ObjectTaskInPort i = new ObjectTaskInPort(channel, new ArrayDeque(), 1.0f);
+        i.poll(InputThreads.get());
+        newInputChannels.add(i);
+        return addedInput(i);
+    }
+
+    private ObjectTaskInPort addedInput(final ObjectTaskInPort i) {
         ioChanged = true;
         
         if (!running)
@@ -452,11 +472,30 @@ public class NAR implements Runnable {
     @Deprecated public void start(final long minCyclePeriodMS, int cyclesPerFrame) {
         this.minCyclePeriodMS = minCyclePeriodMS;
         this.cyclesPerFrame = cyclesPerFrame;
+        this.realtime = null;
+        startThread();
+    }
+
+    /**
+     * Repeatedly execute NARS working cycle in a new thread, keeping its time
+     * in step with the wall clock.
+     *
+     * @param durationsPerSecond how many durations pass in one second
+     * @return the scheduler, which reports lag
+     */
+    public RealtimeScheduler startRealtime(final float durationsPerSecond) {
+        final RealtimeScheduler r = new RealtimeScheduler(this, durationsPerSecond);
+        this.realtime = r;
+        startThread();
+        return r;
+    }
+
+    private void startThread() {
+        running = true;
         if (thread == null) {
             thread = new Thread(this, "Inference");
             thread.start();
         }
-        running = true;        
     }
     
     /**
@@ -549,6 +588,17 @@ public class NAR implements Runnable {
         
         while (running && !stopped) {      
             
+            final RealtimeScheduler r = realtime;
+            if (r != null) {
+                final long wait = r.frame();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                    } catch (InterruptedException e) { }
+                }
+                continue;
+            }
+
             frame();
                         
             if (minCyclePeriodMS > 0) {
@@ -601,36 +651,32 @@ public class NAR implements Runnable {
         if ((!inputting) || (inputChannels.isEmpty()))
            return null;        
         
-        int remainingChannels = inputChannels.size(); //remaining # of channels to poll
-
-        while ((remainingChannels > 0) && (inputChannels.size() > 0)) {
-            inputSelected %= inputChannels.size();
-
-            final InPort<Object,Item> i = inputChannels.get(inputSelected++);
-            remainingChannels--;
+        for (int j = 0; j < inputChannels.size(); ) {
+            final InPort<Object,Item> i = inputChannels.get(j);
             
             if (i.finished()) {
-                inputChannels.remove(i);
+                inputChannels.remove(j);
                 continue;
             }
 
-            try {
-                i.update();
-            } catch (IOException ex) {                    
-                emit(ERR.class, ex);
-            }                
-
-            if (i.hasNext()) {
-                Item task = i.next();
-                if (task!=null) {
-                    return task;
-                }
+            //read into only when it has nothing buffered, not for every item taken
+            if (!i.hasNext()) {
+                try {
+                    i.update();
+                } catch (IOException ex) {                    
+                    emit(ERR.class, ex);
+                }                
             }
+            j++;
+        }
 
+        //by attention, within rate limits
+        final InPort<Object,Item> i = InPort.select(inputChannels, time());
+        if (i == null) {
+            /** no available inputs */
+            return null;
         }
-            
-        /** no available inputs */
-        return null;
+        return i.next();
     }
 
     /** count of how many items are buffered */
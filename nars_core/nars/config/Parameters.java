@@ -135,9 +135,27 @@ public class Parameters {
     /** Size of Novel Task Buffer */
     public static final int NOVEL_TASK_BAG_SIZE = 100;
     public static final int NOVEL_TASK_BAG_LEVELS = 10;
-    /*  Size of sequence/input event bag */
+    /*  Default size of sequence/input event bag, of RuntimeParameters.sequenceBagSize */
     public static int SEQUENCE_BAG_SIZE = 30;
     public static final int SEQUENCE_BAG_LEVELS = 10;
+    /** Items a LevelBag stores inline before allocating its name table and level queues */
+    public static int BAG_COMPACT_SIZE = 8;
+    /** Priority bins counted by a LevelBag, so that getPriorityDistribution with this many bins does not scan */
+    public static int BAG_HISTOGRAM_BINS = 10;
+
+    public static enum BagType {
+        /** items filed in priority levels, which are visited in turn (LevelBag) */
+        Level,
+        /** items taken out at random in proportion to their priority (SumTreeBag) */
+        SumTree
+    }
+    /** Bag implementation of each kind of bag, used when a memory or concept is created */
+    public static BagType CONCEPT_BAG_TYPE = BagType.Level;
+    public static BagType TASK_LINK_BAG_TYPE = BagType.Level;
+    public static BagType TERM_LINK_BAG_TYPE = BagType.Level;
+    public static BagType NOVEL_TASK_BAG_TYPE = BagType.Level;
+    /** Recent tasks of a Memory whose ancestry can be followed (see Provenance), a power of 2 */
+    public static final int PROVENANCE_CAPACITY = 1 << 14;
     
     /* ---------- avoiding repeated reasoning ---------- */
         /** Maximum length of the evidental base of the Stamp, a power of 2 */
@@ -221,7 +239,9 @@ public class Parameters {
     
 
     
-    /** equivalency based on Term contents; experimental mode - not ready yet, leave FALSE */
+    /** Compound terms are hashed and compared by structure (operator, temporal order, 
+     *  relation index and components) instead of by name, so that term-keyed maps
+     *  do not build names. Ordering stays by name. Set before creating terms. */
     public static boolean TERM_ELEMENT_EQUIVALENCY = false;
     
     //temporary parameter for setting #threads to use, globally
@@ -261,7 +281,7 @@ public class Parameters {
     
     public static float ANTICIPATION_CONFIDENCE = 0.90f;
     
-    public static float CONSIDER_NEW_OPERATION_BIAS = 0.05f; //depriorizes older operation-related events in temporal inference
+    public static float CONSIDER_NEW_OPERATION_BIAS = 0.05f; //default of RuntimeParameters.newOperationBias, which depriorizes older operation-related events in temporal inference
     
     public static float TEMPORAL_INDUCTION_PRIORITY_PENALTY = 0.1f;
     
@@ -46,6 +46,30 @@ public class RuntimeParameters implements Serializable {
     /** novel task bag forget duration **/
     public final AtomicDouble novelTaskForgetDurations = new AtomicDouble(2.0);
 
+    /** Size of the sequence/input event bag, read when the Memory is created */
+    public final AtomicInteger sequenceBagSize = new AtomicInteger(Parameters.SEQUENCE_BAG_SIZE);
+
+    /** Factor of the priority of older operation-related events after a decision; 1 keeps them */
+    public final AtomicDouble newOperationBias = new AtomicDouble(Parameters.CONSIDER_NEW_OPERATION_BIAS);
+
+    
+    public static enum Forgetting {
+        /** priority decays each time an item is put back, by an amount depending on its priority */
+        Iterative,
+        /** priority decays linearly with the time since the item was last put back */
+        Periodic,
+        /** priority decays exponentially with the time since the item was last put back, computed when it is next put back */
+        Lazy
+    }
+
+    /** How bags apply forgetting to items put back into them */
+    public volatile Forgetting forgetting = Forgetting.Iterative;
+
+    /** Whether activation of existing concepts is collected and applied to the
+     *  concept bag once per concept at the end of each cycle, instead of taking
+     *  the concept out and putting it back on every conceptualization */
+    public volatile boolean batchActivation = false;
+
     
     /** Minimum expectation for a desire value. 
      *  the range of "now" is [-DURATION, DURATION]; */
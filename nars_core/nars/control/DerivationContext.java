@@ -5,6 +5,7 @@
 package nars.control;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import nars.util.Events;
 import nars.storage.Memory;
@@ -39,6 +40,11 @@ public abstract class DerivationContext implements Runnable {
         /** returns null if allowed to derive, or a String containing a short rejection reason for logging */
         public String reject(DerivationContext nal, Task task, boolean revised, boolean single, Task parent, Sentence otherBelief);
 
+        /** checked before the sentence and task of a derivation are made, by the rules which make them: returns a rejection reason only where reject would certainly reject the derivation */
+        public default String rejectEarly(DerivationContext nal, Term content, char punctuation, TruthValue truth, BudgetValue budget, Stamp stamp, boolean revised, boolean single) {
+            return null;
+        }
+
         @Override
         public default boolean setEnabled(NAR n, boolean enabled) {
             return true;
@@ -159,18 +165,9 @@ public abstract class DerivationContext implements Runnable {
         }
         
         //its revision, of course its cyclic, apply evidental base policy
-        if(!overlapAllowed) { //todo reconsider
-            final int stampLength = stamp.baseLength;
-            for (int i = 0; i < stampLength; i++) {
-                final long baseI = stamp.evidentialBase[i];
-                for (int j = 0; j < stampLength; j++) {
-                    if (this.evidentalOverlap || ((i != j) && (baseI == stamp.evidentialBase[j]))) {
-                        memory.removeTask(task, "Overlapping Evidenctal Base");
-                        //"(i=" + i + ",j=" + j +')' /* + " in " + stamp.toString()*/
-                        return false;
-                    }
-                }
-            }
+        if(!overlapAllowed && overlapping(stamp)) { //todo reconsider
+            memory.removeTask(task, "Overlapping Evidenctal Base");
+            return false;
         }
         
         //deactivated, new anticipation handling is attempted instead
@@ -193,6 +190,46 @@ public abstract class DerivationContext implements Runnable {
         return true;
     }
 
+    /** whether the evidential base of a stamp is cyclic, or overlaps that of the premises */
+    protected boolean overlapping(final Stamp stamp) {
+        return (stamp.baseLength > 0) && (this.evidentalOverlap || stamp.evidenceIsCyclic());
+    }
+
+    /**
+     * The checks of derivedTask which need only the parts of a derivation,
+     * made before its sentence and task are: returns null if it may be
+     * derived, or a short rejection reason. A derivation rejected here has
+     * its term neither cloned nor normalized, and allocates nothing.
+     */
+    protected String rejectEarly(final Term content, final char punctuation, final TruthValue truth, final BudgetValue budget, final Stamp stamp, final boolean revised, final boolean single, final boolean overlapAllowed) {
+        //filters may lower the priority, but never raise it
+        if (!budget.aboveThreshold())
+            return "Insufficient Budget";
+        
+        //the sentence may lower the confidence, but never raises it
+        if ((truth != null) && (truth.getConfidence() == 0))
+            return "Ignored (zero confidence)";
+        
+        if (content instanceof Operation) {
+            Operation op = (Operation) content;
+            if (op.getSubject() instanceof Variable || op.getPredicate() instanceof Variable) {
+                return "Operation with variable as subject or predicate";
+            }
+        }
+        
+        if (!overlapAllowed && overlapping(stamp))
+            return "Overlapping Evidenctal Base";
+        
+        if (derivationFilters!=null) {            
+            for (int i = 0; i < derivationFilters.size(); i++) {
+                String rejectionReason = derivationFilters.get(i).rejectEarly(this, content, punctuation, truth, budget, stamp, revised, single);
+                if (rejectionReason!=null)
+                    return rejectionReason;
+            }
+        }
+        return null;
+    }
+
     /* --------------- new task building --------------- */
     /**
      * Shared final operations by all double-premise rules, called from the
@@ -203,7 +240,10 @@ public abstract class DerivationContext implements Runnable {
      * @param newBudget The budget value in task
      */
     public boolean doublePremiseTaskRevised(final Term newContent, final TruthValue newTruth, final BudgetValue newBudget) {
-        Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, newTruth, getTheNewStamp());
+        final char punctuation = getCurrentTask().sentence.punctuation;
+        if (rejectEarly(newContent, punctuation, newTruth, newBudget, getTheNewStamp(), true, false, true) != null)
+            return false;
+        Sentence newSentence = new Sentence(newContent, punctuation, newTruth, getTheNewStamp());
         Task newTask = new Task(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
         return derivedTask(newTask, true, false, null, null, true); //allows overlap since overlap was already checked on revisable( function
     }                                                               //which is not the case for other single premise tasks
@@ -220,7 +260,6 @@ public abstract class DerivationContext implements Runnable {
      */
     public List<Task> doublePremiseTask(final Term newContent, final TruthValue newTruth, final BudgetValue newBudget, boolean temporalInduction, boolean overlapAllowed) {
                 
-        List<Task> ret = new ArrayList<Task>();
         if(newContent == null) {
             return null;
         }
@@ -235,47 +274,44 @@ public abstract class DerivationContext implements Runnable {
                 return null;
             }
 
+            //shared by the derivation and its eternalization
+            final Stamp stamp = getTheNewStamp();
+            if (!overlapAllowed && overlapping(stamp)) {
+                return Collections.emptyList();
+            }
+            final char punctuation = getCurrentTask().sentence.punctuation;
+            final List<Task> ret = new ArrayList<Task>(2);
+
             try {
-                final Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, newTruth, getTheNewStamp());
-                newSentence.producedByTemporalInduction=temporalInduction;
-                final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
-                
-                if (newTask!=null) {
-                    boolean added = derivedTask(newTask, false, false, null, null, overlapAllowed);
-                    if(added) {
+                if (rejectEarly(newContent, punctuation, newTruth, newBudget, stamp, false, false, true) == null) {
+                    final Sentence newSentence = new Sentence(newContent, punctuation, newTruth, stamp);
+                    newSentence.producedByTemporalInduction=temporalInduction;
+                    final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
+
+                    //the overlap was checked above
+                    if (newTask!=null && derivedTask(newTask, false, false, null, null, true)) {
                         ret.add(newTask);
                     }
                 }
-            }
-            catch (CompoundTerm.UnableToCloneException e) {
-                return null;
-            }
-            
             
-            //"Since in principle it is always valid to eternalize a tensed belief"
-            if(temporalInduction && Parameters.IMMEDIATE_ETERNALIZATION) { //temporal induction generated ones get eternalized directly
-                
-                try {
-
-                TruthValue truthEt=TruthFunctions.eternalize(newTruth);               
-                Stamp st=getTheNewStamp().clone();
-                st.setEternal();
-                final Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, truthEt, st);
-                newSentence.producedByTemporalInduction=temporalInduction;
-                final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
-                if (newTask!=null) {
-                    boolean added = derivedTask(newTask, false, false, null, null, overlapAllowed);
-                    if(added) {
-                        ret.add(newTask);
+                //"Since in principle it is always valid to eternalize a tensed belief"
+                if(temporalInduction && Parameters.IMMEDIATE_ETERNALIZATION) { //temporal induction generated ones get eternalized directly
+                    TruthValue truthEt=TruthFunctions.eternalize(newTruth);
+                    Stamp st=stamp.clone();
+                    st.setEternal();
+                    if (rejectEarly(newContent, punctuation, truthEt, newBudget, st, false, false, true) == null) {
+                        final Sentence newSentence = new Sentence(newContent, punctuation, truthEt, st);
+                        newSentence.producedByTemporalInduction=temporalInduction;
+                        final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
+                        if (newTask!=null && derivedTask(newTask, false, false, null, null, true)) {
+                            ret.add(newTask);
+                        }
                     }
                 }
-                
             }
             catch (CompoundTerm.UnableToCloneException e) {
                 return null;
             }
-                
-            }
             return ret;
         }
         return null;
@@ -324,15 +360,12 @@ public abstract class DerivationContext implements Runnable {
         if (!newBudget.aboveThreshold())
             return false;
         
-        Task parentTask = getCurrentTask().getParentTask();
-        if (parentTask != null) {
-            if (parentTask.getTerm() == null) {
-                return false;
-            }
+        final Term parentTerm = getCurrentTask().getParentTerm();
+        if (parentTerm != null) {
             if (newContent == null) {
                 return false;
             }
-            if (newContent.equals(parentTask.getTerm())) {
+            if (newContent.equals(parentTerm)) {
                 return false;
             }
         }
@@ -351,10 +384,14 @@ public abstract class DerivationContext implements Runnable {
         if(newContent instanceof Interval) {
             return false;
         }
+        if (rejectEarly(newContent, punctuation, newTruth, newBudget, getTheNewStamp(), false, true, false) != null) {
+            return false;
+        }
         Sentence newSentence = new Sentence(newContent, punctuation, newTruth, getTheNewStamp());
         Task newTask = Task.make(newSentence, newBudget, getCurrentTask());
         if (newTask!=null) {
-            return derivedTask(newTask, false, true, null, null, false);
+            //the overlap was checked above
+            return derivedTask(newTask, false, true, null, null, true);
         }
         return false;
     }
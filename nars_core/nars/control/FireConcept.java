@@ -52,7 +52,7 @@ abstract public class FireConcept extends DerivationContext {
                 if (currentConcept.taskLinks.size() == 0) 
                     return;
 
-                currentTaskLink = currentConcept.taskLinks.takeNext();                    
+                currentTaskLink = currentConcept.taskLinks.takeNext(memory.cycles(memory.param.taskLinkForgetDurations), memory);                    
                 if (currentTaskLink == null)
                     return;
 
@@ -0,0 +1,145 @@
+package nars.control;
+
+import nars.NAR;
+import nars.storage.Memory;
+
+/**
+ * Runs a reasoner against the wall clock: its time advances by a target
+ * number of durations per second. Each frame runs the cycles which have
+ * become due, as many as fit in one frame at the measured cost of a cycle;
+ * the rest are lag, which is caught up in later frames, and dropped (the
+ * clock is moved past them) beyond maxLag. While nothing is pending (no
+ * buffered input, new or novel tasks) only one cycle is run and the clock is
+ * moved over the others, so idle time costs nothing and input arriving later
+ * is stamped with the time it arrived.
+ */
+public class RealtimeScheduler {
+
+    /** default time spent cycling in one frame, in milliseconds */
+    public static final int FRAME_MS = 10;
+
+    private final NAR nar;
+    private final Memory memory;
+    private final long frameNS;
+
+    /** wall time per cycle, in nanoseconds */
+    private double period;
+    private long startNS, startCycle;
+
+    /** moving average of the wall time of a cycle, in nanoseconds */
+    private double cycleNS;
+    /** cycles which can lag behind before they are dropped */
+    private long maxLag;
+    private long lag, compressed, dropped;
+    private int frameCycles;
+
+    public RealtimeScheduler(final NAR nar, final float durationsPerSecond) {
+        this(nar, durationsPerSecond, FRAME_MS);
+    }
+
+    public RealtimeScheduler(final NAR nar, final float durationsPerSecond, final int frameMS) {
+        this.nar = nar;
+        this.memory = nar.memory;
+        this.frameNS = frameMS * 1000000L;
+        setDurationsPerSecond(durationsPerSecond);
+    }
+
+    /** changes the rate; the clock continues from its current time */
+    public void setDurationsPerSecond(final float durationsPerSecond) {
+        period = 1.0e9 / (durationsPerSecond * memory.getDuration());
+        maxLag = Math.max(1, (long) (1.0e9 / period)); //one second
+        startNS = nanoTime();
+        startCycle = memory.time();
+    }
+
+    /**
+     * Runs the cycles which are due.
+     *
+     * @return nanoseconds until the next cycle is due, or 0 if it is due already
+     */
+    public long frame() {
+        final long now = nanoTime();
+        final long due = startCycle + (long) ((now - startNS) / period);
+        long behind = due - memory.time();
+        frameCycles = 0;
+
+        if (behind > 0) {
+            if (behind > maxLag) {
+                dropped += behind - maxLag;
+                memory.advanceTime(due - maxLag);
+                behind = maxLag;
+            }
+            if (isIdle()) {
+                //run the last one only
+                compressed += behind - 1;
+                memory.advanceTime(due - 1);
+                cycle(1);
+            } else {
+                //one cycle to measure the cost, at first
+                final long fit = (cycleNS == 0) ? 1 : (long) (frameNS / cycleNS);
+                cycle((int) Math.max(1, Math.min(behind, fit)));
+            }
+        }
+
+        lag = Math.max(0, due - memory.time());
+        if (lag > 0)
+            return 0;
+        final long next = startNS + (long) Math.ceil((memory.time() - startCycle + 1) * period);
+        return Math.max(0, next - nanoTime());
+    }
+
+    private void cycle(final int cycles) {
+        final long start = nanoTime();
+        runCycles(cycles);
+        final double cost = (nanoTime() - start) / (double) cycles;
+        cycleNS = (cycleNS == 0) ? cost : (0.9 * cycleNS + 0.1 * cost);
+        frameCycles = cycles;
+    }
+
+    protected void runCycles(final int cycles) {
+        nar.frame(cycles);
+    }
+
+    /** whether there is nothing to process but the concepts */
+    protected boolean isIdle() {
+        return (nar.getInputItemsBuffered() == 0) && (memory.newTasks.isEmpty()) && (memory.novelTasks.size() == 0);
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /** cycles which were due at the end of the last frame but not run */
+    public long getLag() {
+        return lag;
+    }
+
+    public double getLagMS() {
+        return lag * period / 1.0e6;
+    }
+
+    /** cycles the clock was moved over while idle */
+    public long getCompressed() {
+        return compressed;
+    }
+
+    /** cycles the clock was moved over because the lag exceeded one second */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /** cycles run in the last frame */
+    public int getFrameCycles() {
+        return frameCycles;
+    }
+
+    /** measured wall time of a cycle, in nanoseconds */
+    public double getCycleNS() {
+        return cycleNS;
+    }
+
+    /** wall time per cycle, in nanoseconds */
+    public double getPeriodNS() {
+        return period;
+    }
+}
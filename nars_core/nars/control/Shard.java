@@ -0,0 +1,326 @@
+package nars.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import nars.config.Parameters;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.entity.TaskLink;
+import nars.entity.TermLink;
+import nars.inference.RuleTables;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.io.Output.ERR;
+import nars.io.ShardTransport;
+import nars.io.TaskCodec;
+import nars.language.CompoundTerm;
+import nars.language.Interval;
+import nars.language.Term;
+import nars.storage.Memory;
+
+/**
+ * One member of a group of reasoners which partition concepts by term hash.
+ * Each member runs its own Memory and WorkingCycle, and holds only the
+ * concepts of the terms it owns. A new task is processed only by the owner of
+ * its term. Where the processing would link a concept owned elsewhere (the
+ * task links and term links of the components), it sends the link to the
+ * owner, which makes it there; and where a fired concept would reason with a
+ * belief of a concept owned elsewhere, it sends the premises to the owner of
+ * the belief, which reasons there. Messages go over a ShardTransport.
+ *
+ * Stamp serials are interleaved by shard index so that evidence stays unique
+ * across the group. Each message carries the sender's cycle, and a receiver
+ * which is behind advances its clock to it (a Lamport clock), so stamps of
+ * the group share one logical time line.
+ */
+public class Shard implements ShardTransport.Receiver {
+
+    /** the kinds of message: a task for the owner of its term, a link to make at the owner of a component, premises to reason on at the owner of the belief */
+    private static final int TASK = 0, TASK_LINK = 1, TERM_LINK = 2, PREMISES = 3;
+
+    public final int index;
+    public final int count;
+
+    private final Memory memory;
+    private final ShardTransport transport;
+    private final Narsese narsese;
+
+    private final ConcurrentLinkedQueue<byte[]> inbox = new ConcurrentLinkedQueue();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    private long forwarded, received;
+
+    public Shard(final Memory memory, final int index, final int count, final ShardTransport transport) {
+        if ((index < 0) || (index >= count))
+            throw new RuntimeException("Shard index " + index + " out of range 0.." + (count - 1));
+        this.memory = memory;
+        this.index = index;
+        this.count = count;
+        this.transport = transport;
+        this.narsese = new Narsese(memory);
+        transport.bind(index, this);
+        memory.setShard(this);
+    }
+
+    /**
+     * owning shard of a concept term; a hash of its structure and the names of
+     * its atoms, so it is the same in every process, and the same with any
+     * intervals, as the term of the concept, which has its intervals replaced
+     */
+    public static int owner(final Term t, final int count) {
+        return Math.floorMod(hash(t), count);
+    }
+
+    private static int hash(final Term t) {
+        if (t instanceof Interval)
+            return 0;
+        if (t instanceof CompoundTerm) {
+            final CompoundTerm c = (CompoundTerm) t;
+            int h = 31 * c.operator().ordinal() + c.getTemporalOrder();
+            for (final Term x : c.term)
+                h = 31 * h + hash(x);
+            return h;
+        }
+        final CharSequence n = t.name();
+        int h = 0;
+        for (int i = 0; i < n.length(); i++)
+            h = 31 * h + n.charAt(i);
+        return h;
+    }
+
+    public boolean isLocal(final Term t) {
+        return owner(t, count) == index;
+    }
+
+    /**
+     * Sends a new task to the shard which owns its term, unless it is this one.
+     *
+     * @return whether it should be processed here
+     */
+    public boolean dispatch(final Task t) {
+        final int owner = owner(t.sentence.term, count);
+        if (owner == index)
+            return true;
+        try {
+            begin(TASK);
+            TaskCodec.write(out, t);
+            send(owner);
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+        }
+        return false;
+    }
+
+    /** links a task from the concept of a component owned by another shard, as Concept.linkToTask does locally */
+    public void linkTask(final Term component, final Task task, final TermLink template, final BudgetValue budget) {
+        if (component instanceof Interval)
+            return;
+        try {
+            begin(TASK_LINK);
+            TaskCodec.write(out, task);
+            writeLink(template.target, template.type, template.index);
+            writeBudget(budget);
+            send(owner(component, count));
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+        }
+    }
+
+    /** links a compound from the concept of a component owned by another shard, and on from there, as Concept.buildTermLinks does locally */
+    public void linkTerm(final Term compound, final TermLink template, final BudgetValue activation, final BudgetValue budget) {
+        if (template.target instanceof Interval)
+            return;
+        try {
+            begin(TERM_LINK);
+            out.writeUTF(compound.toString());
+            writeLink(template.target, template.type, template.index);
+            writeBudget(activation);
+            writeBudget(budget);
+            send(owner(template.target, count));
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+        }
+    }
+
+    /**
+     * Sends premises whose belief term is owned by another shard to it, to
+     * reason on there, instead of RuleTables.reason here.
+     *
+     * @return whether they were sent
+     */
+    public boolean reasonRemotely(final TaskLink tLink, final TermLink bLink, final DerivationContext nal) {
+        if ((bLink.target instanceof Interval) || isLocal(bLink.target))
+            return false;
+        try {
+            begin(PREMISES);
+            TaskCodec.write(out, nal.getCurrentTask());
+            out.writeUTF(nal.getCurrentTerm().toString());
+            writeLink(null, tLink.type, tLink.index);
+            writeBudget(tLink.budget);
+            writeLink(bLink.target, bLink.type, bLink.index);
+            writeBudget(bLink.budget);
+            send(owner(bLink.target, count));
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+            return false;
+        }
+        return true;
+    }
+
+    private void begin(final int kind) throws IOException {
+        buffer.reset();
+        out.writeByte(kind);
+        TaskCodec.writeVarLong(out, memory.time());
+    }
+
+    private void send(final int shard) throws IOException {
+        out.flush();
+        transport.send(shard, buffer.toByteArray());
+        forwarded++;
+    }
+
+    private void writeLink(final Term target, final short type, final short[] index) throws IOException {
+        if (target != null)
+            out.writeUTF(target.toString());
+        out.writeShort(type);
+        TaskCodec.writeVarLong(out, (index == null) ? 0 : (index.length + 1));
+        if (index != null) {
+            for (final short i : index)
+                out.writeShort(i);
+        }
+    }
+
+    private static short[] readIndex(final DataInputStream in) throws IOException {
+        final int n = (int) TaskCodec.readVarLong(in);
+        if (n == 0)
+            return null;
+        final short[] index = new short[n - 1];
+        for (int i = 0; i < index.length; i++)
+            index[i] = in.readShort();
+        return index;
+    }
+
+    private TermLink readLink(final DataInputStream in) throws IOException, InvalidInputException {
+        final Term target = narsese.parseTerm(in.readUTF());
+        final short type = in.readShort();
+        return new TermLink(target, type, readIndex(in), null);
+    }
+
+    private void writeBudget(final BudgetValue b) throws IOException {
+        out.writeFloat(b.getPriority());
+        out.writeFloat(b.getDurability());
+        out.writeFloat(b.getQuality());
+    }
+
+    private static BudgetValue readBudget(final DataInputStream in) throws IOException {
+        return new BudgetValue(in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    @Override
+    public void receive(final byte[] message) {
+        inbox.add(message);
+    }
+
+    /** processes the messages received since the previous call; called by Memory at the start of each cycle */
+    public void deliver() {
+        byte[] m;
+        while ((m = inbox.poll()) != null) {
+            try {
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(m));
+                final int kind = in.readByte();
+                memory.advanceTime(TaskCodec.readVarLong(in));
+                switch (kind) {
+                    case TASK:
+                        new ImmediateProcess(memory, TaskCodec.read(in, narsese)).run();
+                        break;
+                    case TASK_LINK:
+                        onTaskLink(in);
+                        break;
+                    case TERM_LINK:
+                        onTermLink(in);
+                        break;
+                    case PREMISES:
+                        onPremises(in);
+                        break;
+                }
+            } catch (IOException | InvalidInputException e) {
+                memory.emit(ERR.class, e);
+                continue;
+            }
+            received++;
+        }
+    }
+
+    private void onTaskLink(final DataInputStream in) throws IOException, InvalidInputException {
+        final Task task = TaskCodec.read(in, narsese);
+        final TermLink template = readLink(in);
+        final BudgetValue budget = readBudget(in);
+        final Concept c = memory.conceptualize(budget, template.target);
+        if (c != null)
+            c.insertTaskLink(new TaskLink(task, template, budget, Parameters.TERM_LINK_RECORD_LENGTH), new Context(memory));
+    }
+
+    private void onTermLink(final DataInputStream in) throws IOException, InvalidInputException {
+        final Term compound = narsese.parseTerm(in.readUTF());
+        final TermLink template = readLink(in);
+        final BudgetValue activation = readBudget(in);
+        final BudgetValue budget = readBudget(in);
+        final Concept c = memory.conceptualize(activation, template.target);
+        if (c == null)
+            return;
+        c.insertTermLink(new TermLink(compound, template, budget));
+        if ((template.target instanceof CompoundTerm) && (template.type != TermLink.TEMPORAL))
+            c.buildTermLinks(budget);
+    }
+
+    private void onPremises(final DataInputStream in) throws IOException, InvalidInputException {
+        final Task task = TaskCodec.read(in, narsese);
+        final Term term = narsese.parseTerm(in.readUTF());
+        final short type = in.readShort();
+        final short[] index = readIndex(in);
+        final TaskLink tLink = new TaskLink(task, type, index, readBudget(in), Parameters.TERM_LINK_RECORD_LENGTH);
+        final TermLink l = readLink(in);
+        final TermLink bLink = new TermLink(l.target, l.type, l.index, readBudget(in));
+
+        final Context nal = new Context(memory);
+        nal.setCurrentTerm(term);
+        nal.setCurrentTaskLink(tLink);
+        nal.setCurrentBeliefLink(bLink);
+        nal.setCurrentTask(task);
+        RuleTables.reason(tLink, bLink, nal);
+    }
+
+    /** the context of what a message makes or reasons on; it has no current concept, as that is owned by the sender */
+    private static class Context extends DerivationContext {
+        Context(final Memory memory) {
+            super(memory);
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    /** serial for a new stamp, from this shard's share of the serial space */
+    public long stampSerial(final long localSerial) {
+        return localSerial * count + index;
+    }
+
+    public long getForwarded() {
+        return forwarded;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public int getPending() {
+        return inbox.size();
+    }
+}
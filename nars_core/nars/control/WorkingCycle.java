@@ -1,6 +1,8 @@
 package nars.control;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import nars.util.Events;
 import nars.util.Events.ConceptForget;
 import nars.storage.Memory;
@@ -12,6 +14,7 @@ import nars.language.CompoundTerm;
 import nars.language.Interval;
 import nars.language.Term;
 import nars.storage.Bag;
+import nars.storage.ConceptStore;
 import nars.config.Plugins;
 
 /**
@@ -28,6 +31,44 @@ public class WorkingCycle implements Iterable<Concept> {
     public final Bag<Concept,Term> concepts;
     
     private Memory memory;
+
+    /**
+     * activation of existing concepts collected during the current cycle,
+     * in the order they were first activated; see RuntimeParameters.batchActivation
+     */
+    private final Map<Term, Activation> pending = new LinkedHashMap();
+
+    /**
+     * where concepts removed from the bag are kept, if anywhere
+     */
+    private ConceptStore store;
+
+    /**
+     * Several TaskLink activations of one concept composed into one update.
+     * Activation maps priority p to or(p, a) = 1 - (1-p)(1-a) and durability
+     * d to (d + a)/2, so any sequence of them is p -> 1 - (1-p)*inverse and
+     * d -> d*scale + offset, and applying the composition equals applying
+     * each in turn.
+     */
+    public static class Activation {
+        public final Concept concept;
+        float inverse = 1, scale = 1, offset = 0;
+
+        public Activation(final Concept concept) {
+            this.concept = concept;
+        }
+
+        public void add(final BudgetValue amount) {
+            inverse *= 1f - amount.getPriority();
+            scale *= 0.5f;
+            offset = (offset + amount.getDurability()) * 0.5f;
+        }
+
+        public void apply(final BudgetValue receiver) {
+            receiver.setPriority(1f - (1f - receiver.getPriority()) * inverse);
+            receiver.setDurability(receiver.getDurability() * scale + offset);
+        }
+    }
          
     public WorkingCycle(Bag<Concept,Term> concepts) {
         this.concepts = concepts;   
@@ -44,7 +85,7 @@ public class WorkingCycle implements Iterable<Concept> {
     
     protected FireConcept next() {       
 
-        Concept currentConcept = concepts.takeNext();
+        Concept currentConcept = concepts.takeNext(memory.cycles(memory.param.conceptForgetDurations), memory);
         if (currentConcept==null)
             return null;
         
@@ -85,6 +126,7 @@ public class WorkingCycle implements Iterable<Concept> {
             memory.processNovelTask();
         //if(noResult())
             processConcept();
+        flushActivation();
     }
     
     public void processConcept() {
@@ -95,7 +137,10 @@ public class WorkingCycle implements Iterable<Concept> {
     }
 
     public void reset() {
+        pending.clear();
         concepts.clear();
+        if (store != null)
+            store.reset();
     }
 
     public Concept concept(Term term) {
@@ -105,6 +150,8 @@ public class WorkingCycle implements Iterable<Concept> {
 
     public void conceptRemoved(Concept c) {
         memory.emit(ConceptForget.class, c);
+        if (store != null)
+            store.forgotten(c);
     }
     
     public Concept conceptualize(BudgetValue budget, Term term, boolean createIfMissing) {
@@ -114,6 +161,18 @@ public class WorkingCycle implements Iterable<Concept> {
         }
         
         term = CompoundTerm.cloneDeepReplaceIntervals(term);
+
+        if (memory.param.batchActivation) {
+            final Concept existing = concepts.get(term);
+            if (existing != null) {
+                //activated when the cycle ends, once for all its activations
+                Activation a = pending.get(term);
+                if (a == null)
+                    pending.put(term, a = new Activation(existing));
+                a.add(budget);
+                return existing;
+            }
+        }
         
         //see if concept is active
         Concept concept = concepts.take(term);
@@ -122,6 +181,10 @@ public class WorkingCycle implements Iterable<Concept> {
             //create new concept, with the applied budget
             
             concept = new Concept(budget, term, memory);
+            if ((store != null) && (store.restore(concept))) {
+                //continue from the stored budget
+                BudgetFunctions.activate(concept.budget, budget, Activating.TaskLink);
+            }
 
             //if (memory.logic!=null)
             //    memory.logic.CONCEPT_NEW.commit(term.getComplexity());
@@ -166,6 +229,40 @@ public class WorkingCycle implements Iterable<Concept> {
     }
     
     
+    /**
+     * Applies the activation collected during this cycle, taking each concept
+     * out of the bag and putting it back once.
+     */
+    public void flushActivation() {
+        if (pending.isEmpty())
+            return;
+        final float forgetCycles = memory.cycles(memory.param.conceptForgetDurations);
+        for (final Activation a : pending.values()) {
+            final Concept c = a.concept;
+            if (concepts.get(c.name()) != c)
+                continue; //forgotten meanwhile
+            concepts.take(c.name());
+            a.apply(c.budget);
+            final Concept displaced = concepts.putBack(c, forgetCycles, memory);
+            if (displaced != null)
+                conceptRemoved(displaced);
+        }
+        pending.clear();
+    }
+
+    /** keeps concepts which leave the bag in a store, and restores them from it */
+    public void setStore(final ConceptStore store) {
+        this.store = store;
+    }
+
+    public ConceptStore getStore() {
+        return store;
+    }
+
+    public int getPendingActivations() {
+        return pending.size();
+    }
+
     public void activate(final Concept c, final BudgetValue b, Activating mode) {
         concepts.take(c.name());
         BudgetFunctions.activate(c.budget, b, mode);
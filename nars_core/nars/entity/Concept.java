@@ -42,6 +42,7 @@ import nars.storage.Memory;
 import nars.io.NARConsole;
 import nars.config.Parameters;
 import nars.control.DerivationContext;
+import nars.control.Shard;
 import static nars.inference.BudgetFunctions.distributeAmongLinks;
 import static nars.inference.BudgetFunctions.rankBelief;
 import static nars.inference.LocalRules.revisible;
@@ -153,8 +154,8 @@ public class Concept extends Item<Term> {
         this.quests = new ArrayList<>();
         this.desires = new ArrayList<>();
 
-        this.taskLinks = new LevelBag<>(Parameters.TASK_LINK_BAG_LEVELS, Parameters.TASK_LINK_BAG_SIZE);
-        this.termLinks = new LevelBag<>(Parameters.TERM_LINK_BAG_LEVELS, Parameters.TERM_LINK_BAG_SIZE);
+        this.taskLinks = Bag.newBag(Parameters.TASK_LINK_BAG_TYPE, Parameters.TASK_LINK_BAG_LEVELS, Parameters.TASK_LINK_BAG_SIZE);
+        this.termLinks = Bag.newBag(Parameters.TERM_LINK_BAG_TYPE, Parameters.TERM_LINK_BAG_LEVELS, Parameters.TERM_LINK_BAG_SIZE);
                 
         if (tm instanceof CompoundTerm) {
             this.termLinkTemplates = ((CompoundTerm) tm).prepareComponentLinks();
@@ -404,14 +405,15 @@ public class Concept extends Item<Term> {
     
     public static void successfulOperationHandler(Memory memory) {
         //multiple versions are necessary, but we do not allow duplicates
-        if(Parameters.CONSIDER_NEW_OPERATION_BIAS == 1.0f) {
+        final float bias = memory.param.newOperationBias.floatValue();
+        if(bias == 1.0f) {
             return;
         }
         for(Task s : memory.sequenceTasks) {
             
             if(memory.lastDecision != null && (s.getTerm() instanceof Operation)) {
                 if(!s.getTerm().equals(memory.lastDecision.getTerm())) {
-                    s.setPriority(s.getPriority()*Parameters.CONSIDER_NEW_OPERATION_BIAS);
+                    s.setPriority(s.getPriority()*bias);
                     continue; //depriorized already, we can look at the next now
                 }
             }
@@ -420,7 +422,7 @@ public class Concept extends Item<Term> {
                 if(seq.getTemporalOrder() == TemporalRules.ORDER_FORWARD) {
                     for(Term w : seq.term) {
                         if((w instanceof Operation) && !w.equals(memory.lastDecision.getTerm())) {
-                            s.setPriority(s.getPriority()*Parameters.CONSIDER_NEW_OPERATION_BIAS);
+                            s.setPriority(s.getPriority()*bias);
                             break; //break because just penalty once, not for each term ^^
                         }
                     }
@@ -714,6 +716,12 @@ public class Concept extends Item<Term> {
 //              if (!(task.isStructural() && (termLink.getType() == TermLink.TRANSFORM))) { // avoid circular transform
                 Term componentTerm = termLink.target;
 
+                final Shard shard = memory.getShard();
+                if ((shard != null) && !shard.isLocal(componentTerm)) {
+                    shard.linkTask(componentTerm, task, termLink, subBudget);
+                    continue;
+                }
+
                 Concept componentConcept = memory.conceptualize(subBudget, componentTerm);
 
                 if (componentConcept != null) {
@@ -811,7 +819,7 @@ public class Concept extends Item<Term> {
      *
      * @param taskLink The termLink to be inserted
      */
-    protected boolean insertTaskLink(final TaskLink taskLink, DerivationContext nal) {        
+    public boolean insertTaskLink(final TaskLink taskLink, DerivationContext nal) {        
         Task target = taskLink.getTarget();
         
         Task ques = taskLink.getTarget();
@@ -936,6 +944,16 @@ public class Concept extends Item<Term> {
 
                 Term target = template.target;
 
+                final Shard shard = memory.getShard();
+                if ((shard != null) && !shard.isLocal(target)) {
+                    if (!(target instanceof Interval)) {
+                        // this termLink to that, and that to this at the shard which owns it
+                        insertTermLink(new TermLink(target, template, subBudget));
+                        shard.linkTerm(term, template, taskBudget, subBudget);
+                    }
+                    continue;
+                }
+
                 final Concept concept = memory.conceptualize(taskBudget, target);
                 if (concept == null) {
                     continue;
@@ -1048,6 +1066,30 @@ public class Concept extends Item<Term> {
         return termLinkTemplates;
     }
 
+    /**
+     * Estimated heap footprint in bytes of this concept's own structure: its
+     * task tables, link bags and link templates. The tasks, links and terms
+     * referenced from them are not counted.
+     */
+    public long getFootprint() {
+        long b = 96; //this
+        b += tableFootprint(questions) + tableFootprint(quests) + tableFootprint(beliefs)
+                + tableFootprint(executable_preconditions) + tableFootprint(desires)
+                + tableFootprint(termLinkTemplates);
+        if (taskLinks instanceof LevelBag)
+            b += ((LevelBag)taskLinks).getFootprint();
+        if (termLinks instanceof LevelBag)
+            b += ((LevelBag)termLinks).getFootprint();
+        return b;
+    }
+
+    /** an ArrayList allocates its default 10 slots on the first add */
+    private static long tableFootprint(final List l) {
+        if (l == null) return 0;
+        final int n = l.size();
+        return 24 + ((n == 0) ? 0 : 16 + 4 * Math.max(10, n));
+    }
+
     /**
      * Select a isBelief to interact with the given task in inference
      * <p>
@@ -1194,7 +1236,7 @@ public class Concept extends Item<Term> {
         int toMatch = Parameters.TERM_LINK_MAX_MATCHED; //Math.min(memory.param.termLinkMaxMatched.get(), termLinks.size());
         for (int i = 0; (i < toMatch) && (termLinks.size() > 0); i++) {
             
-            final TermLink termLink = termLinks.takeNext();
+            final TermLink termLink = termLinks.takeNext(memory.cycles(memory.param.termLinkForgetDurations), memory);
             if (termLink==null)
                 break;
             
@@ -0,0 +1,164 @@
+package nars.entity;
+
+import com.google.common.base.Strings;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import nars.language.Term;
+
+/**
+ * Bounded record of the recent derivations of a Memory, as compact
+ * (task id, parent id, term, belief term, reason) entries in a ring buffer: the
+ * entry of a task is in the slot (id mod capacity). It holds no Task or
+ * Sentence, only the terms, which are shared with the concepts, so at most
+ * capacity terms are kept reachable by it; the ancestry of a task can be
+ * followed and explained until capacity newer tasks have been recorded, after
+ * which it is forgotten (AIKR), without the garbage collector having to
+ * process a weak reference per task.
+ */
+public final class Provenance implements Serializable {
+
+    /** parent id of an input task */
+    public static final long INPUT = -1;
+    /** parent id of a derived task whose parent is not known, or has been forgotten */
+    public static final long UNKNOWN = -2;
+
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private final int mask;
+    private final long[] tasks;
+    private final long[] parents;
+    private final Term[] terms;
+    /** term of the belief a task was derived from, or null */
+    private final Term[] beliefs;
+    /** why a task was added, as the reason given to Memory.addNewTask */
+    private final String[] reasons;
+
+    /** @param capacity rounded down to a power of 2 */
+    public Provenance(final int capacity) {
+        final int c = Integer.highestOneBit(Math.max(1, capacity));
+        this.mask = c - 1;
+        this.tasks = new long[c];
+        this.parents = new long[c];
+        this.terms = new Term[c];
+        this.beliefs = new Term[c];
+        this.reasons = new String[c];
+        clear();
+    }
+
+    /** assigns the id of a new task, unique in the JVM */
+    static long newId() {
+        return nextId.getAndIncrement();
+    }
+
+    public void add(final Task t) {
+        add(t, null);
+    }
+
+    /** @param reason how the task was derived, or null */
+    public void add(final Task t, final String reason) {
+        final int slot = (int) (t.id & mask);
+        final Sentence belief = t.getParentBelief();
+        //the entry first, so a reader which finds the task also finds its entry
+        parents[slot] = t.getParentTaskId();
+        terms[slot] = t.getTerm();
+        beliefs[slot] = (belief == null) ? null : belief.term;
+        reasons[slot] = reason;
+        tasks[slot] = t.id;
+    }
+
+    /** @return the parent id of the task with this id, INPUT, or UNKNOWN if it is not recorded or has been forgotten */
+    public long getParent(final long id) {
+        if (id < 0)
+            return UNKNOWN;
+        final int slot = (int) (id & mask);
+        if (tasks[slot] != id)
+            return UNKNOWN;
+        final long p = parents[slot];
+        //still the same task, so the parent was not overwritten meanwhile
+        return (tasks[slot] == id) ? p : UNKNOWN;
+    }
+
+    /** @return the term of the task with this id, or null if it is not recorded or has been forgotten */
+    public Term getTerm(final long id) {
+        if (id < 0)
+            return null;
+        final int slot = (int) (id & mask);
+        if (tasks[slot] != id)
+            return null;
+        final Term t = terms[slot];
+        return (tasks[slot] == id) ? t : null;
+    }
+
+    /**
+     * Explains a task by the chain of its ancestors, from its parent to the
+     * oldest one remembered, each with the belief and the reason it was
+     * derived by
+     */
+    public String explain(final Task t) {
+        final StringBuilder x = new StringBuilder(t.explainHead());
+        long id = t.getParentTaskId();
+        if (id < 0)
+            return x.toString();
+        x.append("  parentTask=");
+        for (int indent = 1; (id >= 0) && (indent <= mask + 1); indent++) {
+            final int slot = (int) (id & mask);
+            final long parent = parents[slot];
+            final Term term = terms[slot], belief = beliefs[slot];
+            final String reason = reasons[slot];
+            if (indent > 1)
+                x.append(Strings.repeat("  ", indent));
+            x.append('#').append(id).append(' ');
+            if (tasks[slot] != id) {
+                //forgotten: only the task itself knows the term of its parent
+                x.append((indent == 1) ? t.getParentTerm() : "(forgotten)").append('\n');
+                break;
+            }
+            x.append(term);
+            if (reason != null)
+                x.append(" (").append(reason).append(')');
+            if (belief != null)
+                x.append(" from belief: ").append(belief);
+            x.append('\n');
+            id = parent;
+        }
+        return x.toString();
+    }
+
+    /** @return whether a task is derived from the task with the id ancestor, through at least one task between them */
+    public boolean hasAncestor(final Task t, final long ancestor) {
+        long p = t.getParentTaskId();
+        for (int i = 0; (p >= 0) && (i <= mask); i++) {
+            p = getParent(p);
+            if ((p == ancestor) && (p >= 0))
+                return true;
+        }
+        return false;
+    }
+
+    /** @return the id of the oldest ancestor of a task which is remembered, or INPUT if it has no parent */
+    public long getRoot(final Task t) {
+        long root = t.getParentTaskId();
+        if (root < 0)
+            return INPUT;
+        for (int i = 0; i <= mask; i++) {
+            final long p = getParent(root);
+            if (p < 0)
+                break;
+            root = p;
+        }
+        return root;
+    }
+
+    public void clear() {
+        Arrays.fill(tasks, UNKNOWN);
+        Arrays.fill(parents, UNKNOWN);
+        Arrays.fill(terms, null);
+        Arrays.fill(beliefs, null);
+        Arrays.fill(reasons, null);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
@@ -21,12 +21,11 @@
 package nars.entity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import nars.NAR;
 import nars.config.Parameters;
@@ -202,37 +201,7 @@ public class Sentence<T extends Term> implements Cloneable {
             
             final CompoundTerm c = (CompoundTerm)term;
             
-            List<Variable> vars = new ArrayList(); //may contain duplicates, list for efficiency
-            
-            c.recurseSubtermsContainingVariables(new Term.TermVisitor() {                
-                @Override public void visit(final Term t, final Term parent) {
-                    if (t instanceof Variable) {
-                        Variable v = ((Variable)t);                        
-                        vars.add(v);
-                    }                    
-                }            
-            });
-            
-            Map<CharSequence,CharSequence> rename = new HashMap();            
-            boolean renamed = false;
-            
-            for (final Variable v : vars) {
-                
-                CharSequence vname = v.name();
-                if (!v.hasVarIndep())
-                    vname = vname + " " + v.getScope().name();                                
-                
-                CharSequence n = rename.get(vname);                
-                
-                if (n==null) {                            
-                    //type + id
-                    rename.put(vname, n = Variable.getName(v.getType(), rename.size()+1));
-                    if (!n.equals(vname))
-                        renamed = true;
-                }    
-
-                v.setScope(c, n);                
-            }
+            final boolean renamed = VariableNormalization.get().normalize(c);
             
             if (renamed) {
                 c.invalidateName();
@@ -264,6 +233,80 @@ public class Sentence<T extends Term> implements Cloneable {
 
     
 
+    /**
+     * Renames the variables of a term to $1, #2, ?3 ... in order of their
+     * first occurrence, in one pass over the term. The variables met so far
+     * are kept in arrays which each thread reuses from one sentence to the
+     * next, in place of a list and a map per sentence.
+     */
+    private static final class VariableNormalization {
+
+        private static final ThreadLocal<VariableNormalization> local = new ThreadLocal<VariableNormalization>() {
+            @Override protected VariableNormalization initialValue() {
+                return new VariableNormalization();
+            }
+        };
+
+        static VariableNormalization get() {
+            return local.get();
+        }
+
+        /** name of each distinct variable, the name of its scope (null for independent variables), and its new name */
+        private CharSequence[] names = new CharSequence[8], scopes = new CharSequence[8], renames = new CharSequence[8];
+        private int count;
+        private boolean renamed;
+
+        /** returns whether any variable's name or scope changed */
+        boolean normalize(final CompoundTerm c) {
+            count = 0;
+            renamed = false;
+            normalize(c, c);
+            //drop the references to the terms of this sentence
+            Arrays.fill(names, 0, count, null);
+            Arrays.fill(scopes, 0, count, null);
+            return renamed;
+        }
+
+        private void normalize(final CompoundTerm c, final CompoundTerm t) {
+            for (final Term x : t.term) {
+                if (x instanceof Variable)
+                    rename(c, (Variable)x);
+                else if ((x instanceof CompoundTerm) && x.hasVar())
+                    normalize(c, (CompoundTerm)x);
+            }
+        }
+
+        private void rename(final CompoundTerm c, final Variable v) {
+            final CharSequence name = v.name();
+            final CharSequence scope = v.hasVarIndep() ? null : v.getScope().name();
+            
+            CharSequence n = null;
+            for (int i = 0; i < count; i++) {
+                if (name.equals(names[i]) && ((scope == null) ? (scopes[i] == null) : scope.equals(scopes[i]))) {
+                    n = renames[i];
+                    break;
+                }
+            }
+            
+            if (n == null) {
+                //type + id
+                n = Variable.getName(v.getType(), count + 1);
+                if (count == names.length) {
+                    names = Arrays.copyOf(names, count * 2);
+                    scopes = Arrays.copyOf(scopes, count * 2);
+                    renames = Arrays.copyOf(renames, count * 2);
+                }
+                names[count] = name;
+                scopes[count] = scope;
+                renames[count++] = n;
+                if ((scope != null) || !n.equals(name))
+                    renamed = true;
+            }
+            
+            v.setScope(c, n);
+        }
+    }
+
     protected boolean isUniqueByOcurrenceTime() {
         return ((punctuation == Symbols.JUDGMENT_MARK) || (punctuation == Symbols.QUESTION_MARK));
     }
@@ -23,7 +23,6 @@ package nars.entity;
 import com.google.common.collect.Iterators;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import nars.storage.Memory;
 import nars.config.Parameters;
@@ -50,7 +49,8 @@ public class Stamp implements Cloneable {
     private long occurrenceTime;
     /*default for atemporal events means "always" in Judgment/Question, but "current" in Goal/Quest*/
     public static final long ETERNAL = Integer.MIN_VALUE;
-    /** caches evidentialBase as a set for comparisons and hashcode, stores the unique Long's in-order for efficiency*/    
+    /** evidentialBase as a set for comparisons, overlap checks and hashcode: its distinct serials in ascending order.
+     *  made when two stamps are merged, or else on first use */
     private long[] evidentialSet = null;
     /*Tense of the item*/
     private Tense tense;
@@ -109,6 +109,14 @@ public class Stamp implements Cloneable {
         setCreationTime(time, duration);        
     }
 
+    /** restores a stamp with a recorded evidential base, creation and occurrence time */
+    public Stamp(final long[] evidentialBase, final long creationTime, final long occurrenceTime) {
+        this.evidentialBase = evidentialBase;
+        this.baseLength = evidentialBase.length;
+        this.creationTime = creationTime;
+        this.occurrenceTime = occurrenceTime;
+    }
+
     /**
      * Generate a new stamp identical with a given one
      *
@@ -134,6 +142,8 @@ public class Stamp implements Cloneable {
     public Stamp(final Stamp old, final long creationTime, final Stamp useEvidentialBase) {        
         this.evidentialBase = useEvidentialBase.evidentialBase;
         this.baseLength = useEvidentialBase.baseLength;
+        if (useEvidentialBase.evidentialSet != null)
+            setEvidentialSet(useEvidentialBase.evidentialSet);
         this.creationTime = creationTime;
 
         this.occurrenceTime = old.getOccurrenceTime();
@@ -169,6 +179,11 @@ public class Stamp implements Cloneable {
         while (i1 < firstLength && j < baseLength) {
             evidentialBase[j++] = firstBase[i1++];
         }
+        
+        if (j == firstLength + secondLength) {
+            //nothing was cut, so the set is the union of the parents' sets
+            setEvidentialSet(union(first.toSet(), second.toSet()));
+        }
     }
 
     public Stamp(final Memory memory, final Tense tense) {
@@ -180,36 +195,55 @@ public class Stamp implements Cloneable {
         this(memory, Tense.Present);
     }
     
-    public static boolean baseOverlap(long[] base1, long[] base2) {
-        HashSet<Long> task_base = new HashSet<Long>(base1.length + base2.length);
-        for(int i=0; i < base1.length; i++) {
-            if(task_base.contains(Long.valueOf(base1[i]))) { //can have an overlap in itself already
-                return true;
-            }
-            task_base.add(base1[i]);
-        }
-        //too restrictive, its checked for non-deductive inference rules in derivedTask
-        for(int i=0; i < base2.length; i++) {
-            if(task_base.contains(Long.valueOf(base2[i]))) {
-                return true;
-            }
-            task_base.add(base2[i]); //also add to detect collision with itself
-        }
-        return false;
+    /** whether the two bases share a serial, or either has one twice */
+    public static boolean baseOverlap(final long[] base1, final long[] base2) {
+        final long[] set1 = toSetArray(base1), set2 = toSetArray(base2);
+        return (set1.length < base1.length) || (set2.length < base2.length) || intersect(set1, set2);
      }
     
+    /** whether the two stamps share evidence, or either is cyclic */
+    public static boolean baseOverlap(final Stamp a, final Stamp b) {
+        return a.evidenceIsCyclic() || b.evidenceIsCyclic() || intersect(a.toSet(), b.toSet());
+    }
+    
+    /** whether a serial occurs twice in the evidential base */
     public boolean evidenceIsCyclic() {
-        HashSet<Long> task_base = new HashSet<Long>(this.evidentialBase.length);
-        boolean cyclic = false;
-        for(int i=0; i < this.evidentialBase.length; i++) {
-            if(task_base.contains(Long.valueOf(this.evidentialBase[i]))) { //can have an overlap in itself already
+        return toSet().length < baseLength;
+    }
+
+    /** whether two ascending arrays have an element in common */
+    static boolean intersect(final long[] a, final long[] b) {
+        int i = 0, j = 0;
+        while ((i < a.length) && (j < b.length)) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else
                 return true;
-            }
-            task_base.add(this.evidentialBase[i]);
         }
         return false;
     }
 
+    /** the distinct elements of two ascending arrays of distinct elements, in ascending order */
+    static long[] union(final long[] a, final long[] b) {
+        final long[] u = new long[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while ((i < a.length) && (j < b.length)) {
+            if (a[i] < b[j])
+                u[k++] = a[i++];
+            else if (a[i] > b[j])
+                u[k++] = b[j++];
+            else {
+                u[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) u[k++] = a[i++];
+        while (j < b.length) u[k++] = b[j++];
+        return (k == u.length) ? u : Arrays.copyOf(u, k);
+    }
+
     public boolean isEternal() {
         boolean eternalOccurrence = occurrenceTime == ETERNAL;
         
@@ -259,36 +293,20 @@ public class Stamp implements Cloneable {
         return evidentialBase[i];
     }
     
+    /** the distinct elements of x, in ascending order */
     public static long[] toSetArray(final long[] x) {
         long[] set = x.clone();
         
         if (x.length < 2)
             return set;
         
-        //1. copy evidentialBse
-        //2. sort
-        //3. count duplicates
-        //4. create new array 
-        
         Arrays.sort(set);
-        long lastValue = -1;
-        int j = 0; //# of unique items
-        for (int i = 0; i < set.length; i++) {
-            long v = set[i];
-            if (lastValue != v)
-                j++;                
-            lastValue = v;
-        }
-        lastValue = -1;
-        long[] sorted = new long[j];
-        j = 0;
-        for (int i = 0; i < set.length; i++) {
-            long v = set[i];
-            if (lastValue != v)
-                sorted[j++] = v;
-            lastValue = v;
+        int j = 1; //# of unique items
+        for (int i = 1; i < set.length; i++) {
+            if (set[i] != set[j - 1])
+                set[j++] = set[i];
         }
-        return sorted;
+        return (j == set.length) ? set : Arrays.copyOf(set, j);
     }
 
     /**
@@ -297,14 +315,24 @@ public class Stamp implements Cloneable {
      * @return The TreeSet representation of the evidential base
      */
     private long[] toSet() {        
-        if (evidentialSet == null) {        
-            evidentialSet = toSetArray(evidentialBase);
-            evidentialHash = Arrays.hashCode(evidentialSet);
-        }
+        if (evidentialSet == null)
+            setEvidentialSet(toSetArray(evidentialBase));
         
         return evidentialSet;
     }
 
+    private void setEvidentialSet(final long[] set) {
+        evidentialHash = Arrays.hashCode(set);
+        evidentialSet = set;
+    }
+
+    /** replaces the evidential base, for a stamp which has just been made */
+    public void setEvidentialBase(final long[] evidentialBase) {
+        this.evidentialBase = evidentialBase;
+        this.baseLength = evidentialBase.length;
+        this.evidentialSet = null;
+    }
+
     
     @Override public boolean equals(final Object that) {
         throw new RuntimeException("Use other equals() method");
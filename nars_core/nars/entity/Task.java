@@ -20,8 +20,6 @@
  */
 package nars.entity;
 
-import com.google.common.base.Strings;
-import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -31,9 +29,14 @@ import nars.plugin.mental.InternalExperience;
 
 /**
  * A task to be processed, consists of a Sentence and a BudgetValue.
- * A task references its parent and an optional causal factor (usually an Operation instance).  These are implemented as WeakReference to allow forgetting via the
- * garbage collection process.  Otherwise, Task ancestry would grow unbounded,
- * violating the assumption of insufficient resources (AIKR).
+ * A task references its parent by id, and keeps only the term of its parent
+ * and the belief it was derived from; the ancestry beyond is kept in the
+ * bounded Provenance of the Memory, and forgotten from there.
+ * Otherwise, Task ancestry would grow unbounded, violating the assumption of
+ * insufficient resources (AIKR). The belief is kept as a Sentence, since
+ * inference revises with it (LocalRules), so a task keeps its parent belief
+ * reachable for as long as the task itself is; it does not chain further,
+ * as a Sentence references no task.
  */
 public class Task<T extends Term> extends Item<Sentence<T>>  {
 
@@ -42,16 +45,17 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
 
     /* The sentence of the Task*/
     public final Sentence<T> sentence;
-    /* Task from which the Task is derived, or null if input*/
-    final WeakReference<Task> parentTask;
+    /* Provenance id of this Task*/
+    public final long id;
+    /* id of the Task from which the Task is derived, or Provenance.INPUT if input*/
+    final long parentTask;
+    /* Term of the Task from which the Task is derived, or null*/
+    private final Term parentTerm;
     /* Belief from which the Task is derived, or null if derived from a theorem*/
-    public final  WeakReference<Sentence> parentBelief;
+    private final Sentence parentBelief;
     /* For Question and Goal: best solution found so far*/
     private Sentence bestSolution;
     
-    /** causal factor; usually an instance of Operation */
-    private WeakReference<Term> cause;
-    
     
     
     /**
@@ -61,7 +65,7 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
      * @param b The budget
      */
     public Task(final Sentence<T> s, final BudgetValue b) {
-        this(s, b, (WeakReference)null, null, null);
+        this(s, b, Provenance.INPUT, null, null, null);
     }
  
     public Task(final Sentence<T> s, final BudgetValue b, final Task parentTask) {
@@ -84,16 +88,27 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
      * @param parentBelief The belief from which this new task is derived
      */
     public Task(final Sentence<T> s, final BudgetValue b, final Task parentTask, final Sentence parentBelief) {
-        this(s, b, new WeakReference(parentTask), new WeakReference(parentBelief), null);
+        this(s, b, parentTask, parentBelief, null);
+    }
+
+    public Task(final Sentence<T> s, final BudgetValue b, final long parentTask, final Term parentTerm, final Sentence parentBelief, Sentence solution) {    
+        this(Provenance.newId(), s, b, parentTask, parentTerm, parentBelief, solution);
     }
 
-    public Task(final Sentence<T> s, final BudgetValue b, final WeakReference<Task> parentTask, final WeakReference<Sentence> parentBelief, Sentence solution) {    
+    /**
+     * Constructor for a task which keeps the id it was created with, as when
+     * a ConceptStore restores it
+     */
+    public Task(final long id, final Sentence<T> s, final BudgetValue b, final long parentTask, final Term parentTerm, final Sentence parentBelief, Sentence solution) {    
         super(b);
         this.sentence = s;
+        this.id = id;
         this.parentTask = parentTask;
+        this.parentTerm = parentTerm;
         this.parentBelief = parentBelief;
         this.bestSolution = solution;   
     }
+
     /**
      * Constructor for an activated task
      *
@@ -104,15 +119,16 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
      * @param solution The belief to be used in future inference
      */
     public Task(final Sentence<T> s, final BudgetValue b, final Task parentTask, final Sentence parentBelief, final Sentence solution) {
-        this(s, b, new WeakReference(parentTask), new WeakReference(parentBelief), solution);
+        this(s, b, (parentTask == null) ? Provenance.UNKNOWN : parentTask.id,
+                (parentTask == null) ? null : parentTask.getTerm(), parentBelief, solution);
     }
 
     public Task clone() {
-        return new Task(sentence, budget, parentTask, parentBelief, bestSolution);
+        return new Task(sentence, budget, parentTask, parentTerm, parentBelief, bestSolution);
     }
     
     public Task clone(final Sentence replacedSentence) {
-        return new Task(replacedSentence, budget, parentTask, parentBelief, bestSolution);
+        return new Task(replacedSentence, budget, parentTask, parentTerm, parentBelief, bestSolution);
     }
     
     @Override public Sentence name() {
@@ -168,7 +184,7 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
      * @return Whether the Task is derived from another task
      */
     public boolean isInput() {
-        return parentTask == null;
+        return parentTask == Provenance.INPUT;
     }
     
     public boolean aboveThreshold() {
@@ -223,18 +239,21 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
      * @return The belief from which the task is derived
      */
     public Sentence getParentBelief() {
-        if (parentBelief == null) return null;
-        return parentBelief.get();
+        return parentBelief;
     }
 
     /**
-     * Get the parent task of a task
+     * Get the term of the parent task of a task
      *
-     * @return The task from which the task is derived
+     * @return The term of the task from which the task is derived, or null
      */
-    public Task getParentTask() {
-        if (parentTask == null) return null;
-        return parentTask.get();
+    public Term getParentTerm() {
+        return parentTerm;
+    }
+
+    /** id of the parent task, which may have been forgotten; Provenance.INPUT or UNKNOWN if there is none */
+    public long getParentTaskId() {
+        return parentTask;
     }
 
     /**
@@ -247,9 +266,8 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
         final StringBuilder s = new StringBuilder();
         s.append(super.toString()).append(' ').append(sentence.stamp.name());
         
-        Task pt = getParentTask();
-        if (pt != null) {
-            s.append("  \n from task: ").append(pt.toStringExternal());
+        if (parentTerm != null) {
+            s.append("  \n from task: #").append(parentTask).append(' ').append(parentTerm);
             if (parentBelief != null) {
                 s.append("  \n from belief: ").append(parentBelief.toString());
             }
@@ -261,69 +279,47 @@ public class Task<T extends Term> extends Item<Sentence<T>>  {
     }
 
 
-    public boolean hasParent(Task t) {
-        if (getParentTask() == null)
-            return false;
-        Task p=getParentTask();
-        do {            
-            Task n = p.getParentTask();
-            if (n!=null) {
-                if (n.equals(t))
-                    return true;
-                p = n;
-            }
-            else
-                break;
-        } while (p!=null);
-        return false;        
-    }    
-    
-    public Task getRootTask() {
-        if (getParentTask() == null) {
-            return null;
-        }
-        Task p=getParentTask();
-        do {            
-            Task n = p.getParentTask();
-            if (n!=null)
-                p = n;
-            else
-                break;
-        } while (p!=null);
-        return p;
+    /** whether the task is derived from t through at least one task between them, as far as p remembers */
+    public boolean hasParent(final Provenance p, final Task t) {
+        return p.hasAncestor(this, t.id);
     }
 
+    /**
+     * The task, with its solution and belief; the chain of its ancestors is
+     * explained by Provenance.explain
+     */
     public String getExplanation() {
+        String x = explainHead();
+        if (parentTerm!=null)
+            x += "  parentTask=#" + parentTask + " " + parentTerm + "\n";
+        
+        return x;
+    }
+
+    String explainHead() {
         String x = toString() + "\n";
         if (bestSolution!=null) {
             if (!getTerm().equals(bestSolution.term))
                 x += "  solution=" + bestSolution + "\n";
         }
         if (parentBelief!=null)
-            x += "  parentBelief=" + parentBelief + " @ " + parentBelief.get().getCreationTime() + "\n";
-        
-        Task pt = getParentTask();
-        if (pt!=null) {
-            x += "  parentTask=" + pt + " @ " + pt.getCreationTime() + "\n";
-        
-            int indentLevel = 1;
-            Task p=getParentTask();
-            do {            
-                indentLevel++;
-                Task n = p.getParentTask();
-                if (n!=null) {
-                    x += Strings.repeat("  ",indentLevel) + n.toString();
-                    p = n;
-                }
-                else
-                    break;
-                
-            } while (p!=null);
-        }
-        
+            x += "  parentBelief=" + parentBelief + " @ " + parentBelief.getCreationTime() + "\n";
         return x;
     }
 
+    /** id of the oldest ancestor p remembers, or Provenance.INPUT if the task has no parent */
+    public long getRootTaskId(final Provenance p) {
+        return p.getRoot(this);
+    }
+
+    /** term of the oldest ancestor p remembers, or null if the task has no parent */
+    public Term getRootTerm(final Provenance p) {
+        final long root = p.getRoot(this);
+        if (root == parentTask)
+            return parentTerm;
+        return p.getTerm(root);
+    }
+
     public TruthValue getDesire() { return sentence.truth; }
     
 //    /** returns the goal term for this task, which may be either the predicate of a forward implication,
@@ -106,6 +106,23 @@ public class TaskLink extends Item<Task> implements TLink<Task> {
     }
 
 
+    /**
+     * Constructor to restore a TaskLink which was stored; its records are not kept
+     *
+     * @param t The target Task
+     * @param type Link type
+     * @param index Component indices, or null
+     * @param v The budget
+     */
+    public TaskLink(final Task t, final short type, final short[] index, final BudgetValue v, int recordLength) {
+        super(v);
+        this.type = type;
+        this.index = index;
+        this.targetTask = t;
+        this.recordLength = recordLength;
+        this.records = new ArrayDeque(recordLength);
+    }
+
     @Override
     public int hashCode() {        
         return targetTask.hashCode();                
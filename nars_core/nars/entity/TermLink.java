@@ -120,6 +120,21 @@ public class TermLink extends Item<TermLink> implements TLink<Term> {
         hash = init();
     }
 
+    /**
+     * Constructor to restore a TermLink which was stored
+     * @param t Target Term
+     * @param type Link type
+     * @param index Component indices
+     * @param v Budget value of the link
+     */
+    public TermLink(final Term t, final short type, final short[] index, final BudgetValue v) {
+        super(v);
+        this.target = t;
+        this.type = type;
+        this.index = index;
+        hash = init();
+    }
+
     @Override public TermLink name() { return this; }
     
 //    @Override
@@ -199,6 +199,30 @@ public final class BudgetFunctions extends UtilityFunctions {
         return quality;
     }
 
+    /**
+     * Closed-form forgetting over the cycles elapsed since the budget was last
+     * updated. The priority above the quality floor (as in forgetIterative)
+     * is multiplied by the durability once every forgetCycles cycles, so an
+     * item which is touched rarely decays as much as one touched every cycle.
+     * The first call only records the time.
+     *
+     * @param forgetCycles Cycles over which priority above the floor decays to durability times itself
+     * @param currentTime The current cycle
+     */
+    public static float forgetLazy(final BudgetValue budget, final float forgetCycles, final float relativeThreshold, final long currentTime) {
+        final long elapsed = budget.setLastForgetTime(currentTime);
+        float priority = budget.getPriority();
+        if (elapsed <= 0)
+            return priority;
+        final float quality = budget.getQuality() * relativeThreshold;
+        final float p = priority - quality;
+        if (p > 0) {
+            priority = quality + p * UtilityFunctions.decay(budget.getDurability(), elapsed / forgetCycles);
+            budget.setPriority(priority);
+        }
+        return priority;
+    }
+
     /** forgetting calculation for real-time timing */
     public static float forgetPeriodic(final BudgetValue budget, final float forgetTime, float minPriority, final long currentTime) {
         long forgetDelta = budget.setLastForgetTime(currentTime);        
@@ -25,6 +25,7 @@ import nars.util.Events;
 import nars.storage.Memory;
 import nars.config.Parameters;
 import nars.control.DerivationContext;
+import nars.control.Shard;
 import nars.entity.BudgetValue;
 import nars.entity.Concept;
 import nars.entity.Sentence;
@@ -84,6 +85,10 @@ public class RuleTables {
         if(equalSubTermsInRespectToImageAndProduct(taskTerm,beliefTerm))
            return;
         
+        final Shard shard = memory.getShard();
+        if ((shard != null) && shard.reasonRemotely(tLink, bLink, nal))
+            return; //reasoned on at the shard which owns the belief
+        
         final Concept beliefConcept = memory.concept(beliefTerm);
         
         Sentence belief = (beliefConcept != null) ? beliefConcept.getBelief(nal, task) : null;
@@ -96,7 +101,7 @@ public class RuleTables {
           /*Sentence belief_event = beliefConcept.getBeliefForTemporalInference(task);
             if(belief_event != null) {
                 boolean found_overlap = false;
-                if(Stamp.baseOverlap(task.sentence.stamp.evidentialBase, belief_event.stamp.evidentialBase)) {
+                if(Stamp.baseOverlap(task.sentence.stamp, belief_event.stamp)) {
                     found_overlap = true;
                 }
                 if(!found_overlap) { //temporal rules are inductive so no chance to succeed if there is an overlap
@@ -111,7 +116,7 @@ public class RuleTables {
             }*/
             
             //too restrictive, its checked for non-deductive inference rules in derivedTask (also for single prem)
-            if(Stamp.baseOverlap(task.sentence.stamp.evidentialBase, belief.stamp.evidentialBase)) {
+            if(Stamp.baseOverlap(task.sentence.stamp, belief.stamp)) {
                 nal.evidentalOverlap = true;
                 if(!task.sentence.isEternal() || !belief.isEternal()) {
                     return; //only allow for eternal reasoning for now to prevent derived event floods
@@ -20,6 +20,8 @@
  */
 package nars.inference;
 
+import static java.lang.Math.exp;
+import static java.lang.Math.log;
 import static java.lang.Math.pow;
 import static java.lang.Math.sqrt;
 import nars.config.Parameters;
@@ -123,5 +125,42 @@ public class UtilityFunctions {
     public final static float c2w(final float c) {
         return Parameters.HORIZON * c / (1 - c);
     }
-}
 
+    /* ---------- table-driven exponential decay ---------- */
+
+    private static final int LN_RESOLUTION = 1024;
+    private static final int EXP_RESOLUTION = 256;
+    /** exp(-y) is treated as 0 beyond this */
+    private static final float EXP_MAX = 16;
+
+    /** ln(i / LN_RESOLUTION) */
+    private static final float[] lnTable = new float[LN_RESOLUTION + 1];
+    /** exp(-i / EXP_RESOLUTION) */
+    private static final float[] expTable = new float[(int)(EXP_MAX * EXP_RESOLUTION) + 2];
+    static {
+        for (int i = 1; i <= LN_RESOLUTION; i++)
+            lnTable[i] = (float) log(((double) i) / LN_RESOLUTION);
+        lnTable[0] = lnTable[1] * 2; //ln(0) clamped
+        for (int i = 0; i < expTable.length; i++)
+            expTable[i] = (float) exp(-((double) i) / EXP_RESOLUTION);
+    }
+
+    private static float lerp(final float[] table, final float x) {
+        final int i = (int) x;
+        final float f = x - i;
+        return table[i] + (table[i + 1] - table[i]) * f;
+    }
+
+    /**
+     * d^x for d in [0, 1] and x >= 0, using interpolated ln and exp tables
+     * instead of Math.pow. Absolute error is below 1e-4 for d >= 0.01.
+     */
+    public final static float decay(final float d, final float x) {
+        if ((x <= 0) || (d >= 1f)) return 1f;
+        if (d <= 0) return 0f;
+        final float ln = (d * LN_RESOLUTION >= LN_RESOLUTION) ? 0 : lerp(lnTable, d * LN_RESOLUTION);
+        final float y = -ln * x;
+        if (y >= EXP_MAX) return 0f;
+        return lerp(expTable, y * EXP_RESOLUTION);
+    }
+}
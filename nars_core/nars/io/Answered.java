@@ -42,7 +42,7 @@ public abstract class Answered implements EventObserver {
             if (task.equals(question)) {
                 onSolution(belief);
             }
-            else if (task.hasParent(question)) {
+            else if (task.hasParent(nar.memory.provenance, question)) {
                 onChildSolution(task, belief);
             }
         }
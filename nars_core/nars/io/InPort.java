@@ -3,16 +3,59 @@ package nars.io;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
  * An attached Input, Buffer, and Attention Allocation State
+ * 
+ * Ports are chosen in proportion to their attention (see select), each within
+ * its rate limit. A polled port (see poll) reads ahead up to its capacity, and
+ * its overflow policy decides what happens to input beyond that.
  * @author me
  */
 abstract public class InPort<X,Y> implements Iterator<Y> {
+    /** default capacity: items buffered, and inputs read ahead by a polling thread */
+    public static final int CAPACITY = 1024;
+    /** wait of a polling thread when the input has nothing, or the port is full */
+    static final long POLL_WAIT_NS = 1000000;
+
+    public static enum Overflow {
+        /** stop reading the input until there is room */
+        Block,
+        /** discard the inputs read while full */
+        DropNewest,
+        /** discard the oldest input waiting, to make room */
+        DropOldest
+    }
+
     public final Input<X> input;
     public final ArrayDeque<Y> buffer;
     private float attention;
+    private volatile int capacity = CAPACITY;
+    private volatile Overflow overflow = Overflow.Block;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** items per cycle taken out, 0 for no limit */
+    private float rate;
+    /** items which can be taken out at once after a pause */
+    private float burst;
+    private double tokens;
+    private long refilled;
+    /** credit in the weighted selection of ports */
+    private double credit;
+
+    /** inputs read by the polling thread, when polled (see poll) */
+    private ConcurrentLinkedQueue<X> received;
+    private final AtomicInteger receivedCount = new AtomicInteger();
+    private Thread poller;
+    private volatile boolean pollerDone;
+    private volatile IOException pollError;
     
     
 //    /** initializes with default FIFO and attention=1.0 */
@@ -76,8 +119,22 @@ abstract public class InPort<X,Y> implements Iterator<Y> {
     public void update() throws IOException {
         if (buffer == null) return;
         
-        int DEFAULT_CAPACITY = 1024;
-        while (!input.finished(false) && (DEFAULT_CAPACITY - buffer.size()> 0) ) {            
+        if (received != null) {
+            //perceive what the polling thread has read
+            final IOException e = pollError;
+            if (e != null) {
+                pollError = null;
+                throw e;
+            }
+            X x;
+            while ((capacity - buffer.size() > 0) && ((x = received.poll()) != null)) {
+                receivedCount.decrementAndGet();
+                perceive(x);
+            }
+            return;
+        }
+        
+        while (!input.finished(false) && (capacity - buffer.size()> 0) ) {            
             X x = input.next();
             if (x == null)
                 continue;
@@ -86,12 +143,159 @@ abstract public class InPort<X,Y> implements Iterator<Y> {
         }
     }
 
+    /**
+     * Reads the input on a thread from the factory (see InputThreads) instead
+     * of in update(), so that an input which blocks, such as a file, socket or
+     * the console, does not stall the reasoner. The thread reads ahead up to
+     * the capacity into a lock-free queue, then follows the overflow policy;
+     * update() perceives the inputs on the reasoning thread, as before.
+     */
+    public synchronized void poll(final ThreadFactory threads) {
+        if (received != null)
+            return;
+        received = new ConcurrentLinkedQueue();
+        poller = threads.newThread(new Runnable() {
+            @Override public void run() {
+                try {
+                    while (!input.finished(false)) {
+                        final boolean full = receivedCount.get() >= capacity;
+                        if (full && (overflow == Overflow.Block)) {
+                            LockSupport.parkNanos(POLL_WAIT_NS);
+                            continue;
+                        }
+                        final X x = input.next();
+                        if (x == null) {
+                            LockSupport.parkNanos(POLL_WAIT_NS);
+                            continue;
+                        }
+                        if (full) {
+                            if (overflow == Overflow.DropNewest) {
+                                dropped.incrementAndGet();
+                                continue;
+                            }
+                            if (received.poll() != null) {
+                                receivedCount.decrementAndGet();
+                                dropped.incrementAndGet();
+                            }
+                        }
+                        received.add(x);
+                        receivedCount.incrementAndGet();
+                    }
+                }
+                catch (IOException e) {
+                    //closing the input by finish() is not an error
+                    if (!input.finished(false))
+                        pollError = e;
+                }
+                finally {
+                    pollerDone = true;
+                }
+            }
+        });
+        poller.start();
+    }
+
+    /** whether the input is read by a polling thread */
+    public boolean isPolled() {
+        return received != null;
+    }
+
     public float getAttention() {
         return attention;
     }        
+
+    /** relative share of the inputs taken from this port while others also have input; 0 takes only when none does */
+    public void setAttention(final float attention) {
+        this.attention = attention;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    /** what a polling thread does with input beyond the capacity */
+    public void setOverflow(final Overflow overflow) {
+        this.overflow = overflow;
+    }
+
+    /** inputs discarded by the overflow policy */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Limits the items taken from this port to a rate per cycle, with bursts of
+     * up to the given number of items after a pause (a token bucket).
+     * 
+     * @param itemsPerCycle the rate, or 0 for no limit
+     */
+    public void setRateLimit(final float itemsPerCycle, final float burst) {
+        this.rate = itemsPerCycle;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.refilled = -1;
+    }
+
+    public float getRateLimit() {
+        return rate;
+    }
+
+    /** whether an item can be taken at this time */
+    public boolean ready(final long now) {
+        if (!hasNext())
+            return false;
+        if (rate <= 0)
+            return true;
+        if (refilled != -1)
+            tokens = Math.min(burst, tokens + rate * (now - refilled));
+        refilled = now;
+        return tokens >= 1;
+    }
+
+    /**
+     * Chooses the port to take the next item from: a smooth weighted
+     * round-robin over the ports which are ready. Each adds its attention to
+     * its credit, and the one with the most credit is chosen and pays the
+     * total, so ports are chosen in proportion to their attention, in turn
+     * when it is equal, and a port which has nothing does not save credit.
+     *
+     * @return the port, or null if none is ready
+     */
+    public static <P extends InPort> P select(final List<P> ports, final long now) {
+        InPort best = null, waiting = null;
+        double total = 0;
+        for (final InPort p : ports) {
+            if (!p.ready(now))
+                continue;
+            if (p.attention <= 0) {
+                if (waiting == null)
+                    waiting = p;
+                continue;
+            }
+            p.credit += p.attention;
+            total += p.attention;
+            if ((best == null) || (p.credit > best.credit))
+                best = p;
+        }
+        if (best == null)
+            return (P) waiting;
+        best.credit -= total;
+        return (P) best;
+    }
     
     public boolean finish() {
-        return input.finished(true);
+        final boolean f = input.finished(true);
+        if (poller != null)
+            poller.interrupt();
+        return f;
     }
     
     public boolean finished() {
@@ -99,6 +303,9 @@ abstract public class InPort<X,Y> implements Iterator<Y> {
             if (buffer.size() > 0)
                 return false;
         
+        if (received != null)
+            return pollerDone && received.isEmpty() && (pollError == null);
+        
         return input.finished(false);
     }
     
@@ -108,7 +315,8 @@ abstract public class InPort<X,Y> implements Iterator<Y> {
         
         Y n = buffer.poll();
         
-        //TODO update statistics
+        if ((n != null) && (rate > 0))
+            tokens--;
         
         return n;
     }
@@ -116,10 +324,15 @@ abstract public class InPort<X,Y> implements Iterator<Y> {
     /** empties the buffer */
     public void reset() {        
         buffer.clear();
+        if (received != null) {
+            while (received.poll() != null)
+                receivedCount.decrementAndGet();
+        }
     }
 
+    /** items buffered, and inputs read by the polling thread but not yet perceived */
     public int getItemsBuffered() {
-        return buffer.size();
+        return buffer.size() + receivedCount.get();
     }
     
     //public float getMass(X input) // allows variable weighting of input items; default=1.0
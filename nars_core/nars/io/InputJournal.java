@@ -0,0 +1,271 @@
+package nars.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import nars.NAR;
+import nars.entity.Item;
+import nars.entity.Task;
+import nars.io.Narsese.InvalidInputException;
+import nars.storage.Memory;
+
+/**
+ * Append-only binary log of the input items Memory accepts from the NAR's
+ * input channels, each with the cycle it was accepted in. Replaying the log
+ * into a NAR with the same seed and plugins repeats the original run exactly,
+ * independently of how the input ports were interleaved or timed.
+ *
+ * Items which the reasoner inputs to itself (operator feedback, anticipation)
+ * are not recorded; they are derived again during replay. A replay is only
+ * exact if recording started at cycle 0 of a fresh or reset memory.
+ *
+ * Format: header { int MAGIC, byte VERSION, long seed, long startCycle },
+ * then records { byte type, varlong cycle, payload }, ending with END.
+ */
+public class InputJournal {
+
+    public static final int MAGIC = 0x4e41524a; //"NARJ"
+    public static final byte VERSION = 1;
+
+    static final byte END = 0;
+    static final byte TASK = 1;
+    static final byte PAUSE = 2;
+    static final byte RESET = 3;
+    static final byte ECHO = 4;
+    static final byte VOLUME = 5;
+    static final byte DECISION_THRESHOLD = 6;
+
+    /** writes the log; attach with Memory.setJournal */
+    public static class Recorder implements Closeable {
+
+        private final DataOutputStream out;
+        private final Memory memory;
+        private int records;
+        private boolean closed;
+
+        public Recorder(final Memory memory, final File file) throws IOException {
+            this(memory, new FileOutputStream(file));
+        }
+
+        public Recorder(final Memory memory, final OutputStream os) throws IOException {
+            this.memory = memory;
+            this.out = new DataOutputStream(new BufferedOutputStream(os));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(Memory.randomSeed);
+            out.writeLong(memory.time());
+        }
+
+        /** appends one accepted input item; items of other types are not recorded */
+        public synchronized void record(final long cycle, final Item t) {
+            if (closed) return;
+            try {
+                if (t instanceof Task) {
+                    writeHeader(TASK, cycle);
+                    TaskCodec.write(out, (Task) t);
+                }
+                else if (t instanceof PauseInput) {
+                    writeHeader(PAUSE, cycle);
+                    TaskCodec.writeVarLong(out, ((PauseInput) t).cycles);
+                }
+                else if (t instanceof Reset) {
+                    writeHeader(RESET, cycle);
+                    out.writeUTF(String.valueOf(((Reset) t).input));
+                }
+                else if (t instanceof Echo) {
+                    Echo e = (Echo) t;
+                    writeHeader(ECHO, cycle);
+                    out.writeUTF(e.channel.getName());
+                    out.writeUTF(String.valueOf(e.signal));
+                }
+                else if (t instanceof SetVolume) {
+                    writeHeader(VOLUME, cycle);
+                    TaskCodec.writeVarLong(out, ((SetVolume) t).volume);
+                }
+                else if (t instanceof SetDecisionThreshold) {
+                    writeHeader(DECISION_THRESHOLD, cycle);
+                    out.writeDouble(((SetDecisionThreshold) t).volume);
+                }
+                else {
+                    return;
+                }
+                records++;
+            } catch (IOException e) {
+                memory.emit(Output.ERR.class, e);
+            }
+        }
+
+        private void writeHeader(final byte type, final long cycle) throws IOException {
+            out.writeByte(type);
+            TaskCodec.writeVarLong(out, cycle);
+        }
+
+        public int getRecords() {
+            return records;
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        /** writes the END record with the current cycle, so a replay runs as long as the original */
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) return;
+            writeHeader(END, memory.time());
+            closed = true;
+            out.close();
+        }
+    }
+
+    /** reads a log back; attach with Memory.setReplay, or use replay(NAR) */
+    public static class Replay implements Closeable {
+
+        private final DataInputStream in;
+        private final Memory memory;
+        private final Narsese narsese;
+
+        public final long seed;
+        public final long startCycle;
+
+        private byte nextType = -1;
+        private long nextCycle;
+        private boolean finished;
+
+        public Replay(final Memory memory, final File file) throws IOException {
+            this(memory, new FileInputStream(file));
+        }
+
+        public Replay(final Memory memory, final InputStream is) throws IOException {
+            this.memory = memory;
+            this.narsese = new Narsese(memory);
+            this.in = new DataInputStream(new BufferedInputStream(is));
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not an input journal");
+            final byte version = in.readByte();
+            if (version != VERSION)
+                throw new IOException("Unsupported input journal version: " + version);
+            seed = in.readLong();
+            startCycle = in.readLong();
+            readHeader();
+        }
+
+        private void readHeader() throws IOException {
+            try {
+                nextType = in.readByte();
+                nextCycle = TaskCodec.readVarLong(in);
+            } catch (EOFException e) {
+                //log was not closed; end after the last complete record
+                nextType = END;
+                nextCycle = -1;
+            }
+            if (nextType == END)
+                finished = true;
+        }
+
+        /** whether all records have been replayed */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /** cycle at which the recording ended, or -1 if it was not closed; only valid once finished */
+        public long getEndCycle() {
+            return nextCycle;
+        }
+
+        /** @return the item recorded for this cycle, or null */
+        public Item next(final long cycle) {
+            if (finished || (nextCycle != cycle))
+                return null;
+            try {
+                final Item t = readItem(nextType);
+                readHeader();
+                return t;
+            } catch (IOException | InvalidInputException e) {
+                finished = true;
+                return new Echo(Output.ERR.class, e);
+            }
+        }
+
+        private Item readItem(final byte type) throws IOException, InvalidInputException {
+            switch (type) {
+                case TASK:
+                    return TaskCodec.read(in, narsese);
+                case PAUSE:
+                    return new PauseInput((int) TaskCodec.readVarLong(in));
+                case RESET:
+                    return new Reset(in.readUTF());
+                case ECHO: {
+                    final String channel = in.readUTF();
+                    final String signal = in.readUTF();
+                    try {
+                        return new Echo(Class.forName(channel), signal);
+                    } catch (ClassNotFoundException e) {
+                        return new Echo(Output.ECHO.class, signal);
+                    }
+                }
+                case VOLUME:
+                    return new SetVolume((int) TaskCodec.readVarLong(in));
+                case DECISION_THRESHOLD:
+                    return new SetDecisionThreshold(in.readDouble());
+                default:
+                    throw new IOException("Unknown input journal record: " + type);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finished = true;
+            in.close();
+        }
+    }
+
+    /**
+     * Resets the NAR with the journal's seed and runs it, feeding the recorded
+     * input at the recorded cycles, until the cycle at which recording ended.
+     * The NAR's own input channels are ignored meanwhile.
+     *
+     * @return the number of cycles run
+     */
+    public static long replay(final NAR n, final File file) throws IOException {
+        final Memory memory = n.memory;
+        final Replay r = new Replay(memory, file);
+        try {
+            Memory.randomSeed = r.seed;
+            memory.reset();
+            memory.setReplay(r);
+
+            //idle up to the cycle at which recording started
+            while (memory.time() < r.startCycle)
+                n.frame(1);
+
+            while (!r.isFinished() || (memory.time() < r.getEndCycle())) {
+                if (!r.isFinished() && (r.nextCycle < memory.time()))
+                    throw new IOException("Replay lost synchronization at cycle " + memory.time() + ", expected input at cycle " + r.nextCycle);
+                n.frame(1);
+            }
+
+            return memory.time();
+        }
+        finally {
+            memory.setReplay(null);
+            r.close();
+        }
+    }
+
+    /** starts recording a NAR's input to a file; close the returned Recorder to end the log */
+    public static Recorder record(final NAR n, final File file) throws IOException {
+        final Recorder r = new Recorder(n.memory, file);
+        n.memory.setJournal(r);
+        return r;
+    }
+}
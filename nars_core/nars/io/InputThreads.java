@@ -0,0 +1,47 @@
+package nars.io;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads on which inputs are read (see InPort.poll): virtual threads where
+ * the JDK provides them (Java 21 and later), daemon threads otherwise. The
+ * virtual thread builder is found reflectively, so that the sources still
+ * compile for Java 8.
+ */
+public class InputThreads {
+
+    private static final ThreadFactory virtual = findVirtual();
+
+    private static final ThreadFactory daemon = new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "NAR input " + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    public static ThreadFactory get() {
+        return (virtual != null) ? virtual : daemon;
+    }
+
+    /** whether get() makes virtual threads */
+    public static boolean isVirtual() {
+        return virtual != null;
+    }
+
+    private static ThreadFactory findVirtual() {
+        try {
+            final Class builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "NAR input ", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (Exception | LinkageError notAvailable) {
+            //before Java 21, or a preview feature which is not enabled
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package nars.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connects shards in the same process. Messages are handed directly to the
+ * destination's receiver; they are still encoded, so shards never share
+ * Task instances.
+ */
+public class LoopbackTransport implements ShardTransport {
+
+    private final Receiver[] receivers;
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    public LoopbackTransport(int shards) {
+        this.receivers = new Receiver[shards];
+    }
+
+    @Override
+    public void bind(int shard, Receiver receiver) {
+        receivers[shard] = receiver;
+    }
+
+    @Override
+    public void send(int toShard, byte[] message) {
+        final Receiver r = receivers[toShard];
+        if (r == null)
+            throw new RuntimeException("No shard bound at " + toShard);
+        bytesSent.addAndGet(message.length);
+        r.receive(message);
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+}
@@ -21,7 +21,6 @@ package nars.io;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.PrintWriter;
@@ -68,33 +67,6 @@ public class NARConsole {
         this.nar = n;
     }
 
-    private class InputThread extends Thread
-    {
-      private BufferedReader bufIn;
-      NAR nar;
-      InputThread(InputStream in, NAR nar)
-      {
-        this.bufIn = new BufferedReader(new InputStreamReader(in));
-        this.nar=nar;
-      }
-      public void run()
-      {
-        while(true)
-        {
-          try
-          {
-            String line=bufIn.readLine();
-            if(line!=null)
-                nar.addInput(line);
-          }catch(Exception ex){}
-          try
-          {
-            Thread.sleep(1);
-          }catch(Exception ex){}
-        }
-      }
-    }
-    
     /**
      * non-static equivalent to {@link #main(String[])} : finish to completion from
  an addInput file
@@ -103,7 +75,6 @@ public class NARConsole {
         TextOutput output = new TextOutput(nar, new PrintWriter(out, true));
         output.setErrors(true);
         output.setErrorStackTrace(true);
-        InputThread it;
         int sleep = -1;
         boolean noFile = false;
         
@@ -117,9 +88,8 @@ public class NARConsole {
             }
         }
         if(args.length == 0 || noFile) {   
-            it=new InputThread(System.in,nar);
-            it.start();
-            //nar.addInput(new TextInput(new BufferedReader(new InputStreamReader(System.in))));
+            //read on its own thread, so that waiting for a line does not stop the reasoner
+            nar.addInputPolled(new TextInput(new BufferedReader(new InputStreamReader(System.in))));
         }
                while (true) {
             if (logging)
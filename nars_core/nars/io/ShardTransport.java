@@ -0,0 +1,21 @@
+package nars.io;
+
+/**
+ * Carries encoded tasks between the shards of a sharded reasoner. An
+ * implementation may connect shards in one process (LoopbackTransport) or
+ * across processes; it only has to deliver each message to the receiver
+ * bound to the destination shard, in the order sent by each sender.
+ */
+public interface ShardTransport {
+
+    public interface Receiver {
+        /** called by the transport, possibly from another thread */
+        public void receive(byte[] message);
+    }
+
+    /** registers the receiver for a shard hosted in this process */
+    public void bind(int shard, Receiver receiver);
+
+    public void send(int toShard, byte[] message);
+
+}
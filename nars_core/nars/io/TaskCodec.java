@@ -0,0 +1,110 @@
+package nars.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import nars.entity.BudgetValue;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Narsese.InvalidInputException;
+
+/**
+ * Compact binary form of a Task: term, punctuation, truth, budget, stamp
+ * times and evidential base. Parent task, belief and cause are not encoded;
+ * a derived task is decoded as derived from a task that is no longer available.
+ * Used by InputJournal and by the shard transports.
+ */
+public class TaskCodec {
+
+    private static final int HAS_TRUTH = 1;
+    private static final int ANALYTIC = 2;
+    private static final int DERIVED = 4;
+
+    public static void write(final DataOutputStream out, final Task t) throws IOException {
+        final Sentence s = t.sentence;
+        out.writeUTF(s.term.toString());
+        out.writeChar(s.punctuation);
+
+        final TruthValue truth = s.truth;
+        int flags = 0;
+        if (truth != null) flags |= HAS_TRUTH;
+        if ((truth != null) && truth.getAnalytic()) flags |= ANALYTIC;
+        if (!t.isInput()) flags |= DERIVED;
+        out.writeByte(flags);
+        if (truth != null) {
+            out.writeFloat(truth.getFrequency());
+            out.writeFloat(truth.getConfidence());
+        }
+
+        out.writeFloat(t.budget.getPriority());
+        out.writeFloat(t.budget.getDurability());
+        out.writeFloat(t.budget.getQuality());
+
+        final Stamp stamp = s.stamp;
+        writeVarLong(out, zigzag(stamp.getCreationTime()));
+        writeVarLong(out, zigzag(stamp.getOccurrenceTime()));
+        writeVarLong(out, stamp.baseLength);
+        for (int i = 0; i < stamp.baseLength; i++)
+            writeVarLong(out, zigzag(stamp.evidentialBase[i]));
+    }
+
+    /** @param narsese parses the term in the receiving memory */
+    public static Task read(final DataInputStream in, final Narsese narsese) throws IOException, InvalidInputException {
+        final String term = in.readUTF();
+        final char punctuation = in.readChar();
+
+        TruthValue truth = null;
+        final int flags = in.readByte();
+        if ((flags & HAS_TRUTH) != 0) {
+            final float f = in.readFloat();
+            final float c = in.readFloat();
+            truth = new TruthValue(f, c, (flags & ANALYTIC) != 0);
+        }
+
+        final float p = in.readFloat();
+        final float d = in.readFloat();
+        final float q = in.readFloat();
+
+        final long creationTime = unzigzag(readVarLong(in));
+        final long occurrenceTime = unzigzag(readVarLong(in));
+        final long[] base = new long[(int) readVarLong(in)];
+        for (int i = 0; i < base.length; i++)
+            base[i] = unzigzag(readVarLong(in));
+
+        final Sentence s = new Sentence(narsese.parseTerm(term), punctuation, truth,
+                new Stamp(base, creationTime, occurrenceTime));
+        final BudgetValue b = new BudgetValue(p, d, q);
+        if ((flags & DERIVED) != 0)
+            return new Task(s, b, (Task) null, null);
+        return new Task(s, b);
+    }
+
+    static long zigzag(final long x) {
+        return (x << 1) ^ (x >> 63);
+    }
+
+    static long unzigzag(final long x) {
+        return (x >>> 1) ^ -(x & 1);
+    }
+
+    public static void writeVarLong(final DataOutputStream out, long x) throws IOException {
+        while ((x & ~0x7FL) != 0) {
+            out.writeByte((int) ((x & 0x7F) | 0x80));
+            x >>>= 7;
+        }
+        out.writeByte((int) x);
+    }
+
+    public static long readVarLong(final DataInputStream in) throws IOException {
+        long x = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readByte();
+            x |= ((long) (b & 0x7F)) << shift;
+            if ((b & 0x80) == 0)
+                return x;
+        }
+        throw new IOException("Malformed varlong");
+    }
+}
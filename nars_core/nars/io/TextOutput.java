@@ -27,6 +27,9 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import nars.util.Events.Answer;
 import nars.NAR;
 import nars.entity.Concept;
@@ -57,6 +60,10 @@ public class TextOutput extends Output {
     private boolean showStamp = true;
     private boolean showInput = true;
     private float minPriority = 0;
+    
+    /** when non-null, lines are written to outExp by a background thread instead of the reasoner thread */
+    private volatile AsyncWriter async;
+    private volatile long dropped;
 
     public interface LineOutput {
         public void println(String s);
@@ -110,8 +117,102 @@ public class TextOutput extends Output {
      * Close an output experience file
      */
     public void closeSaveFile() {
-        outExp.close();
         stop();
+        outExp.close();
+    }
+    
+    /**
+     * Moves writing and flushing of the PrintWriter off the reasoner thread.
+     * Lines are queued (lock-free) and written by a daemon thread, which
+     * flushes once per batch instead of once per line. At most 'capacity' lines
+     * are queued; once the queue is half full, tasks with priority below
+     * shedPriority are dropped, and when it is full everything is dropped until
+     * the writer catches up. A LineOutput is still called on the thread of the
+     * event, with every line, as it may not be thread-safe.
+     */
+    public TextOutput setAsync(int capacity, float shedPriority) {
+        final AsyncWriter previous = async;
+        async = new AsyncWriter(capacity, shedPriority);
+        if (previous != null)
+            previous.stop();
+        return this;
+    }
+    
+    /** number of lines not written to the PrintWriter because the async queue was backed up */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /** drains queued lines on a daemon thread */
+    private class AsyncWriter implements Runnable {
+        
+        private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int capacity;
+        private final float shedPriority;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        public AsyncWriter(int capacity, float shedPriority) {
+            this.capacity = capacity;
+            this.shedPriority = shedPriority;
+            thread = new Thread(this, "TextOutput writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        /** whether a signal of this priority should be dropped rather than formatted */
+        boolean shed(final Object o) {
+            final int n = size.get();
+            if (n >= capacity) {
+                dropped++;
+                return true;
+            }
+            if ((n >= capacity/2) && (o instanceof Task) && (((Task)o).getPriority() < shedPriority)) {
+                dropped++;
+                return true;
+            }
+            return false;
+        }
+
+        void add(final String s) {
+            queue.add(s);
+            if (size.getAndIncrement() == 0)
+                LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                drain();
+                LockSupport.parkNanos(this, 10 * 1000 * 1000);
+            }
+            drain();
+        }
+        
+        private void drain() {
+            String s;
+            boolean wrote = false;
+            final PrintWriter out = outExp;
+            while ((s = queue.poll()) != null) {
+                size.decrementAndGet();
+                if (out != null)
+                    out.println(s);
+                wrote = true;
+            }
+            if (wrote && (out != null))
+                out.flush();
+        }
+        
+        /** stops the writer after writing what is queued */
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+            }
+        }
     }
 
     /**
@@ -128,15 +229,27 @@ public class TextOutput extends Output {
             return;
         
         if ((outExp!=null) || (outExp2!=null)) {
-            Object o = oo[0];
+            final Object o = oo[0];
+            //read once, as stop() may clear it meanwhile
+            final AsyncWriter a = async;
+            final boolean toFile = (outExp != null) && ((a == null) || !a.shed(o));
+            if (!toFile && (outExp2 == null))
+                return;
+            
             final String s = process(channel, o);
             if (s!=null) {
-                if (outExp != null) {
-                    outExp.println(prefix + s);
-                    outExp.flush();
-                }
+                final String line = prefix + s;
                 if (outExp2 != null) {
-                    outExp2.println(prefix + s);            
+                    outExp2.println(line);
+                }
+                if (toFile) {
+                    if (a != null) {
+                        a.add(line);
+                    }
+                    else {
+                        outExp.println(line);
+                        outExp.flush();
+                    }
                 }
             }
         }
@@ -322,6 +435,11 @@ public class TextOutput extends Output {
     
     public void stop() {
         setActive(false);
+        final AsyncWriter a = async;
+        if (a != null) {
+            async = null;
+            a.stop();
+        }
     }
     
     /** generates a human-readable string from an output channel and signal */
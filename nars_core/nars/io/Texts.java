@@ -1,6 +1,5 @@
 package nars.io;
 
-import java.lang.reflect.Field;
 import java.nio.CharBuffer;
 import java.text.DecimalFormat;
 import java.text.Format;
@@ -50,28 +49,6 @@ public class Texts {
             escapeMapReverse.put(e.getValue(), e.getKey());
     }
 
-    public static final Field sbval;
-    public static final Field val;
-    
-    //Add reflection for String value access
-    static {
-        Field sv = null, sbv = null;
-        try {
-            sv = String.class.getDeclaredField("value"); 
-            //o = String.class.getDeclaredField("offset");
-            sbv = StringBuilder.class.getSuperclass().getDeclaredField("value");
-            
-            sv.setAccessible(true); 
-            sbv.setAccessible(true);
-            //o.setAccessible(true);         
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            System.exit(1);
-        }
-        val = sv;        
-        sbval = sbv;
-    }    
-    
 
     protected static StringBuilder escape(CharSequence s, boolean unescape, boolean useQuotes) {       
         StringBuilder b = new StringBuilder(s.length());
@@ -162,26 +139,18 @@ public class Texts {
     }    
 
     /**
-     * Warning: don't modify the return char[] because it will beinconsistent with s.hashCode()
-     * @param String to invade
-     * @return the private char[] field in String class
+     * The characters of a String, copied: its internal array is not accessible
+     * on current JDKs (and is not a char[] since Java 9)
      */
     public static char[] getCharArray(String s) {
-        try {
-            return (char[]) val.get(s);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
-        return null;
+        return s.toCharArray();
     }
 
+    /** The characters of a StringBuilder, copied */
     public static char[] getCharArray(StringBuilder s) {
-        try {
-            return (char[]) sbval.get(s);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
-        return null;
+        final char[] c = new char[s.length()];
+        s.getChars(0, c.length, c, 0);
+        return c;
     }
 
     /*
@@ -227,21 +196,6 @@ public class Texts {
         return cost[len0 - 1];
     }
 
-    /** Change the first min(|s|, |t|) characters of s to t
-    TODO must reset the hashcode field
-    TODO this is untested and probably not yet functional
-     */
-    public static void overwrite(String s, String t) {
-        try {
-            char[] value = (char[]) val.get(s);
-            for (int i = 0; i < Math.min(s.length(), t.length()); i++) {
-                value[i] = t.charAt(i);
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
-    }
-
     /** Half-way between a String and a Rope; concatenates a list of strings into an immutable CharSequence which is either:
      *  If a component is null, it is ignored.
      *  if total non-null components is 0, returns null
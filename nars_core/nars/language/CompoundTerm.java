@@ -71,7 +71,8 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
     transient private boolean hasVariables, hasVarQueries, hasVarIndeps, hasVarDeps;
     
     transient int containedTemporalRelations = -1;
-    int hash;
+    /** structural hash (see Parameters.TERM_ELEMENT_EQUIVALENCY), 0 until computed */
+    transient int hash;
     private boolean normalized;
     
 
@@ -124,6 +125,8 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
                 if (t instanceof CompoundTerm)
                     ((CompoundTerm)t).invalidateName();
         }     
+        //after the components, whose hashes it combines
+        this.hash = Parameters.TERM_ELEMENT_EQUIVALENCY ? makeHash() : 0;
         setNormalized(false);
     }
 
@@ -159,18 +162,23 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
     }
     
     static Interval conceptival = interval(1);
-    private static void ReplaceIntervals(CompoundTerm comp) {
+    /** @return whether an interval was replaced, so that the names of the enclosing terms are invalid */
+    private static boolean ReplaceIntervals(CompoundTerm comp) {
+        boolean replaced = false;
         for(int i=0; i<comp.term.length; i++) {
             Term t = comp.term[i];
             if(t instanceof Interval) {
                 comp.term[i] = conceptival;
-                comp.invalidateName();
+                replaced = true;
             }
             else
             if(t instanceof CompoundTerm) {
-                ReplaceIntervals((CompoundTerm) t);
+                replaced |= ReplaceIntervals((CompoundTerm) t);
             }
         }
+        if (replaced)
+            comp.invalidateName();
+        return replaced;
     }
     
     public static Term cloneDeepReplaceIntervals(Term T) {
@@ -194,6 +202,7 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
             vars.put(Symbols.VAR_INDEPENDENT+String.valueOf(i), new Variable(Symbols.VAR_DEPENDENT+String.valueOf(i)));
         }
         transformIndependentVariableToDependent(vars, T);
+        T.invalidateName();
         return T;
     }
 
@@ -866,39 +875,32 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
             return name().hashCode();
         }
         else {
+            if (hash == 0)
+                hash = makeHash();
             return hash;
         }
     }
 
+    /**
+     * Hash of the structure which determines the name: operator, temporal
+     * order and components. Atomic components contribute the hash of their
+     * name, as they are compared by name.
+     */
+    protected int makeHash() {
+        int h = 31 * operator().ordinal() + getTemporalOrder();
+        for (final Term t : term)
+            h = 31 * h + ((t instanceof CompoundTerm) ? t.hashCode() : t.name().hashCode());
+        return h;
+    }
+
     @Override
     public int compareTo(final AbstractTerm that) {
         if (that==this) return 0;
         
-        if (Parameters.TERM_ELEMENT_EQUIVALENCY) {
-            if (that instanceof CompoundTerm) {
-                CompoundTerm t = (CompoundTerm)that;
-
-                int h = Integer.compare(hashCode(), t.hashCode());
-                if (h != 0) return h;
-
-                int o = operator().compareTo(t.operator());
-                if (o != 0) return o;
-
-                //same operator
-                int c = Integer.compare(getComplexity(), t.getComplexity());
-                if (c!=0) return c;
-
-                //should almost never reach here, the hashcode above will handle > 99% of comparisons
-                if (!equals(that)) {
-                    return Integer.compare(System.identityHashCode(this), System.identityHashCode(that));
-                }
-                return 0;
-            }
-            else
-                return super.compareTo(that);
-        }
-        return
-                super.compareTo(that);
+        //by name in either mode: it orders the components of commutative terms, so determines their names
+        if (Parameters.TERM_ELEMENT_EQUIVALENCY && equals(that))
+            return 0;
+        return super.compareTo(that);
     }
     
     @Override
@@ -911,11 +913,22 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
         return name().equals(((Term)that).name());
     }
     
+    /**
+     * Equality of structure, which is equality of name: compound components
+     * are compared recursively and atomic ones by name.
+     */
     public boolean equalsByTerm(final Object that) {
         if (!(that instanceof CompoundTerm)) return false;
 
         final CompoundTerm t = (CompoundTerm)that;        
 
+        if (hashCode() != t.hashCode())
+            return false;
+
+        //an Operation is named differently from an Inheritance of the same components
+        if (getClass() != t.getClass())
+            return false;
+
         if (operator() != t.operator())
             return false;
 
@@ -932,7 +945,14 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
             return false;
 
         for (int i = 0; i < term.length; i++) {            
-            if (!term[i].equals(t.term[i]))
+            final Term a = term[i], b = t.term[i];
+            if (a == b)
+                continue;
+            if (a instanceof CompoundTerm) {
+                if (!((CompoundTerm)a).equalsByTerm(b))
+                    return false;
+            }
+            else if ((b instanceof CompoundTerm) || !a.name().equals(b.name()))
                 return false;
         }
 
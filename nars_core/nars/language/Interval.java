@@ -19,6 +19,7 @@ package nars.language;
 
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import nars.storage.Memory;
@@ -76,8 +77,14 @@ public class Interval extends Term {
         
     }
     
+    /** initial size of the pool of intervals, which grows to the largest magnitude requested */
     static final int INTERVAL_POOL_SIZE = 16;
-    static Interval[] INTERVAL = new Interval[INTERVAL_POOL_SIZE];
+    /** magnitudes beyond this are not pooled */
+    static final int INTERVAL_POOL_MAX = 4096;
+
+    /** canonical intervals by magnitude; replaced by a larger copy when it grows,
+     *  so that it can be read without locking by concurrent reasoners */
+    private static volatile Interval[] INTERVAL = newPool(new Interval[0], INTERVAL_POOL_SIZE);
     
     public static Interval interval(final String i) {
         return interval( Integer.parseInt(i.substring(1)) - 1);
@@ -92,17 +99,31 @@ public class Interval extends Term {
     }
     
     public static Interval interval(int magnitude) {
-        if (magnitude >= INTERVAL_POOL_SIZE)
-            return new Interval(magnitude, true);
-        else if (magnitude < 0)
+        if (magnitude < 0)
             magnitude = 0;
-            
-        Interval existing = INTERVAL[magnitude];
-        if (existing == null) {
-            existing = new Interval(magnitude, true);
-            INTERVAL[magnitude] = existing;
+
+        Interval[] pool = INTERVAL;
+        if (magnitude >= pool.length) {
+            if (magnitude >= INTERVAL_POOL_MAX)
+                return new Interval(magnitude, true);
+            pool = grow(magnitude);
         }
-        return existing;            
+        return pool[magnitude];
+    }
+
+    private static synchronized Interval[] grow(final int magnitude) {
+        Interval[] pool = INTERVAL;
+        if (magnitude >= pool.length)
+            INTERVAL = pool = newPool(pool, Math.min(INTERVAL_POOL_MAX, Math.max(magnitude + 1, pool.length * 2)));
+        return pool;
+    }
+
+    /** a copy of the pool extended to size, with the new intervals made in advance */
+    private static Interval[] newPool(final Interval[] pool, final int size) {
+        final Interval[] p = Arrays.copyOf(pool, size);
+        for (int m = pool.length; m < size; m++)
+            p[m] = new Interval(m, true);
+        return p;
     }
     
     
@@ -21,9 +21,8 @@
 package nars.language;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import nars.storage.Memory;
 import nars.config.Parameters;
 import nars.inference.TemporalRules;
@@ -42,7 +41,8 @@ import nars.operator.Operator;
  * exists. Multiple objects may represent the same Term.
  */
 public class Term implements AbstractTerm {
-    private static final Map<CharSequence,Term> atoms = new HashMap();
+    /** shared by the reasoners of a JVM, which may run on different threads */
+    private static final ConcurrentHashMap<CharSequence,Term> atoms = new ConcurrentHashMap();
 
     final public static Term SELF = Term.get("SELF");
 
@@ -101,8 +101,8 @@ public class Term implements AbstractTerm {
         Term x = atoms.get(name);
         if (x != null) return x;
         x = new Term(name);
-        atoms.put(name, x);
-        return x;
+        final Term existing = atoms.putIfAbsent(name, x);
+        return (existing != null) ? existing : x;
     }
     
     /** gets the atomic term of an integer */
@@ -261,25 +261,12 @@ public class Term implements AbstractTerm {
     public int compareTo(final AbstractTerm that) {
         if (that==this) return 0;
         
-        if (Parameters.TERM_ELEMENT_EQUIVALENCY) {
-            if (!getClass().equals(that.getClass())) {
-                //differnt class, use class as ordering
-                return getClass().getSimpleName().compareTo(that.getClass().getSimpleName());
-            }
-            else {
-                //same class, compare by name()
-                return Texts.compareTo(name(), that.name());
-            }
-
-        }
-        else {
-            //previously: Orders among terms: variable < atomic < compound
-            if ((that instanceof Variable) && (getClass()!=Variable.class))
-                return 1;
-            else if ((this instanceof Variable) && (that.getClass()!=Variable.class))
-                return -1;
-            return Texts.compareTo(name(), that.name());            
-        }
+        //previously: Orders among terms: variable < atomic < compound
+        if ((that instanceof Variable) && (getClass()!=Variable.class))
+            return 1;
+        else if ((this instanceof Variable) && (that.getClass()!=Variable.class))
+            return -1;
+        return Texts.compareTo(name(), that.name());            
     }
 
     
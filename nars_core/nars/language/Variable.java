@@ -21,7 +21,7 @@
 package nars.language;
 
 import java.nio.CharBuffer;
-import nars.config.Parameters;
+import java.util.Arrays;
 import static nars.io.Symbols.VAR_DEPENDENT;
 import static nars.io.Symbols.VAR_INDEPENDENT;
 import static nars.io.Symbols.VAR_QUERY;
@@ -133,17 +133,12 @@ public class Variable extends Term {
         if (that == this) return true;
         if (!(that instanceof Variable)) return false;
                 
-        if (Parameters.TERM_ELEMENT_EQUIVALENCY) {
-            return equalsTerm(that);
-        }
-        else {
-            Variable v = (Variable)that;
-            if (!name().equals(v.name())) return false;
-            if (getScope() == this) {
-                if (v.getScope()!=v) return false;
-            }
-            return (v.getScope().name().equals(getScope().name()));
+        Variable v = (Variable)that;
+        if (!name().equals(v.name())) return false;
+        if (getScope() == this) {
+            if (v.getScope()!=v) return false;
         }
+        return (v.getScope().name().equals(getScope().name()));
     }
     
     public boolean equalsTerm(Object that) {
@@ -248,17 +243,20 @@ public class Variable extends Term {
         return (c == VAR_QUERY) || (c == VAR_DEPENDENT) || (c == VAR_INDEPENDENT);
     }
     
-    private static final int MAX_CACHED_VARNAME_INDEXES = 64;
-    private static final CharSequence[] vn1 = new CharSequence[MAX_CACHED_VARNAME_INDEXES];
-    private static final CharSequence[] vn2 = new CharSequence[MAX_CACHED_VARNAME_INDEXES];
-    private static final CharSequence[] vn3 = new CharSequence[MAX_CACHED_VARNAME_INDEXES];
+    /** initial number of names of each type in the pool, which grows to the largest index requested */
+    private static final int VARNAME_POOL_SIZE = 64;
+    /** indexes beyond this are not pooled */
+    private static final int VARNAME_POOL_MAX = 4096;
+
+    /** canonical names of normalized variables ($1, #1, ?1 ...) by type and index;
+     *  each is replaced by a larger copy when it grows, so that it can be read
+     *  without locking by concurrent reasoners */
+    private static volatile CharSequence[] vn1 = newNames(VAR_INDEPENDENT, new CharSequence[0], VARNAME_POOL_SIZE);
+    private static volatile CharSequence[] vn2 = newNames(VAR_DEPENDENT, new CharSequence[0], VARNAME_POOL_SIZE);
+    private static volatile CharSequence[] vn3 = newNames(VAR_QUERY, new CharSequence[0], VARNAME_POOL_SIZE);
     
     
-    public static CharSequence getName(char type, int index) {
-        if (index > MAX_CACHED_VARNAME_INDEXES)
-            return newName(type, index);
-        
-        
+    public static CharSequence getName(final char type, final int index) {
         CharSequence[] cache;
         switch (type) {
             case VAR_INDEPENDENT: cache = vn1; break;
@@ -268,18 +266,39 @@ public class Variable extends Term {
                 throw new RuntimeException("Invalid variable type");
         }
         
-        CharSequence c = cache[index];
-        if (c == null) {
-            c = newName(type, index);
-            cache[index] = c;
+        if (index >= cache.length) {
+            if ((index < 0) || (index >= VARNAME_POOL_MAX))
+                return newName(type, index);
+            cache = growNames(type, index);
         }
-            
-        return c;
+        return cache[index];
+    }
+
+    private static synchronized CharSequence[] growNames(final char type, final int index) {
+        CharSequence[] cache = (type == VAR_INDEPENDENT) ? vn1 : ((type == VAR_DEPENDENT) ? vn2 : vn3);
+        if (index < cache.length)
+            return cache;
+        cache = newNames(type, cache, Math.min(VARNAME_POOL_MAX, Math.max(index + 1, cache.length * 2)));
+        switch (type) {
+            case VAR_INDEPENDENT: vn1 = cache; break;
+            case VAR_DEPENDENT: vn2 = cache; break;
+            default: vn3 = cache; break;
+        }
+        return cache;
+    }
+
+    /** a copy of the names extended to size, with the new names made in advance */
+    private static CharSequence[] newNames(final char type, final CharSequence[] names, final int size) {
+        final CharSequence[] n = Arrays.copyOf(names, size);
+        for (int i = names.length; i < size; i++)
+            n[i] = newName(type, i);
+        return n;
     }
     
     protected static CharSequence newName(char type, int index) {
         
-        int digits = (index >= 256 ? 3 : ((index >= 16) ? 2 : 1));
+        int digits = 1;
+        for (int i = index; (i >>>= 4) != 0; ) digits++;
         CharBuffer cb  = CharBuffer.allocate(1 + digits).append(type);
         do {
             cb.append(  Character.forDigit(index % 16, 16) ); index /= 16;
@@ -301,8 +301,8 @@ public class Variables {
 //    }
 
     public static Variable makeCommonVariable(final Term v1, final Term v2) {
-        //TODO use more efficient string construction
-        return new Variable(v1.toString() + v2.toString() + '$');
+        final CharSequence n1 = v1.name(), n2 = v2.name();
+        return new Variable(new StringBuilder(n1.length() + n2.length() + 1).append(n1).append(n2).append('$').toString());
     }
 
 //    public static boolean containVarDepOrIndep(final CharSequence n) {
@@ -54,6 +54,8 @@ public class Consider extends Operator {
         Term term = args[0];
         
         Concept concept = memory.conceptualize(Consider.budgetMentalConcept(operation), term);
+        if (concept == null)
+            return null; //an interval, or owned by another shard
         
         new FireConcept(memory, concept, 1) {
 
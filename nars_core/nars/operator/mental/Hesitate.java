@@ -47,6 +47,8 @@ public class Hesitate extends Operator {
     protected ArrayList<Task> execute(Operation operation, Term[] args, Memory memory) {
         Term term = args[0];
         Concept concept = memory.conceptualize(Consider.budgetMentalConcept(operation), term);
+        if (concept == null)
+            return null; //an interval, or owned by another shard
         concept.discountConfidence(false);
         return null;
     }
@@ -49,6 +49,8 @@ public class Remind extends Operator {
     protected ArrayList<Task> execute(Operation operation, Term[] args, Memory memory) {
         Term term = args[0];
         Concept concept = memory.conceptualize(Consider.budgetMentalConcept(operation), term);
+        if (concept == null)
+            return null; //an interval, or owned by another shard
         BudgetValue budget = new BudgetValue(Parameters.DEFAULT_QUESTION_PRIORITY, Parameters.DEFAULT_QUESTION_DURABILITY, 1);
         memory.concepts.activate(concept, budget, Activating.TaskLink);
         return null;
@@ -3,6 +3,7 @@ package nars.storage;
 import java.util.Iterator;
 import java.util.Set;
 import nars.config.Parameters;
+import nars.config.RuntimeParameters.Forgetting;
 import nars.entity.Item;
 
 
@@ -13,6 +14,14 @@ public abstract class Bag<E extends Item<K>,K> implements Iterable<E> {
         return i;
     }
 
+    /** a bag of the given type; levels only apply to LevelBag */
+    public static <E extends Item<K>,K> Bag<E,K> newBag(final Parameters.BagType type, final int levels, final int capacity) {
+        switch (type) {
+            case SumTree: return new SumTreeBag<>(capacity);
+            default: return new LevelBag<>(levels, capacity);
+        }
+    }
+
     public abstract void clear();   
 
     /**
@@ -49,6 +58,41 @@ public abstract class Bag<E extends Item<K>,K> implements Iterable<E> {
     abstract public E takeNext();
     
 
+    /**
+     * Choose an Item and take it out of the Bag, as takeNext(). With lazy
+     * forgetting, which otherwise decays an item only when it is put back, the
+     * item is first decayed to the current time: if it then ranks lower than it
+     * was selected at, it is filed where it ranks now and another is chosen, up
+     * to LAZY_RESELECTIONS times, so that an item which was not taken for long
+     * is not chosen at a priority it no longer has. Putting it back then decays
+     * it no further.
+     *
+     * @param forgetCycles forgetting time in cycles, as for putBack
+     * @return The selected Item, or null if this bag is empty
+     */
+    public E takeNext(final float forgetCycles, final Memory m) {
+        if (m.param.forgetting != Forgetting.Lazy)
+            return takeNext();
+        for (int i = 0; ; i++) {
+            final E x = takeNext();
+            if (x == null)
+                return null;
+            final float selected = x.getPriority();
+            m.forget(x, getForgetCycles(forgetCycles, x), Parameters.FORGET_QUALITY_RELATIVE);
+            if ((i == LAZY_RESELECTIONS) || ranksAsSelected(selected, x.getPriority()))
+                return x;
+            addItem(x);
+        }
+    }
+
+    /** how many times takeNext(forgetCycles, m) chooses again an item which lazy forgetting ranks lower */
+    public static final int LAZY_RESELECTIONS = 4;
+
+    /** whether an item chosen at the priority selected would also be chosen at the lower priority decayed */
+    protected boolean ranksAsSelected(final float selected, final float decayed) {
+        return decayed >= selected;
+    }
+
     /** gets the next value without removing changing it or removing it from any index.  however
      the bag is cycled so that subsequent elements are different. */    
     abstract public E peekNext();
@@ -151,7 +195,7 @@ public abstract class Bag<E extends Item<K>,K> implements Iterable<E> {
      */
     public E processNext(final float forgetCycles, final Memory m) {
                 
-        final E x = takeNext();
+        final E x = takeNext(forgetCycles, m);
         if (x == null)
             return null;
         
@@ -0,0 +1,28 @@
+package nars.storage;
+
+import nars.entity.Concept;
+
+/**
+ * Keeps the state of concepts which are not in the concept bag. WorkingCycle
+ * hands it each concept removed from the bag, and asks it to restore the
+ * state of a concept it creates for a term, so that only the working set of
+ * concepts is held as objects.
+ */
+public interface ConceptStore {
+
+    /** a concept has been removed from the concept bag */
+    public void forgotten(Concept c);
+
+    /**
+     * Fills in the stored state of a concept which was just created, with the
+     * budget of the activation which created it.
+     *
+     * @return whether the stored budget replaced that one, which WorkingCycle
+     * then activates with it
+     */
+    public boolean restore(Concept c);
+
+    /** the memory was reset; a store may discard what it holds */
+    public void reset();
+
+}
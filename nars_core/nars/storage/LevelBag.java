@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -33,7 +34,19 @@ import nars.entity.Item;
 
 /**
  * Original Bag implementation which distributes items into
- * discrete levels (queues) according to priority
+ * discrete levels (queues) according to priority.
+ *
+ * Small bags are kept compact: up to Parameters.BAG_COMPACT_SIZE items are
+ * stored inline in an insertion-ordered array, together with the level each
+ * was put in, and the name table and level queues are not allocated. Once the
+ * bag grows past that size it is promoted to the full representation. Both
+ * representations take items out in the same order.
+ *
+ * A full bag also keeps a histogram of its items' priorities, updated as
+ * items enter and leave their level, so that statistics do not scan all
+ * items. Like the level, the bin of an item is that of the priority it was
+ * put in with; the level records it, so that the same bin is decremented when
+ * the item leaves, even if its budget was changed in place meanwhile.
  */
 public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
 
@@ -52,15 +65,36 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
     final short[] DISTRIBUTOR;
 
     /**
-     * mapping from key to item
+     * mapping from key to item; null while the bag is compact
      */
     //public final Set<E> nameTable;
-    public final Map<K, E> nameTable;
+    public Map<K, E> nameTable;
+
+    /**
+     * array of lists of items, for items on different level; null while the bag is compact
+     */
+    public Level<E>[] level;
+
+    /**
+     * items of a compact bag, in insertion order; null until the first item is added
+     */
+    private E[] compactItems;
+    /**
+     * the level each compact item was put in
+     */
+    private short[] compactLevels;
+    private int compactSize;
+    /**
+     * largest number of items kept compact
+     */
+    private final int compactCapacity;
 
     /**
-     * array of lists of items, for items on different level
+     * number of items in each priority bin (see Bag.bin), with
+     * Parameters.BAG_HISTOGRAM_BINS bins, by the priority they were put in
+     * with; null while the bag is compact
      */
-    public final Level<E>[] level;
+    private int[] histogram;
 
     /**
      * defined in different bags
@@ -95,8 +129,7 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         this.fireCompleteLevelThreshold = thresholdLevel;
         //THRESHOLD = levels + 1; //fair/flat takeOut policy
         this.capacity = capacity;
-        nameTable = new HashMap<>(capacity);
-        level = new Level[this.levels];
+        this.compactCapacity = Math.min(capacity, Parameters.BAG_COMPACT_SIZE);
         levelEmpty = new boolean[this.levels];
         Arrays.fill(levelEmpty, true);
         DISTRIBUTOR = Distributor.get(this.levels).order;
@@ -104,21 +137,22 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         clear();
     }
 
-    public class Level<E> implements Iterable<E> {
+    public class Level<E extends Item> implements Iterable<E> {
         private final int thisLevel;
         
         //Deque<E> items;
-        LinkedHashSet<E> items;
+        /** the items, in FIFO order, with the histogram bin each was counted in */
+        LinkedHashMap<E,Byte> items;
                 
         public Level(int level, int numElements) {
             super();
-            items = new LinkedHashSet(numElements);
+            items = new LinkedHashMap(numElements);
             this.thisLevel = level;
         }
 
         @Override
         public Iterator<E> iterator() {
-            return items.iterator();
+            return items.keySet().iterator();
         }
         
         public int size() { return items.size(); }
@@ -129,6 +163,8 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         }
         
         public void clear() {
+            for (final Byte b : items.values())
+                histogram[b]--;
             items.clear();
             levelIsEmpty(true);
         }
@@ -137,15 +173,19 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
            if (e == null)
                throw new RuntimeException("Bag requires non-null items");
            
-            if (items.add(e)) {
-                levelIsEmpty(false);
-                return true;
-            }
-            return false;
+            if (items.containsKey(e))
+                return false;
+            final int b = bin(e.getPriority(), histogram.length - 1);
+            items.put(e, (byte) b);
+            histogram[b]++;
+            levelIsEmpty(false);
+            return true;
         }
 
         public boolean remove(E o) {
-            if (items.remove(o)) {
+            final Byte b = items.remove(o);
+            if (b != null) {
+                histogram[b]--;
                 levelIsEmpty(items.isEmpty());
                 return true;
             }
@@ -153,20 +193,17 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         }
 
         public E removeFirst() {
-            E e = items.iterator().next();
-            items.remove(e);
-            if (e!=null) {
-                levelIsEmpty(items.isEmpty());
-            }
+            E e = peekFirst();
+            remove(e);
             return e;
         }
 
         public E peekFirst() {
-            return items.iterator().next();
+            return items.keySet().iterator().next();
         }
 
         public Iterator<E> descendingIterator() {
-            return items.iterator();
+            return iterator();
             //return items.descendingIterator();
         }
     }
@@ -175,14 +212,99 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         return new Level(l, 1 + capacity / levels);
     }
     
+    /** whether the items are stored in the name table and level queues */
+    public boolean isCompact() {
+        return nameTable == null;
+    }
+
+    /** moves the compact items into a new name table and level queues, keeping their FIFO order */
+    protected void promote() {
+        nameTable = new HashMap<>(capacity);
+        level = new Level[levels];
+        histogram = new int[Parameters.BAG_HISTOGRAM_BINS];
+        for (int i = 0; i < compactSize; i++) {
+            final E e = compactItems[i];
+            final int l = compactLevels[i];
+            ensureLevelExists(l);
+            level[l].add(e);
+            nameTable.put(e.name(), e);
+        }
+        compactItems = null;
+        compactLevels = null;
+        compactSize = 0;
+    }
+
+    /** index of the compact item with the given key, or -1 */
+    private int compactIndexOf(final K key) {
+        for (int i = 0; i < compactSize; i++) {
+            if (compactItems[i].name().equals(key))
+                return i;
+        }
+        return -1;
+    }
+
+    /** index of the oldest compact item in a level, or -1 */
+    private int compactFirst(final int level) {
+        for (int i = 0; i < compactSize; i++) {
+            if (compactLevels[i] == level)
+                return i;
+        }
+        return -1;
+    }
+
+    private int compactCount(final int level) {
+        int n = 0;
+        for (int i = 0; i < compactSize; i++) {
+            if (compactLevels[i] == level)
+                n++;
+        }
+        return n;
+    }
+
+    private void compactAdd(final E e, final int level) {
+        if (e == null)
+            throw new RuntimeException("Bag requires non-null items");
+        if (compactItems == null) {
+            compactItems = (E[]) new Item[compactCapacity];
+            compactLevels = new short[compactCapacity];
+        }
+        compactItems[compactSize] = e;
+        compactLevels[compactSize] = (short) level;
+        compactSize++;
+        levelEmpty[level] = false;
+    }
+
+    private E compactRemove(final int i) {
+        final E e = compactItems[i];
+        final int l = compactLevels[i];
+        final int tail = compactSize - i - 1;
+        System.arraycopy(compactItems, i + 1, compactItems, i, tail);
+        System.arraycopy(compactLevels, i + 1, compactLevels, i, tail);
+        compactItems[--compactSize] = null;
+        levelEmpty[l] = (compactFirst(l) == -1);
+        return e;
+    }
+
+    /** items of one level, oldest first */
+    private Collection<E> compactLevel(final int level) {
+        final java.util.List<E> l = new java.util.ArrayList(compactSize);
+        for (int i = 0; i < compactSize; i++) {
+            if (compactLevels[i] == level)
+                l.add(compactItems[i]);
+        }
+        return l;
+    }
+
     @Override
     public final void clear() {
-        for (int i = 0; i < levels; i++) {
-            if (level[i] != null) {
-                level[i].clear();
-            }
-        }
-        nameTable.clear();
+        //release the full representation; it is rebuilt when the bag grows again
+        nameTable = null;
+        level = null;
+        histogram = null;
+        if (compactItems != null)
+            Arrays.fill(compactItems, null);
+        compactSize = 0;
+        Arrays.fill(levelEmpty, true);
         currentLevel = levels - 1;
         levelIndex = capacity % levels; // so that different bags start at different point
         mass = 0;
@@ -196,6 +318,8 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
      */
     @Override
     public int size() {
+        if (isCompact())
+            return compactSize;
         int in = nameTable.size();
         if (Parameters.DEBUG_BAG && (Parameters.DEBUG)) {
             int is = sizeItems();
@@ -208,6 +332,8 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         
     /** this should always equal size(), but it's here for testing purposes */
     protected int sizeItems() {
+        if (isCompact())
+            return compactSize;
         int t = 0;
         for (Level<E> l : level) {
             if (l!=null)
@@ -218,6 +344,12 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
     
     @Override
     public Set<K> keySet() {
+        if (isCompact()) {
+            final Set<K> keys = new LinkedHashSet(compactSize);
+            for (int i = 0; i < compactSize; i++)
+                keys.add(compactItems[i].name());
+            return keys;
+        }
         return nameTable.keySet();
     }
 
@@ -246,6 +378,10 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
      */
     @Override
     public E get(final K key) {
+        if (isCompact()) {
+            final int i = compactIndexOf(key);
+            return (i == -1) ? null : compactItems[i];
+        }
         return nameTable.get(key);
     }
 
@@ -278,6 +414,8 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         if (levelEmpty[currentLevel] || (currentCounter == 0)) { // done with the current level
             nextNonEmptyLevel();
         }
+        if (isCompact())
+            return compactItems[compactFirst(currentLevel)];
         return level[currentLevel].peekFirst();        
     }
     
@@ -298,13 +436,23 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
     }
 
     public int getNonEmptyLevelSize(final int level) {
+        if (isCompact())
+            return compactCount(level);
         return this.level[level].size();
     }
     public int getLevelSize(final int level) {
-        return (levelEmpty[level]) ? 0 : this.level[level].size();
+        return (levelEmpty[level]) ? 0 : getNonEmptyLevelSize(level);
     }
 
     @Override public E take(final K name) {
+        if (isCompact()) {
+            final int i = compactIndexOf(name);
+            if (i == -1)
+                return null;
+            final E oldItem = compactRemove(i);
+            removeMass(oldItem);
+            return oldItem;
+        }
         E oldItem = nameTable.remove(name);
         if (oldItem == null) {
             return null;
@@ -337,6 +485,11 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         return oldItem;
     }
 
+    /** chosen again only if it falls to a lower level */
+    @Override protected boolean ranksAsSelected(final float selected, final float decayed) {
+        return getLevel(decayed) == getLevel(selected);
+    }
+
     /**
      * Decide the put-in level according to priority
      *
@@ -344,7 +497,11 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
      * @return The put-in level
      */
     private int getLevel(final E item) {
-        final float fl = item.getPriority() * levels;
+        return getLevel(item.getPriority());
+    }
+
+    private int getLevel(final float priority) {
+        final float fl = priority * levels;
         final int level = (int) Math.ceil(fl) - 1;
         if (level < 0) return 0;
         if (level >= levels) return levels-1;
@@ -372,6 +529,14 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
                 oldItem = takeOutFirst(outLevel);
             }
         }
+        if (isCompact()) {
+            if (compactSize < compactCapacity) {
+                compactAdd(newItem, inLevel);
+                addMass(newItem);
+                return oldItem;
+            }
+            promote();
+        }
         ensureLevelExists(inLevel);
         level[inLevel].add(newItem);        // FIFO
         nameTable.put(newItem.name(), newItem);        
@@ -392,6 +557,14 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
      * @return The first Item
      */
     private E takeOutFirst(final int level) {
+        if (isCompact()) {
+            final int i = compactFirst(level);
+            if (i == -1)
+                throw new RuntimeException("Attempt to remove item from empty level: " + level);
+            final E selected = compactRemove(i);
+            removeMass(selected);
+            return selected;
+        }
         final E selected = this.level[level].removeFirst();
         if (selected!=null) {
             nameTable.remove(selected.name());
@@ -421,7 +594,7 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         for (int i = levels; i >= minLevel; i--) {
             if (!levelEmpty[i - 1]) {
                 buf = buf.append("\n --- LEVEL ").append(i).append(":\n ");
-                for (final E e : level[i - 1]) {
+                for (final E e : getLevel(i - 1)) {
                     buf = buf.append(e.toStringLong()).append('\n');
                 }
 
@@ -437,9 +610,9 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
     public String showSizes() {
         StringBuilder buf = new StringBuilder(" ");
         int l = 0;
-        for (Level<E> items : level) {
-            int s = items.size();
-            if ((items != null) && (s > 0)) {
+        for (int i = 0; i < levels; i++) {
+            int s = getLevelSize(i);
+            if (s > 0) {
                 l++;
                 buf.append(s).append(' ');
             }
@@ -478,12 +651,68 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         return min;
     }
 
+    /** lowest priority in the lowest non-empty level */
+    @Override
+    public float getMinPriority() {
+        if (isCompact())
+            return super.getMinPriority();
+        float min = 1.0f;
+        for (int l = 0; l < levels; l++) {
+            if (!levelEmpty[l]) {
+                for (final E e : level[l]) {
+                    final float p = e.getPriority();
+                    if (p < min) min = p;
+                }
+                break;
+            }
+        }
+        return min;
+    }
+
+    /** highest priority in the highest non-empty level */
+    @Override
+    public float getMaxPriority() {
+        if (isCompact())
+            return super.getMaxPriority();
+        float max = 0.0f;
+        for (int l = levels - 1; l >= 0; l--) {
+            if (!levelEmpty[l]) {
+                for (final E e : level[l]) {
+                    final float p = e.getPriority();
+                    if (p > max) max = p;
+                }
+                break;
+            }
+        }
+        return max;
+    }
+
+    /** read from the histogram when x has Parameters.BAG_HISTOGRAM_BINS bins */
+    @Override
+    public double[] getPriorityDistribution(final double[] x) {
+        if ((histogram == null) || (x.length != histogram.length))
+            return super.getPriorityDistribution(x);
+        int total = 0;
+        for (int i = 0; i < x.length; i++) {
+            x[i] += histogram[i];
+            total += histogram[i];
+        }
+        if (total > 0) {
+            for (int i = 0; i < x.length; i++)
+                x[i] /= total;
+        }
+        return x;
+    }
+
     @Override
     public int getCapacity() {
         return capacity;
     }
 
     public Iterable<E> getLevel(final int i) {
+        if (isCompact()) {
+            return compactLevel(i);
+        }
         if (level[i] == null) {
             return Collections.EMPTY_LIST;
         }
@@ -492,11 +721,43 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
 
     @Override
     public Collection<E> values() {
+        if (isCompact()) {
+            if (compactSize == 0)
+                return Collections.EMPTY_LIST;
+            return Collections.unmodifiableList(Arrays.asList(compactItems).subList(0, compactSize));
+        }
         return nameTable.values();
     }
 
+    /**
+     * Estimated heap footprint in bytes, assuming compressed references:
+     * object headers, arrays, and the name table and level queue entries.
+     * Items themselves are not counted.
+     */
+    public long getFootprint() {
+        long b = 64 + 16 + levels + 16 + (2 * levels); //this, levelEmpty, DISTRIBUTOR (shared)
+        if (isCompact()) {
+            if (compactItems != null)
+                b += 16 + 4 * compactCapacity + 16 + 2 * compactCapacity;
+            return b;
+        }
+        //HashMap: object, table, one node per entry
+        b += 48 + 16 + 4 * Integer.highestOneBit(Math.max(1, (int)(capacity / 0.75f)) * 2 - 1) + 32 * nameTable.size();
+        b += 16 + 4 * levels;
+        b += 16 + 4 * histogram.length;
+        for (final Level<E> l : level) {
+            if (l == null) continue;
+            //Level, LinkedHashMap, table, one entry per item
+            b += 24 + 56 + 16 + 4 * Integer.highestOneBit(Math.max(1, (int)((1 + capacity / levels) / 0.75f)) * 2 - 1) + 40 * l.size();
+        }
+        return b;
+    }
+
     @Override
     public Iterator<E> iterator() {
+        if (isCompact()) {
+            return compactIterator();
+        }
         return new Iterator<E>() {
             int l = level.length - 1;
             private Iterator<E> levelIterator;
@@ -539,9 +800,31 @@ public class LevelBag<E extends Item<K>,K> extends Bag<E,K> {
         };
     }
 
+    /**
+     * same order as the full iterator: highest level first, oldest first within
+     * a level; over a snapshot, since a removal shifts the compact items
+     */
+    private Iterator<E> compactIterator() {
+        final int n = compactSize;
+        final E[] sorted = (E[]) new Item[n];
+        final short[] sortedLevels = new short[n];
+        //insertion sort of the few items, stable, so oldest first within a level
+        for (int i = 0; i < n; i++) {
+            final short l = compactLevels[i];
+            int j = i;
+            for (; (j > 0) && (sortedLevels[j - 1] < l); j--) {
+                sorted[j] = sorted[j - 1];
+                sortedLevels[j] = sortedLevels[j - 1];
+            }
+            sorted[j] = compactItems[i];
+            sortedLevels[j] = l;
+        }
+        return Arrays.asList(sorted).iterator();
+    }
+
     public int numEmptyLevels() {
         int empty = 0;
-        for (int i = 0; i < level.length; i++) {
+        for (int i = 0; i < levels; i++) {
             if (levelEmpty[i]) {
                 empty++;
             }
@@ -0,0 +1,359 @@
+package nars.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.io.Output.ERR;
+import nars.io.TaskCodec;
+import nars.util.Events.ConceptBeliefAdd;
+
+/**
+ * Persistent store of eternal beliefs in a memory-mapped file which is only
+ * appended to. Every eternal belief added to a concept is written as a record
+ * of its term and task, and a concept created for a term gets the beliefs
+ * recorded for it. Opening the file only reads the record headers to index
+ * them by the hash of their term, so a large store opens quickly, and its
+ * beliefs are read when their concepts are first used.
+ *
+ * The file header holds the end of the records written completely. Records
+ * after it are checked against their checksum when the file is opened, and
+ * writing continues before the first one which is incomplete, so a crash
+ * loses at most the belief being written. The file grows by regions which are
+ * mapped separately; a record does not span two regions.
+ *
+ * Records are never removed, so the file grows with revisions, but a concept
+ * which is restored only reads the newest CONCEPT_BELIEFS_MAX records of its
+ * term, which compete for its belief table in the order they were added. The
+ * store keeps no budgets, so a restored concept keeps the one it was created
+ * with.
+ */
+public class MappedBeliefStore implements ConceptStore, Closeable {
+
+    public static final int MAGIC = 0x4e415242; //"NARB"
+    public static final int VERSION = 1;
+    /** default size of a mapped region, in bytes */
+    public static final int REGION_SIZE = 1 << 26;
+
+    /** magic, version, end of complete records */
+    static final int HEADER = 16;
+    /** payload length, term hash, payload checksum */
+    static final int RECORD_HEADER = 12;
+    /** length of a record meaning the rest of the region is unused */
+    static final int PAD = -1;
+
+    private final Memory memory;
+    private final Narsese narsese;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList();
+    /** where the next record is written */
+    private long end;
+
+    /** offset and term hash of each record, in the order written */
+    private long[] offsets = new long[1024];
+    private int[] hashes = new int[1024];
+    /** index + 1 of the previous record in the same bucket */
+    private int[] chain = new int[1024];
+    /** index + 1 of the latest record in each bucket */
+    private int[] buckets = new int[1024];
+    private int records;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+
+    /** whether onBelief is registered */
+    private boolean recording;
+    private final ConceptBeliefAdd onBelief = new ConceptBeliefAdd() {
+        @Override public void onBeliefAdd(final Concept c, final Task t, final Object[] extra) {
+            if (t.sentence.isEternal())
+                add(t);
+        }
+    };
+
+    public MappedBeliefStore(final Memory memory, final File f) throws IOException {
+        this(memory, f, REGION_SIZE);
+    }
+
+    public MappedBeliefStore(final Memory memory, final File f, final int regionSize) throws IOException {
+        this.memory = memory;
+        this.narsese = new Narsese(memory);
+        this.regionSize = regionSize;
+        final boolean created = !f.exists() || (f.length() == 0);
+        this.file = new RandomAccessFile(f, "rw");
+        this.channel = file.getChannel();
+        try {
+            if (created) {
+                final ByteBuffer header = region(0);
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(8, HEADER);
+                end = HEADER;
+            } else {
+                for (long r = 0; r * regionSize < f.length(); r++)
+                    region((int) r);
+                final ByteBuffer header = region(0);
+                if (header.getInt(0) != MAGIC)
+                    throw new IOException(f + " is not a belief store");
+                if (header.getInt(4) != VERSION)
+                    throw new IOException("Unsupported belief store version " + header.getInt(4));
+                scan(header.getLong(8));
+                header.putLong(8, end);
+            }
+        } catch (IOException e) {
+            channel.close();
+            file.close();
+            throw e;
+        }
+    }
+
+    /** opens a store as the concept store of a reasoner, and records the eternal beliefs it adds */
+    public static MappedBeliefStore open(final NAR n, final File f) throws IOException {
+        final MappedBeliefStore s = new MappedBeliefStore(n.memory, f);
+        n.memory.concepts.setStore(s);
+        n.memory.event.on(ConceptBeliefAdd.class, s.onBelief);
+        s.recording = true;
+        return s;
+    }
+
+    /** indexes the records from the header to the end of the last complete one */
+    private void scan(final long committed) {
+        long pos = HEADER;
+        while (true) {
+            final int r = (int) (pos / regionSize);
+            final int offset = (int) (pos % regionSize);
+            if (r >= regions.size())
+                break;
+            if (regionSize - offset < 4) {
+                pos = (r + 1) * (long) regionSize;
+                continue;
+            }
+            final MappedByteBuffer region = regions.get(r);
+            final int length = region.getInt(offset);
+            if (length == PAD) {
+                pos = (r + 1) * (long) regionSize;
+                continue;
+            }
+            if ((length <= 0) || (offset + RECORD_HEADER + length > regionSize))
+                break;
+            if (pos >= committed) {
+                //written after the last update of the header, perhaps incompletely
+                final byte[] payload = new byte[length];
+                final ByteBuffer b = region.duplicate();
+                b.position(offset + RECORD_HEADER);
+                b.get(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if (region.getInt(offset + 8) != (int) crc.getValue())
+                    break;
+            }
+            index(pos, region.getInt(offset + 4));
+            pos += RECORD_HEADER + length;
+        }
+        end = pos;
+    }
+
+    /** appends an eternal belief */
+    public synchronized void add(final Task t) {
+        final byte[] payload;
+        final int keyLength;
+        try {
+            buffer.reset();
+            out.writeUTF(t.sentence.term.toString());
+            out.flush();
+            keyLength = buffer.size();
+            TaskCodec.write(out, t);
+            out.flush();
+            payload = buffer.toByteArray();
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+            return;
+        }
+        final int total = RECORD_HEADER + payload.length;
+        if (total > regionSize) {
+            memory.emit(ERR.class, new IOException("Belief too large for the store: " + t));
+            return;
+        }
+
+        int offset = (int) (end % regionSize);
+        if (offset + total > regionSize) {
+            if (regionSize - offset >= 4)
+                regions.get((int) (end / regionSize)).putInt(offset, PAD);
+            end = (end / regionSize + 1) * regionSize;
+            offset = 0;
+        }
+        final ByteBuffer region;
+        try {
+            region = region((int) (end / regionSize));
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+            return;
+        }
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        final int hash = hash(payload, keyLength);
+        final ByteBuffer b = region.duplicate();
+        b.position(offset + RECORD_HEADER);
+        b.put(payload);
+        region.putInt(offset + 4, hash);
+        region.putInt(offset + 8, (int) crc.getValue());
+        region.putInt(offset, payload.length);
+
+        index(end, hash);
+        end += total;
+        regions.get(0).putLong(8, end);
+    }
+
+    @Override
+    public void forgotten(final Concept c) {
+        //its eternal beliefs were written when they were added
+    }
+
+    @Override
+    public synchronized boolean restore(final Concept c) {
+        if (records == 0)
+            return false;
+        final byte[] key;
+        try {
+            buffer.reset();
+            out.writeUTF(c.term.toString());
+            out.flush();
+            key = buffer.toByteArray();
+        } catch (IOException e) {
+            memory.emit(ERR.class, e);
+            return false;
+        }
+        final int h = hash(key, key.length);
+
+        //the bucket chain runs from the latest record to the earliest; older ones than a full table are not read
+        final int[] found = new int[Parameters.CONCEPT_BELIEFS_MAX];
+        int n = 0;
+        for (int i = buckets[h & (buckets.length - 1)]; (i != 0) && (n < found.length); i = chain[i - 1]) {
+            if ((hashes[i - 1] == h) && (matches(offsets[i - 1], key)))
+                found[n++] = i - 1;
+        }
+        for (int j = n - 1; j >= 0; j--) {
+            try {
+                final Task t = read(offsets[found[j]]);
+                Concept.addToTable(t, c.beliefs, Parameters.CONCEPT_BELIEFS_MAX, false);
+            } catch (IOException | InvalidInputException e) {
+                memory.emit(ERR.class, e);
+            }
+        }
+        //no budget was restored
+        return false;
+    }
+
+    /** the file is kept; a reset memory restores its beliefs again */
+    @Override
+    public void reset() {
+    }
+
+    public synchronized void flush() {
+        for (final MappedByteBuffer r : regions)
+            r.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (recording)
+            memory.event.off(ConceptBeliefAdd.class, onBelief);
+        recording = false;
+        if (memory.concepts.getStore() == this)
+            memory.concepts.setStore(null);
+        flush();
+        channel.close();
+        file.close();
+    }
+
+    /** number of beliefs in the store */
+    public int getRecords() {
+        return records;
+    }
+
+    /** end of the records in the file */
+    public long getEnd() {
+        return end;
+    }
+
+    private MappedByteBuffer region(final int r) throws IOException {
+        while (regions.size() <= r)
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * (long) regionSize, regionSize));
+        return regions.get(r);
+    }
+
+    private boolean matches(final long pos, final byte[] key) {
+        final MappedByteBuffer region = regions.get((int) (pos / regionSize));
+        final int offset = (int) (pos % regionSize);
+        if (region.getInt(offset) < key.length)
+            return false;
+        for (int i = 0; i < key.length; i++) {
+            if (region.get(offset + RECORD_HEADER + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private Task read(final long pos) throws IOException, InvalidInputException {
+        final MappedByteBuffer region = regions.get((int) (pos / regionSize));
+        final int offset = (int) (pos % regionSize);
+        final byte[] payload = new byte[region.getInt(offset)];
+        final ByteBuffer b = region.duplicate();
+        b.position(offset + RECORD_HEADER);
+        b.get(payload);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readUTF();
+        return TaskCodec.read(in, narsese);
+    }
+
+    private static int hash(final byte[] b, final int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + b[i];
+        return h;
+    }
+
+    private void index(final long pos, final int hash) {
+        if (records == offsets.length) {
+            final int n = records * 2;
+            offsets = Arrays.copyOf(offsets, n);
+            hashes = Arrays.copyOf(hashes, n);
+            chain = Arrays.copyOf(chain, n);
+        }
+        offsets[records] = pos;
+        hashes[records] = hash;
+        records++;
+        if (records > buckets.length * 2) {
+            buckets = new int[buckets.length * 4];
+            for (int i = 0; i < records; i++)
+                link(i);
+        } else {
+            link(records - 1);
+        }
+    }
+
+    private void link(final int i) {
+        final int b = hashes[i] & (buckets.length - 1);
+        chain[i] = buckets[b];
+        buckets[b] = i + 1;
+    }
+}
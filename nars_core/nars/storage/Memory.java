@@ -39,6 +39,7 @@ import nars.config.Parameters;
 import nars.util.Events.ResetEnd;
 import nars.util.Events.ResetStart;
 import nars.util.Events.TaskRemove;
+import nars.control.Shard;
 import nars.control.WorkingCycle;
 import nars.control.DerivationContext;
 import nars.control.ImmediateProcess;
@@ -47,6 +48,7 @@ import nars.entity.BudgetValue;
 import nars.entity.Concept;
 import static nars.entity.Concept.successfulOperationHandler;
 import nars.entity.Item;
+import nars.entity.Provenance;
 import nars.entity.Sentence;
 import nars.entity.Stamp;
 import nars.entity.Task;
@@ -65,6 +67,7 @@ import static nars.language.Terms.equalSubTermsInRespectToImageAndProduct;
 import nars.operator.Operation;
 import nars.operator.Operator;
 import nars.io.Echo;
+import nars.io.InputJournal;
 import nars.io.PauseInput;
 import nars.io.Reset;
 import nars.io.SetDecisionThreshold;
@@ -121,6 +124,9 @@ public class Memory implements Serializable {
     /* List of new tasks accumulated in one cycle, to be processed in the next cycle */
     public final Deque<Task> newTasks;
     
+    /* Ancestry of the recent tasks */
+    public final Provenance provenance = new Provenance(Parameters.PROVENANCE_CAPACITY);
+    
     /* The remaining number of steps to be carried out (stepLater mode)*/
     private int inputPausedUntil;
     
@@ -161,6 +167,7 @@ public class Memory implements Serializable {
         novelTasks.clear();
         newTasks.clear();    
         sequenceTasks.clear();
+        provenance.clear();
         cycle = 0;
         timeRealStart = timeRealNow = System.currentTimeMillis();
         timePreviousCycle = time();
@@ -227,6 +234,9 @@ public class Memory implements Serializable {
         if (c!=null)
             System.out.print(c.budget + "   ");
         System.out.println(term + " conceptualize: " + budget);*/
+        
+        if ((shard != null) && !shard.isLocal(term))
+            return null; //owned by another shard
                 
         return concepts.conceptualize(budget, term, createIfMissing);
     }
@@ -246,15 +256,17 @@ public class Memory implements Serializable {
      * this will not remove a concept.  it is not good to use directly because it can disrupt 
      * the bag's priority order. it should only be used after it has been removed then before inserted */
     public void forget(final Item x, final float forgetCycles, final float relativeThreshold) {
-        BudgetFunctions.forgetIterative(x.budget, forgetCycles, relativeThreshold);
-        /*switch (param.forgetting) {
+        switch (param.forgetting) {
             case Iterative:                
                 BudgetFunctions.forgetIterative(x.budget, forgetCycles, relativeThreshold);
                 break;
             case Periodic:
                 BudgetFunctions.forgetPeriodic(x.budget, forgetCycles, relativeThreshold, time());
                 break;
-        }*/
+            case Lazy:
+                BudgetFunctions.forgetLazy(x.budget, forgetCycles, relativeThreshold, time());
+                break;
+        }
     }    
     
     /* ---------- new task entries ---------- */
@@ -262,6 +274,7 @@ public class Memory implements Serializable {
      * add new task that waits to be processed in the next cycleMemory
      */
     public void addNewTask(final Task t, final String reason) {
+        provenance.add(t, reason);
         newTasks.add(t);
       //  logic.TASK_ADD_NEW.commit(t.getPriority());
         emit(Events.TaskAdd.class, t, reason);
@@ -280,6 +293,9 @@ public class Memory implements Serializable {
      * @param t The addInput task
      */
     
+    private InputJournal.Recorder journal;
+    private InputJournal.Replay replay;
+
     boolean checked=false;
     boolean isjUnit=false;
     public static boolean isJUnitTest() {
@@ -293,6 +309,22 @@ public class Memory implements Serializable {
         return false;
     }
     
+    /** records input accepted from the input channels, or null */
+    public void setJournal(final InputJournal.Recorder journal) {
+        this.journal = journal;
+    }
+
+    /** when non-null, input is taken from this recording instead of the input channels */
+    public void setReplay(final InputJournal.Replay replay) {
+        this.replay = replay;
+    }
+
+    /** when true, echo commands are not emitted as output, as when running under JUnit */
+    public void setTestMode(boolean testMode) {
+        checked = true;
+        isjUnit = testMode;
+    }
+    
     public void inputTask(final Item t, boolean emitIn) {
         if(!checked) {
             checked=true;
@@ -404,11 +436,18 @@ public class Memory implements Serializable {
         
         /** adds input tasks to newTasks */
         for(int i=0; i<1 && isProcessingInput(); i++) {
-            Item t = inputs.nextTask();                    
-            if (t!=null) 
-                inputTask(t);            
+            final long now = time();
+            Item t = (replay != null) ? replay.next(now) : inputs.nextTask();
+            if (t!=null) {
+                inputTask(t);
+                if (journal != null)
+                    journal.record(now, t);
+            }
         }
       
+        if (shard != null)
+            shard.deliver();
+
         concepts.cycle();         
         
         event.emit(Events.CycleEnd.class);
@@ -429,6 +468,8 @@ public class Memory implements Serializable {
         int counter = newTasks.size();  // don't include new tasks produced in the current workCycle
         while (counter-- > 0) {
             task = newTasks.removeFirst();
+            if ((shard != null) && (!shard.dispatch(task)))
+                continue; //processed by other shards
             boolean enterDirect = true;
             if (/*task.isElemOfSequenceBuffer() || task.isObservablePrediction() || */ enterDirect ||  task.isInput() || task.sentence.isQuest() || task.sentence.isQuestion() || concept(task.sentence.term)!=null) { // new input or existing concept
                 new ImmediateProcess(this, task).run(); 
@@ -477,10 +518,28 @@ public class Memory implements Serializable {
      }
 
     private long currentStampSerial = 0;
+    private Shard shard;
     public long newStampSerial() {
+        if (shard != null)
+            return shard.stampSerial(currentStampSerial++);
         return currentStampSerial++;
     }
 
+    /** joins a group of sharded reasoners; see Shard */
+    public void setShard(final Shard shard) {
+        this.shard = shard;
+    }
+
+    public Shard getShard() {
+        return shard;
+    }
+
+    /** moves the clock forward to a time seen elsewhere, as in a Lamport clock; never moves it back */
+    public void advanceTime(final long time) {
+        if (time > cycle)
+            cycle = time;
+    }
+
     public boolean isProcessingInput() {
         return time() >= inputPausedUntil;
     }
@@ -615,7 +674,7 @@ public class Memory implements Serializable {
             //also attempt direct
             HashSet<Task> already_attempted = new HashSet<Task>();
             for(int i =0 ;i<Parameters.SEQUENCE_BAG_ATTEMPTS;i++) {
-                Task takeout = this.sequenceTasks.takeNext();
+                Task takeout = this.sequenceTasks.takeNext(cycles(this.param.sequenceForgetDurations), this);
                 if(takeout == null) {
                     break; //there were no elements in the bag to try
                 }
@@ -683,7 +742,8 @@ public class Memory implements Serializable {
         while(removal != null);
         //ok now add the new one:
         //making sure we do not mess with budget of the task:
-        Task t2 = new Task(newEvent.sentence, new BudgetValue(0.9f*periority_penalty/(float)newEvent.sentence.term.getComplexity(),1.0f/(float)newEvent.sentence.term.getComplexity(),0.1f), newEvent.getParentTask(), newEvent.getParentBelief(), newEvent.getBestSolution());
+        Task t2 = new Task(newEvent.sentence, new BudgetValue(0.9f*periority_penalty/(float)newEvent.sentence.term.getComplexity(),1.0f/(float)newEvent.sentence.term.getComplexity(),0.1f), newEvent.getParentTaskId(), newEvent.getParentTerm(), newEvent.getParentBelief(), newEvent.getBestSolution());
+        provenance.add(t2);
         //we use a event default budget here so the time it appeared and whether it was selected is key criteria currently divided by complexity
         this.sequenceTasks.putIn(t2);
 
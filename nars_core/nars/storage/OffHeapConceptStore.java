@@ -0,0 +1,471 @@
+package nars.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import nars.config.Parameters;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Sentence;
+import nars.entity.Task;
+import nars.entity.TaskLink;
+import nars.entity.TermLink;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.io.Output.ERR;
+import nars.io.TaskCodec;
+import nars.language.Term;
+
+/**
+ * ConceptStore which keeps concepts outside the Java heap. The state of a
+ * concept (budget, task tables, term links and task links) is encoded into a
+ * record appended to direct ByteBuffer segments, and addressed by an integer
+ * id through an open addressing table keyed by the concept's name. The heap
+ * only holds primitive arrays, so stored concepts give the garbage collector
+ * nothing to trace, and the number of concepts is limited by RAM.
+ *
+ * Each task of a concept, whether in a table or the target of a task link, is
+ * written once per record with its provenance, and referred to by its index,
+ * so that the restored tables and links share the same Task, as they did.
+ *
+ * A record is removed when its concept is restored. Segments whose records
+ * are all removed are reused, and the live records are compacted into new
+ * segments once more than half of the space in use is garbage.
+ */
+public class OffHeapConceptStore implements ConceptStore {
+
+    /** default size of a segment, in bytes */
+    public static final int SEGMENT_SIZE = 1 << 24;
+
+    private static final int DELETED = -1;
+
+    private final int segmentSize;
+    private final List<ByteBuffer> segments = new ArrayList();
+    /** bytes of live records in each segment */
+    private int[] segmentLive = new int[8];
+    private final List<Integer> freeSegments = new ArrayList();
+    private int current = -1;
+
+    /** record of each id: segment << 32 | offset, or -1 if the id is unused */
+    private long[] address = new long[64];
+    private int[] length = new int[64];
+    private int[] hash = new int[64];
+    private int maxId;
+    private int[] freeIds = new int[16];
+    private int freeIdCount;
+
+    /** id + 1 of the record in each slot; 0 if empty, DELETED if removed */
+    private int[] table = new int[128];
+    private int occupied, size;
+
+    private long allocated, live;
+
+    private Narsese narsese;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    /** index of each task in the record being encoded */
+    private final Map<Task,Integer> taskIndex = new IdentityHashMap();
+    /** terms parsed for the record being decoded */
+    private final Map<String,Term> terms = new HashMap();
+
+    public OffHeapConceptStore() {
+        this(SEGMENT_SIZE);
+    }
+
+    public OffHeapConceptStore(final int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void forgotten(final Concept c) {
+        if (isEmpty(c))
+            return;
+        try {
+            final byte[] key = key(c);
+            final byte[] record = encode(c);
+            put(key, Arrays.hashCode(key), record);
+        } catch (IOException e) {
+            c.memory.emit(ERR.class, e);
+        }
+    }
+
+    @Override
+    public boolean restore(final Concept c) {
+        if (size == 0)
+            return false;
+        try {
+            final byte[] key = key(c);
+            final int slot = find(key, Arrays.hashCode(key));
+            if (slot == -1)
+                return false;
+            final byte[] record = read(table[slot] - 1);
+            remove(slot);
+            if (narsese == null)
+                narsese = new Narsese(c.memory);
+            decode(c, record);
+            return true;
+        } catch (IOException | InvalidInputException e) {
+            c.memory.emit(ERR.class, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void reset() {
+        segments.clear();
+        freeSegments.clear();
+        Arrays.fill(segmentLive, 0);
+        current = -1;
+        Arrays.fill(address, -1);
+        maxId = freeIdCount = 0;
+        Arrays.fill(table, 0);
+        occupied = size = 0;
+        allocated = live = 0;
+    }
+
+    /** number of concepts stored */
+    public int size() {
+        return size;
+    }
+
+    /** bytes of the records stored */
+    public long getLiveBytes() {
+        return live;
+    }
+
+    /** bytes written to the segments, including those of removed records */
+    public long getAllocatedBytes() {
+        return allocated;
+    }
+
+    private static boolean isEmpty(final Concept c) {
+        return c.beliefs.isEmpty() && c.desires.isEmpty() && c.questions.isEmpty() && c.quests.isEmpty()
+                && c.executable_preconditions.isEmpty() && (c.termLinks.size() == 0) && (c.taskLinks.size() == 0);
+    }
+
+    /* ---------- records ---------- */
+
+    /** the encoded name, which is also the start of the concept's record */
+    private byte[] key(final Concept c) throws IOException {
+        buffer.reset();
+        out.writeUTF(c.term.toString());
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private byte[] encode(final Concept c) throws IOException {
+        buffer.reset();
+        out.writeUTF(c.term.toString());
+        writeBudget(c.budget);
+
+        taskIndex.clear();
+        final List<Task> tasks = new ArrayList();
+        for (final List<Task> table : tables(c)) {
+            for (final Task t : table)
+                index(t, tasks);
+        }
+        for (final TaskLink l : c.taskLinks.values())
+            index(l.targetTask, tasks);
+        out.writeInt(tasks.size());
+        for (final Task t : tasks) {
+            TaskCodec.write(out, t);
+            TaskCodec.writeVarLong(out, t.id);
+            //INPUT and UNKNOWN are negative
+            TaskCodec.writeVarLong(out, t.getParentTaskId() + 2);
+            final Term parent = t.getParentTerm();
+            out.writeUTF((parent == null) ? "" : parent.toString());
+        }
+        for (final List<Task> table : tables(c)) {
+            out.writeInt(table.size());
+            for (final Task t : table)
+                TaskCodec.writeVarLong(out, taskIndex.get(t));
+        }
+
+        out.writeInt(c.termLinks.size());
+        for (final TermLink l : c.termLinks.values()) {
+            out.writeUTF(l.target.toString());
+            out.writeShort(l.type);
+            writeIndex(l.index);
+            writeBudget(l.budget);
+        }
+        out.writeInt(c.taskLinks.size());
+        for (final TaskLink l : c.taskLinks.values()) {
+            TaskCodec.writeVarLong(out, taskIndex.get(l.targetTask));
+            out.writeShort(l.type);
+            writeIndex(l.index);
+            writeBudget(l.budget);
+        }
+        out.flush();
+        taskIndex.clear();
+        return buffer.toByteArray();
+    }
+
+    private static List<Task>[] tables(final Concept c) {
+        return new List[] { c.beliefs, c.executable_preconditions, c.desires, c.questions, c.quests };
+    }
+
+    private void index(final Task t, final List<Task> tasks) {
+        if (!taskIndex.containsKey(t)) {
+            taskIndex.put(t, tasks.size());
+            tasks.add(t);
+        }
+    }
+
+    private void decode(final Concept c, final byte[] record) throws IOException, InvalidInputException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        in.readUTF();
+        final BudgetValue b = readBudget(in);
+        c.budget.setPriority(b.getPriority());
+        c.budget.setDurability(b.getDurability());
+        c.budget.setQuality(b.getQuality());
+
+        terms.clear();
+        final Task[] tasks = new Task[in.readInt()];
+        for (int i = 0; i < tasks.length; i++) {
+            final Task t = TaskCodec.read(in, narsese);
+            final long id = TaskCodec.readVarLong(in);
+            final long parent = TaskCodec.readVarLong(in) - 2;
+            final String parentTerm = in.readUTF();
+            tasks[i] = new Task(id, t.sentence, t.budget, parent, parentTerm.isEmpty() ? null : term(parentTerm),
+                    (Sentence) null, (Sentence) null);
+        }
+        for (final List<Task> table : tables(c)) {
+            for (int n = in.readInt(); n > 0; n--)
+                table.add(tasks[(int) TaskCodec.readVarLong(in)]);
+        }
+
+        for (int n = in.readInt(); n > 0; n--) {
+            final String target = in.readUTF();
+            final short type = in.readShort();
+            final short[] index = readIndex(in);
+            c.termLinks.putIn(new TermLink(term(target), type, index, readBudget(in)));
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            final Task t = tasks[(int) TaskCodec.readVarLong(in)];
+            final short type = in.readShort();
+            final short[] index = readIndex(in);
+            c.taskLinks.putIn(new TaskLink(t, type, index, readBudget(in), Parameters.TERM_LINK_RECORD_LENGTH));
+        }
+        terms.clear();
+    }
+
+    /** parses a term once per record */
+    private Term term(final String s) throws InvalidInputException {
+        Term t = terms.get(s);
+        if (t == null) {
+            t = narsese.parseTerm(s);
+            terms.put(s, t);
+        }
+        return t;
+    }
+
+    private void writeBudget(final BudgetValue b) throws IOException {
+        out.writeFloat(b.getPriority());
+        out.writeFloat(b.getDurability());
+        out.writeFloat(b.getQuality());
+    }
+
+    private static BudgetValue readBudget(final DataInputStream in) throws IOException {
+        final float p = in.readFloat();
+        final float d = in.readFloat();
+        return new BudgetValue(p, d, in.readFloat());
+    }
+
+    private void writeIndex(final short[] index) throws IOException {
+        if (index == null) {
+            out.writeByte(-1);
+            return;
+        }
+        out.writeByte(index.length);
+        for (final short i : index)
+            out.writeShort(i);
+    }
+
+    private static short[] readIndex(final DataInputStream in) throws IOException {
+        final int n = in.readByte();
+        if (n == -1)
+            return null;
+        final short[] index = new short[n];
+        for (int i = 0; i < n; i++)
+            index[i] = in.readShort();
+        return index;
+    }
+
+    /* ---------- index ---------- */
+
+    /** slot of the record with this key, or -1 */
+    private int find(final byte[] key, final int h) {
+        final int mask = table.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            final int e = table[slot];
+            if (e == 0)
+                return -1;
+            if ((e != DELETED) && (hash[e - 1] == h) && (matches(e - 1, key)))
+                return slot;
+        }
+    }
+
+    private boolean matches(final int id, final byte[] key) {
+        if (length[id] < key.length)
+            return false;
+        final ByteBuffer segment = segments.get((int) (address[id] >>> 32));
+        final int offset = (int) address[id];
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(offset + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void put(final byte[] key, final int h, final byte[] record) {
+        final int existing = find(key, h);
+        if (existing != -1)
+            remove(existing);
+
+        final int id = newId();
+        address[id] = append(record);
+        length[id] = record.length;
+        hash[id] = h;
+
+        final int mask = table.length - 1;
+        int slot = h & mask;
+        while ((table[slot] != 0) && (table[slot] != DELETED))
+            slot = (slot + 1) & mask;
+        if (table[slot] == 0)
+            occupied++;
+        table[slot] = id + 1;
+        size++;
+
+        if (occupied * 2 > table.length)
+            rehash();
+    }
+
+    private void remove(final int slot) {
+        final int id = table[slot] - 1;
+        table[slot] = DELETED;
+        size--;
+        release(id);
+        if ((allocated - live > live) && (allocated - live > segmentSize))
+            compact();
+    }
+
+    /** rebuilds the table without removed slots, growing it if more than a quarter full */
+    private void rehash() {
+        int capacity = 128;
+        while (capacity < size * 4)
+            capacity <<= 1;
+        table = new int[capacity];
+        occupied = 0;
+        final int mask = capacity - 1;
+        for (int id = 0; id < maxId; id++) {
+            if (address[id] == -1)
+                continue;
+            int slot = hash[id] & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+            occupied++;
+        }
+    }
+
+    private int newId() {
+        if (freeIdCount > 0)
+            return freeIds[--freeIdCount];
+        if (maxId == address.length) {
+            final int n = maxId * 2;
+            address = Arrays.copyOf(address, n);
+            length = Arrays.copyOf(length, n);
+            hash = Arrays.copyOf(hash, n);
+        }
+        return maxId++;
+    }
+
+    /* ---------- segments ---------- */
+
+    private byte[] read(final int id) {
+        final ByteBuffer segment = segments.get((int) (address[id] >>> 32)).duplicate();
+        segment.position((int) address[id]);
+        final byte[] record = new byte[length[id]];
+        segment.get(record);
+        return record;
+    }
+
+    private long append(final byte[] record) {
+        if ((current == -1) || (segments.get(current).remaining() < record.length))
+            nextSegment(record.length);
+        final ByteBuffer segment = segments.get(current);
+        final int offset = segment.position();
+        segment.put(record);
+        segmentLive[current] += record.length;
+        live += record.length;
+        allocated += record.length;
+        return (((long) current) << 32) | offset;
+    }
+
+    private void nextSegment(final int minSize) {
+        final int previous = current;
+        current = -1;
+        if ((previous != -1) && (segmentLive[previous] == 0))
+            recycle(previous);
+
+        for (int i = freeSegments.size() - 1; i >= 0; i--) {
+            final int s = freeSegments.get(i);
+            if (segments.get(s).capacity() >= minSize) {
+                freeSegments.remove(i);
+                current = s;
+                return;
+            }
+        }
+        current = segments.size();
+        segments.add(ByteBuffer.allocateDirect(Math.max(segmentSize, minSize)));
+        if (current == segmentLive.length)
+            segmentLive = Arrays.copyOf(segmentLive, current * 2);
+    }
+
+    private void release(final int id) {
+        final int s = (int) (address[id] >>> 32);
+        segmentLive[s] -= length[id];
+        live -= length[id];
+        address[id] = -1;
+        if (freeIdCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+        freeIds[freeIdCount++] = id;
+        if ((segmentLive[s] == 0) && (s != current))
+            recycle(s);
+    }
+
+    private void recycle(final int s) {
+        final ByteBuffer segment = segments.get(s);
+        allocated -= segment.position();
+        segment.clear();
+        freeSegments.add(s);
+    }
+
+    /** moves the live records into new segments */
+    private void compact() {
+        final List<ByteBuffer> old = new ArrayList(segments);
+        segments.clear();
+        freeSegments.clear();
+        Arrays.fill(segmentLive, 0);
+        current = -1;
+        allocated = live = 0;
+        for (int id = 0; id < maxId; id++) {
+            if (address[id] == -1)
+                continue;
+            final ByteBuffer from = old.get((int) (address[id] >>> 32)).duplicate();
+            from.position((int) address[id]);
+            final byte[] record = new byte[length[id]];
+            from.get(record);
+            address[id] = append(record);
+        }
+    }
+}
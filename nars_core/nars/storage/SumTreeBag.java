@@ -0,0 +1,336 @@
+package nars.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import nars.entity.Item;
+
+/**
+ * Bag which takes out items at random, in exact proportion to their priority.
+ * Items occupy slots of an array; their priorities are kept in a primitive
+ * array with a Fenwick (binary indexed) tree of its prefix sums, from which
+ * an item is sampled. An indexed min-heap of the slots gives the item to
+ * displace when the bag is full, and an indexed max-heap the highest
+ * priority. Taking out, putting in and sampling are O(log n); the lowest and
+ * highest priorities are found in O(1).
+ *
+ * An item is weighted by the priority it had when it was put in, as LevelBag
+ * files it in the level of that priority. Sampling uses Memory.randomNumber,
+ * so runs with the same seed are repeatable.
+ */
+public class SumTreeBag<E extends Item<K>,K> extends Bag<E,K> {
+
+    private final int capacity;
+
+    private final E[] items;
+    private final float[] priority;
+    /** Fenwick tree over priority, 1-based */
+    private final double[] tree;
+    private final int highestBit;
+
+    /** slots ordered as a binary min-heap by priority */
+    private final int[] heap;
+    /** position of each slot in the heap */
+    private final int[] heapIndex;
+    /** slots ordered as a binary max-heap by priority */
+    private final int[] maxHeap;
+    /** position of each slot in the max-heap */
+    private final int[] maxHeapIndex;
+
+    private final int[] free;
+    private int freeCount;
+    private int size;
+
+    private final Map<K, Integer> index;
+    private double mass;
+    /** updates of the tree since it was rebuilt, which accumulate rounding error */
+    private int updates;
+
+    public SumTreeBag(final int capacity) {
+        this.capacity = capacity;
+        this.items = (E[]) new Item[capacity];
+        this.priority = new float[capacity];
+        this.tree = new double[capacity + 1];
+        this.highestBit = Integer.highestOneBit(Math.max(1, capacity));
+        this.heap = new int[capacity];
+        this.heapIndex = new int[capacity];
+        this.maxHeap = new int[capacity];
+        this.maxHeapIndex = new int[capacity];
+        this.free = new int[capacity];
+        this.index = new HashMap<>(capacity);
+        clear();
+    }
+
+    @Override
+    public final void clear() {
+        Arrays.fill(items, null);
+        Arrays.fill(priority, 0);
+        Arrays.fill(tree, 0);
+        //lowest slots first
+        for (int i = 0; i < capacity; i++)
+            free[i] = capacity - 1 - i;
+        freeCount = capacity;
+        size = 0;
+        index.clear();
+        mass = 0;
+        updates = 0;
+    }
+
+    @Override
+    public E get(final K key) {
+        final Integer s = index.get(key);
+        return (s == null) ? null : items[s];
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return index.keySet();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public float getMass() {
+        return (float) mass;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float getAveragePriority() {
+        if (size == 0)
+            return 0.01f;
+        return (float) Math.min(1.0, mass / size);
+    }
+
+    @Override
+    public float getMinPriority() {
+        return (size == 0) ? 1.0f : priority[heap[0]];
+    }
+
+    @Override
+    public float getMaxPriority() {
+        return (size == 0) ? 0.0f : priority[maxHeap[0]];
+    }
+
+    @Override
+    public E takeNext() {
+        if (size == 0)
+            return null;
+        return remove(sample());
+    }
+
+    @Override
+    public E peekNext() {
+        if (size == 0)
+            return null;
+        return items[sample()];
+    }
+
+    @Override
+    public E take(final K key) {
+        final Integer s = index.get(key);
+        if (s == null)
+            return null;
+        return remove(s);
+    }
+
+    @Override
+    protected E addItem(final E newItem) {
+        final float p = newItem.getPriority();
+        E overflow = null;
+        if (size >= capacity) {
+            if (p < priority[heap[0]])
+                return newItem;
+            overflow = remove(heap[0]);
+        }
+        final int s = free[--freeCount];
+        items[s] = newItem;
+        priority[s] = p;
+        index.put(newItem.name(), s);
+        add(s, p);
+        mass += p;
+        heapInsert(s);
+        size++;
+        if (updates > 64 * capacity)
+            rebuild();
+        return overflow;
+    }
+
+    /** kept with probability decayed/selected, so that items are chosen in proportion to their decayed priority */
+    @Override protected boolean ranksAsSelected(final float selected, final float decayed) {
+        return Memory.randomNumber.nextFloat() * selected <= decayed;
+    }
+
+    /** slot of an item chosen with probability proportional to its priority */
+    private int sample() {
+        double u = Memory.randomNumber.nextDouble() * tree(capacity);
+        //descend to the first slot whose prefix sum exceeds u
+        int pos = 0;
+        for (int step = highestBit; step > 0; step >>= 1) {
+            final int next = pos + step;
+            if ((next <= capacity) && (tree[next] <= u)) {
+                pos = next;
+                u -= tree[next];
+            }
+        }
+        if ((pos >= capacity) || (items[pos] == null)) {
+            //all priorities are zero, or rounding went past the last item
+            return heap[0];
+        }
+        return pos;
+    }
+
+    private E remove(final int s) {
+        final E e = items[s];
+        index.remove(e.name());
+        add(s, -priority[s]);
+        mass -= priority[s];
+        heapRemove(s);
+        size--;
+        items[s] = null;
+        priority[s] = 0;
+        free[freeCount++] = s;
+        if (size == 0)
+            mass = 0;
+        else if (updates > 64 * capacity)
+            rebuild();
+        return e;
+    }
+
+    /* ---------- Fenwick tree ---------- */
+
+    private void add(final int slot, final double d) {
+        for (int i = slot + 1; i <= capacity; i += i & -i)
+            tree[i] += d;
+        updates++;
+    }
+
+    /** sum of the priorities of slots 0..n-1 */
+    private double tree(int n) {
+        double sum = 0;
+        for (; n > 0; n -= n & -n)
+            sum += tree[n];
+        return sum;
+    }
+
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        mass = 0;
+        for (int i = 1; i <= capacity; i++) {
+            tree[i] += priority[i - 1];
+            mass += priority[i - 1];
+            final int parent = i + (i & -i);
+            if (parent <= capacity)
+                tree[parent] += tree[i];
+        }
+        updates = 0;
+    }
+
+    /* ---------- heaps ---------- */
+
+    private void heapInsert(final int s) {
+        heapInsert(heap, heapIndex, false, s);
+        heapInsert(maxHeap, maxHeapIndex, true, s);
+    }
+
+    /** called before size is decremented */
+    private void heapRemove(final int s) {
+        heapRemove(heap, heapIndex, false, s);
+        heapRemove(maxHeap, maxHeapIndex, true, s);
+    }
+
+    private void heapInsert(final int[] h, final int[] hi, final boolean max, final int s) {
+        h[size] = s;
+        hi[s] = size;
+        siftUp(h, hi, max, size);
+    }
+
+    private void heapRemove(final int[] h, final int[] hi, final boolean max, final int s) {
+        final int i = hi[s];
+        final int last = h[size - 1];
+        if (i != size - 1) {
+            h[i] = last;
+            hi[last] = i;
+            siftDown(h, hi, max, i, size - 1);
+            siftUp(h, hi, max, hi[last]);
+        }
+    }
+
+    /** whether slot a belongs above slot b: lower in the min-heap, higher in the max-heap */
+    private boolean above(final int a, final int b, final boolean max) {
+        return max ? (priority[a] > priority[b]) : (priority[a] < priority[b]);
+    }
+
+    private void siftUp(final int[] h, final int[] hi, final boolean max, int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >> 1;
+            if (!above(h[i], h[parent], max))
+                break;
+            swap(h, hi, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(final int[] h, final int[] hi, final boolean max, int i, final int n) {
+        while (true) {
+            int top = i;
+            final int l = 2 * i + 1, r = l + 1;
+            if ((l < n) && above(h[l], h[top], max)) top = l;
+            if ((r < n) && above(h[r], h[top], max)) top = r;
+            if (top == i)
+                return;
+            swap(h, hi, i, top);
+            i = top;
+        }
+    }
+
+    private static void swap(final int[] h, final int[] hi, final int i, final int j) {
+        final int a = h[i], b = h[j];
+        h[i] = b;
+        hi[b] = i;
+        h[j] = a;
+        hi[a] = j;
+    }
+
+    /* ---------- iteration ---------- */
+
+    @Override
+    public Collection<E> values() {
+        final List<E> l = new ArrayList(size);
+        for (final E e : items) {
+            if (e != null)
+                l.add(e);
+        }
+        return Collections.unmodifiableList(l);
+    }
+
+    /** in descending priority, over a snapshot; values() is unsorted, for where order does not matter */
+    @Override
+    public Iterator<E> iterator() {
+        //priorities are not negative, so their bits sort as they do
+        final long[] keys = new long[size];
+        int n = 0;
+        for (int s = 0; s < capacity; s++) {
+            if (items[s] != null)
+                keys[n++] = (((long) Float.floatToIntBits(priority[s])) << 32) | s;
+        }
+        Arrays.sort(keys);
+        final E[] sorted = (E[]) new Item[n];
+        for (int k = 0; k < n; k++)
+            sorted[k] = items[(int) keys[n - 1 - k]];
+        return Arrays.asList(sorted).iterator();
+    }
+}
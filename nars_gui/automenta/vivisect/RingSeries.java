@@ -0,0 +1,348 @@
+package automenta.vivisect;
+
+import java.util.Arrays;
+
+/**
+ * Time-indexed series of primitive doubles stored in a circular buffer.
+ * Appending the next time step is O(1) and allocation-free once the buffer
+ * has reached its capacity. Missing samples read as NaN; whether a sample is
+ * stored is kept in a bitset, so has() tells a missing sample from a stored
+ * NaN, which has no min, max or mean.
+ *
+ * Min/max are summarized per block of BLOCK slots so that range queries
+ * over long windows visit only the partial blocks at either end.
+ */
+public class RingSeries {
+
+    /** slots per min/max summary block; must be a power of 2 */
+    public static final int BLOCK = 64;
+    private static final int BLOCK_SHIFT = 6;
+
+    /** initial buffer size for unbounded series */
+    private static final int INITIAL_SIZE = 256;
+
+    /** maximum span of time covered, or -1 for unbounded (grows as needed) */
+    private int capacity;
+
+    private double[] buf;
+    /** bit per slot of buf: whether it holds a sample */
+    private long[] present;
+    private double[] blockMin, blockMax;
+    private boolean[] blockDirty;
+
+    /** physical index of 'start' */
+    private int head;
+
+    /** time of the first and last slot; only valid when !empty */
+    private int start, end;
+    private boolean empty = true;
+
+    public RingSeries(int capacity) {
+        this.capacity = capacity;
+        allocate(capacity > 0 ? capacity : INITIAL_SIZE);
+    }
+
+    private void allocate(int size) {
+        buf = new double[size];
+        Arrays.fill(buf, Double.NaN);
+        present = new long[(size + 63) >> 6];
+        int blocks = (size + BLOCK - 1) >> BLOCK_SHIFT;
+        blockMin = new double[blocks];
+        blockMax = new double[blocks];
+        blockDirty = new boolean[blocks];
+        Arrays.fill(blockMin, Double.POSITIVE_INFINITY);
+        Arrays.fill(blockMax, Double.NEGATIVE_INFINITY);
+        head = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** changes the capacity, keeping the most recent samples */
+    public void setCapacity(int newCapacity) {
+        if (newCapacity == capacity) return;
+        final int oldStart = start, oldEnd = end, oldHead = head;
+        final boolean wasEmpty = empty;
+        final double[] oldBuf = buf;
+        final long[] oldPresent = present;
+
+        capacity = newCapacity;
+        allocate(newCapacity > 0 ? Math.max(newCapacity, 1) : Math.max(INITIAL_SIZE, wasEmpty ? 0 : oldEnd - oldStart + 1));
+        empty = true;
+
+        if (!wasEmpty) {
+            start = (newCapacity > 0) ? Math.max(oldStart, oldEnd - newCapacity + 1) : oldStart;
+            end = oldEnd;
+            empty = false;
+            for (int t = start; t <= end; t++) {
+                final int i = (oldHead + (t - oldStart)) % oldBuf.length;
+                if (isSet(oldPresent, i))
+                    write(index(t), oldBuf[i]);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public int getStart() {
+        return empty ? 0 : start;
+    }
+
+    public int getEnd() {
+        return empty ? 0 : end;
+    }
+
+    public void clear() {
+        Arrays.fill(buf, Double.NaN);
+        Arrays.fill(present, 0);
+        Arrays.fill(blockMin, Double.POSITIVE_INFINITY);
+        Arrays.fill(blockMax, Double.NEGATIVE_INFINITY);
+        Arrays.fill(blockDirty, false);
+        head = 0;
+        empty = true;
+    }
+
+    private int index(final int t) {
+        int i = head + (t - start);
+        if (i >= buf.length) i -= buf.length;
+        return i;
+    }
+
+    private static boolean isSet(final long[] bits, final int i) {
+        return (bits[i >> 6] & (1L << i)) != 0;
+    }
+
+    /** @return the sample at time t, or NaN if it is missing or outside the window */
+    public double get(final int t) {
+        if (empty || t < start || t > end) return Double.NaN;
+        return buf[index(t)];
+    }
+
+    /** @return whether there is a sample at time t, which may be NaN */
+    public boolean has(final int t) {
+        if (empty || t < start || t > end) return false;
+        return isSet(present, index(t));
+    }
+
+    /** appends at getEnd()+1, or at 0 if empty */
+    public void push(final double v) {
+        set(empty ? 0 : end + 1, v);
+    }
+
+    public void set(final int t, final double v) {
+        if (empty) {
+            start = end = t;
+            head = 0;
+            empty = false;
+        }
+        else if (t > end) {
+            extendEnd(t);
+        }
+        else if (t < start) {
+            if (!extendStart(t))
+                return;
+        }
+        write(index(t), v);
+    }
+
+    /** marks the sample at time t as missing */
+    public void remove(final int t) {
+        if (empty || t < start || t > end) return;
+        erase(index(t));
+    }
+
+    private void write(final int i, final double v) {
+        present[i >> 6] |= 1L << i;
+        store(i, v);
+    }
+
+    private void erase(final int i) {
+        present[i >> 6] &= ~(1L << i);
+        store(i, Double.NaN);
+    }
+
+    private void store(final int i, final double v) {
+        final double prev = buf[i];
+        buf[i] = v;
+        final int b = i >> BLOCK_SHIFT;
+        if (!Double.isNaN(prev)) {
+            //an existing extreme may have been removed
+            blockDirty[b] = true;
+        }
+        if (!Double.isNaN(v) && !blockDirty[b]) {
+            if (v < blockMin[b]) blockMin[b] = v;
+            if (v > blockMax[b]) blockMax[b] = v;
+        }
+    }
+
+    private void extendEnd(final int t) {
+        final int span = t - start + 1;
+        if (span > buf.length) {
+            if (capacity > 0) {
+                if (t - end >= buf.length) {
+                    //nothing of the current window survives
+                    clear();
+                    start = t - buf.length + 1;
+                    end = t;
+                    empty = false;
+                    return;
+                }
+                //drop the oldest slots to make room
+                final int drop = span - buf.length;
+                for (int k = 0; k < drop; k++) {
+                    erase(head);
+                    if (++head == buf.length) head = 0;
+                }
+                start += drop;
+            }
+            else {
+                grow(span);
+            }
+        }
+        end = t;
+    }
+
+    /** @return false if t is too old to be stored in a bounded window */
+    private boolean extendStart(final int t) {
+        final int span = end - t + 1;
+        if (span > buf.length) {
+            if (capacity > 0)
+                return false;
+            grow(span);
+        }
+        head -= (start - t);
+        if (head < 0) head += buf.length;
+        start = t;
+        return true;
+    }
+
+    private void grow(final int minSize) {
+        final double[] oldBuf = buf;
+        final long[] oldPresent = present;
+        final int oldHead = head, span = end - start + 1;
+        allocate(Math.max(minSize, buf.length * 2));
+        for (int k = 0; k < span; k++) {
+            final int i = (oldHead + k) % oldBuf.length;
+            if (isSet(oldPresent, i)) {
+                buf[k] = oldBuf[i];
+                present[k >> 6] |= 1L << k;
+            }
+        }
+        Arrays.fill(blockDirty, true);
+    }
+
+    private void refreshBlock(final int b) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        final int from = b << BLOCK_SHIFT;
+        final int to = Math.min(from + BLOCK, buf.length);
+        for (int i = from; i < to; i++) {
+            final double v = buf[i];
+            if (Double.isNaN(v)) continue;
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+        blockMin[b] = min;
+        blockMax[b] = max;
+        blockDirty[b] = false;
+    }
+
+    /**
+     * Min and max of the samples in times [from, to).
+     * @return { +inf, -inf } if there are no samples in the range
+     */
+    public double[] getMinMax(int from, int to) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        if (!empty) {
+            if (from < start) from = start;
+            if (to > end + 1) to = end + 1;
+
+            int t = from;
+            int i = (t < to) ? index(t) : 0;
+            while (t < to) {
+                final int b = i >> BLOCK_SHIFT;
+                final int blockEnd = Math.min((b + 1) << BLOCK_SHIFT, buf.length);
+                final int len = blockEnd - i;
+                if ((i == (b << BLOCK_SHIFT)) && (t + len <= to)) {
+                    //whole block is inside the range
+                    if (blockDirty[b]) refreshBlock(b);
+                    if (blockMin[b] < min) min = blockMin[b];
+                    if (blockMax[b] > max) max = blockMax[b];
+                    t += len;
+                    i += len;
+                }
+                else {
+                    final double v = buf[i];
+                    if (!Double.isNaN(v)) {
+                        if (v < min) min = v;
+                        if (v > max) max = v;
+                    }
+                    t++;
+                    i++;
+                }
+                if (i >= buf.length) i = 0;
+            }
+        }
+        return new double[] { min, max };
+    }
+
+    /** mean of the samples in times [from, to), or NaN if there are none */
+    public double getMean(int from, int to) {
+        if (empty) return Double.NaN;
+        if (from < start) from = start;
+        if (to > end + 1) to = end + 1;
+        double sum = 0;
+        int n = 0;
+        for (int t = from; t < to; t++) {
+            final double v = buf[index(t)];
+            if (!Double.isNaN(v)) {
+                sum += v;
+                n++;
+            }
+        }
+        return (n == 0) ? Double.NaN : sum / n;
+    }
+
+    /**
+     * Reduces times [from, to) to target.length buckets by averaging the
+     * samples in each bucket. Empty buckets are NaN.
+     */
+    public double[] downsample(final int from, final int to, final double[] target) {
+        final int buckets = target.length;
+        final double width = ((double) (to - from)) / buckets;
+        for (int k = 0; k < buckets; k++) {
+            final int a = from + (int) (k * width);
+            final int b = Math.max(a + 1, from + (int) ((k + 1) * width));
+            target[k] = getMean(a, b);
+        }
+        return target;
+    }
+
+    /** copy of the samples from getStart() to getEnd(), inclusive, with NaN where one is missing */
+    public double[] toArray() {
+        if (empty) return new double[0];
+        double[] d = new double[end - start + 1];
+        final int firstLen = Math.min(d.length, buf.length - head);
+        System.arraycopy(buf, head, d, 0, firstLen);
+        if (firstLen < d.length)
+            System.arraycopy(buf, 0, d, firstLen, d.length - firstLen);
+        return d;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        if (!empty) {
+            for (int t = start; t <= end; t++) {
+                final int i = index(t);
+                if (!isSet(present, i)) continue;
+                if (sb.length() > 1) sb.append(", ");
+                sb.append(t).append('=').append(buf[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+}
@@ -1,7 +1,6 @@
 package automenta.vivisect;
 
 import java.awt.Color;
-import java.util.TreeMap;
 import org.encog.ml.data.MLData;
 import org.encog.ml.data.basic.BasicMLDataCentroid;
 import org.encog.util.kmeans.Centroid;
@@ -9,12 +8,11 @@ import org.encog.util.kmeans.Centroid;
 
 /**
  * Used by Chart, a chart data set is a container to store chart data.
- * TODO add ArrayDeque implementation as originally, for fast insertion/removal
+ * Samples are kept in a primitive circular buffer (RingSeries) indexed by time.
  */
 public class TreeMLData implements MLData {
 
-    //TODO use a primitive collection
-    public final TreeMap<Integer,Double> values;
+    public final RingSeries values;
     
     /** RGBA */
     protected int colour;
@@ -24,7 +22,6 @@ public class TreeMLData implements MLData {
 
     boolean resetRangeEachCycle = true;
     public final String label;
-    protected int capacity;
     private double[] specificMinMax;
     
     private boolean specificRange;
@@ -38,7 +35,6 @@ public class TreeMLData implements MLData {
     public TreeMLData(TreeMLData t) {
         this.label = t.label;
         this.colour = t.colour;
-        this.capacity = t.capacity;
         this.values = t.values;
     }
     
@@ -49,8 +45,7 @@ public class TreeMLData implements MLData {
     public TreeMLData(String theName, int color, int historySize) {
         label = theName;
         this.colour = color;
-        capacity = historySize;
-        values = new TreeMap();
+        values = new RingSeries(historySize);
     }
 
     public TreeMLData setRange(double min, double max) {
@@ -64,21 +59,11 @@ public class TreeMLData implements MLData {
     }
 
     public int getStart() { 
-        if (values.isEmpty())
-            return 0;
-        return values.firstKey(); 
+        return values.getStart();
     }
+    
     public int getEnd() { 
-        if (values.isEmpty())
-            return 0;
-        Integer ret=null;
-        try{
-            ret=values.lastKey(); 
-        }
-        catch(Exception ex) {}
-        if(ret==null)
-            return 0;
-        return ret;
+        return values.getEnd();
     }
 
     @Override
@@ -87,7 +72,7 @@ public class TreeMLData implements MLData {
     }
 
     public void setCapacity(int capacity) {
-        this.capacity = capacity;
+        values.setCapacity(capacity);
     }
     
     public TreeMLData setDefaultValue(double defaultValue) {
@@ -101,24 +86,14 @@ public class TreeMLData implements MLData {
     }
     
     public void addPlus(final int t, final double f) {
-        Double x = getData(t);
-        if (x == null) setData(t, f);
+        if (!values.has(t)) setData(t, f);
         else
-            setData(t, f + x.doubleValue());
+            setData(t, f + values.get(t));
     }
     
     @Override
     public void setData(final int t, final double f) {
-        
-        values.put(t, f);
-
-        if (capacity!=-1) {
-            while (values.size() > capacity) {
-                //TODO configurable removal policy                
-                values.remove(values.firstKey());            
-            }
-        }
-        
+        values.set(t, f);
     }
 
     /** clears the values and sets the data as if it were an array, starting at index 0 */
@@ -143,14 +118,10 @@ public class TreeMLData implements MLData {
 
     @Override
     public double getData(int t) {
-        Double f=null;
-        try{
-             f = values.get(t);
-        }catch(Exception ex){}
-        if (f == null) {
+        if (!values.has(t)) {
             return defaultValue;
         }
-        return f;
+        return values.get(t);
     }
 
     @Override
@@ -158,7 +129,7 @@ public class TreeMLData implements MLData {
         int size = size();
         double[] n = new double[size];
         int j = 0;
-        for (int i = getStart(); i <= getEnd(); i++) {
+        for (int i = getStart(); i < getStart() + size; i++) {
             n[j++] = getData(i);
         }
         return n;
@@ -175,21 +146,17 @@ public class TreeMLData implements MLData {
         if (specificRange)
             return specificMinMax;
         
-        double min=Double.POSITIVE_INFINITY, max=Double.NEGATIVE_INFINITY;
-        for (int i = start; i < end; i++) {
-            
-            Double v = values.get(i);
-            if (v == null)
-                continue;
-            
-            if (i == start)
-                min = max = v;
-            else {
-                if (v < min) min = v;
-                if (v > max) max = v;
-            }
-        }
-        return new double[] { min, max };
+        return values.getMinMax(start, end);
+    }
+    
+    /** mean of the samples in [start, end), or NaN if there are none */
+    public double getMean(int start, int end) {
+        return values.getMean(start, end);
+    }
+    
+    /** averages [start, end) into target.length buckets, for display at a lower resolution */
+    public double[] downsample(int start, int end, double[] target) {
+        return values.downsample(start, end, target);
     }
 
     @Override
@@ -208,10 +175,7 @@ public class TreeMLData implements MLData {
     }
 
     public void push(double v) {
-        if (values.isEmpty())
-            setData(0, v);
-        else
-            setData(getEnd()+1, v);
+        values.push(v);
     }
 
     
@@ -149,11 +149,16 @@ public class LineChart extends Chart implements MultiChart {
             l.g.strokeWeight(lineThickness);
             
             int cs = l.cycleStart;
-            for (int t = cs; t < l.cycleEnd; t++) {
+            
+            //when several cycles map to the same pixel, draw their average instead of every sample
+            float pixelsPerCycle = width * timeScale1;
+            int step = (pixelsPerCycle > 0) ? Math.max(1, (int)(1f / pixelsPerCycle)) : 1;
+            
+            for (int t = cs; t < l.cycleEnd; t+=step) {
                 l.g.stroke = true;
                 
                 float x = (t-cs) * timeScale1;
-                float v = (float)chart.getData(t);
+                float v = (float)((step == 1) ? chart.getData(t) : chart.getMean(t, t + step));
                 if (Float.isNaN(v)) {
                     continue;
                 }
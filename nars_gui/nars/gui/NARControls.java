@@ -491,7 +491,7 @@ public class NARControls extends JPanel implements ActionListener, EventObserver
         String filePath = directoryName + fileName;
 
         try {
-            nar.addInput(new TextInput(new File(filePath)));
+            nar.addInputPolled(new TextInput(new File(filePath)));
         } catch (Exception ex) {
             ex.printStackTrace();
         }
@@ -91,8 +91,8 @@ public class MultiOutputPanel extends JPanel implements HierarchyListener {
     public void output(Class channel, Object o) {
         Object category;
         if (o instanceof Task) {
-            Task t = (Task) o;
-            category = t.getRootTask();
+            long root = nar.memory.provenance.getRoot((Task) o);
+            category = (root < 0) ? null : ("#" + root);
         } else {
             category = null;
         }
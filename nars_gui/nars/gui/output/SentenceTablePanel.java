@@ -202,8 +202,8 @@ public class SentenceTablePanel extends TablePanel {
                 conf = truth.getConfidence();
             }
 
-            Task pt = t.getParentTask();
-            String parentTask = (pt != null) ? pt.toStringExternal() : "";
+            Term pt = t.getParentTerm();
+            String parentTask = (pt != null) ? pt.toString() : "";
 
             //TODO use table sort instead of formatting numbers with leading '0's
             data.addRow(new Object[]{
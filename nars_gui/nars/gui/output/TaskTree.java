@@ -47,6 +47,8 @@ public class TaskTree extends NPanel implements EventObserver, Runnable {
     DefaultMutableTreeNode root = new DefaultMutableTreeNode("Tasks");
     private DefaultTreeModel model;
     Map<Task, DefaultMutableTreeNode> nodes = new ConcurrentHashMap();
+    /** the nodes by the id of their task, for finding the parent of a task */
+    Map<Long, DefaultMutableTreeNode> ids = new ConcurrentHashMap();
     private final JTree tree;
     private final NAR nar;
     final WeakHashMap<Task, TaskLabel> components = new WeakHashMap<>();
@@ -112,6 +114,7 @@ public class TaskTree extends NPanel implements EventObserver, Runnable {
     protected void reset() {
         components.clear();
         nodes.clear();
+        ids.clear();
         toAdd.clear();
         toRemove.clear();
         root.removeAllChildren();
@@ -143,6 +146,7 @@ public class TaskTree extends NPanel implements EventObserver, Runnable {
         //String key = t.name().toString();
         DefaultMutableTreeNode d = new DefaultMutableTreeNode(t);
         nodes.put(t, d);
+        ids.put(t.id, d);
         return d;
     }
 
@@ -183,17 +187,12 @@ public class TaskTree extends NPanel implements EventObserver, Runnable {
                 needRefresh.remove(node);
             }
             nodes.remove(t);
+            ids.remove(t.id);
             components.remove(t);
             toAdd.remove(t);
         }
         
         for (Task t : toAdd) {
-            Task parent = t.getParentTask();
-            if (parent!=null && parent.equals(t)) {
-                //System.err.println(t + " has parentTask equal to itself");
-                parent = null;
-            }
-
             DefaultMutableTreeNode tnode = getNode(t);
             if (tnode != null) {
                 continue;
@@ -201,12 +200,12 @@ public class TaskTree extends NPanel implements EventObserver, Runnable {
 
             tnode = newNode(t);
 
-            if (parent == null) {
+            if (t.getParentTaskId() < 0) {
                 //System.out.println(tnode + " add to root");
                 root.add(tnode);                
                 needRefresh.add(root);
             } else {
-                DefaultMutableTreeNode pnode = getNode(parent);
+                DefaultMutableTreeNode pnode = ids.get(t.getParentTaskId());
 
                 if (pnode != null) {
                     //System.out.println(tnode + "Adding to: " + pnode);
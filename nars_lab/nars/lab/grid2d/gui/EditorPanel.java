@@ -179,25 +179,18 @@ public class EditorPanel extends JPanel {
                                     int i=Integer.valueOf(c[0]);
                                     int j=Integer.valueOf(c[1]);
                                     s.cells.readCells[i][j].charge=Float.valueOf(c[2]);
-                                    s.cells.writeCells[i][j].charge=Float.valueOf(c[2]);
                                     
                                     s.cells.readCells[i][j].chargeFront=Boolean.valueOf(c[3]);
-                                    s.cells.writeCells[i][j].chargeFront=Boolean.valueOf(c[3]);
                                     
                                     s.cells.readCells[i][j].conductivity=Float.valueOf(c[4]);
-                                    s.cells.writeCells[i][j].conductivity=Float.valueOf(c[4]);
                                     
                                     s.cells.readCells[i][j].height=Float.valueOf(c[5]);
-                                    s.cells.writeCells[i][j].height=Float.valueOf(c[5]);
                                     
                                     s.cells.readCells[i][j].is_solid=Boolean.valueOf(c[6]);
-                                    s.cells.writeCells[i][j].is_solid=Boolean.valueOf(c[6]);
                                     
                                     s.cells.readCells[i][j].light=Float.valueOf(c[7]);
-                                    s.cells.writeCells[i][j].light=Float.valueOf(c[7]);
                                     
                                     s.cells.readCells[i][j].logic=Logic.values()[Integer.valueOf(c[8])];
-                                    s.cells.writeCells[i][j].logic=Logic.values()[Integer.valueOf(c[8])];
                                     if(s.cells.readCells[i][j].logic==Logic.SWITCH) {
                                         if(TestChamber.staticInformation)
                                         s.nar.addInput("<"+c[11]+" --> switch>.");
@@ -221,7 +214,6 @@ public class EditorPanel extends JPanel {
                                     
                                     if(!c[9].equals("")) {
                                         s.cells.readCells[i][j].machine=Machine.values()[Integer.valueOf(c[9])];
-                                        s.cells.writeCells[i][j].machine=Machine.values()[Integer.valueOf(c[9])];
                                         if(s.cells.readCells[i][j].machine==Machine.Turret) {
                                             if(TestChamber.staticInformation)
                                                 s.nar.addInput("<"+c[11]+" --> firework>.");
@@ -244,11 +236,9 @@ public class EditorPanel extends JPanel {
                                         }
                                     } else {
                                         s.cells.readCells[i][j].machine=null;
-                                        s.cells.writeCells[i][j].machine=null;
                                     }
                                     
                                     s.cells.readCells[i][j].material=Material.values()[Integer.valueOf(c[10])];
-                                    s.cells.writeCells[i][j].material=Material.values()[Integer.valueOf(c[10])];
 
                                     if(s.cells.readCells[i][j].material==Material.Door) {
                                         if(TestChamber.staticInformation)
@@ -257,7 +247,6 @@ public class EditorPanel extends JPanel {
                                     }
 
                                     s.cells.readCells[i][j].name=c[11];
-                                    s.cells.writeCells[i][j].name=c[11];
                                     
                                     try {
                                         if(!c[11].equals("")) {
@@ -272,11 +261,10 @@ public class EditorPanel extends JPanel {
                                     
                                     
                                     s.cells.readCells[i][j].value=Float.valueOf(c[12]);
-                                    s.cells.writeCells[i][j].value=Float.valueOf(c[12]);
                                     
                                     s.cells.readCells[i][j].value2=Float.valueOf(c[13]);
-                                    s.cells.writeCells[i][j].value2=Float.valueOf(c[13]);
                                 }
+                                s.cells.changed();
                                 String[] objs=allText.split("OBJECTS")[1].split(";");
                                 ArrayList<GridObject> newobj=new ArrayList<>(); //new ArrayList we have to fill
                                 for(String obj : objs) {
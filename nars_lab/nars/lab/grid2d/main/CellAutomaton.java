@@ -0,0 +1,466 @@
+package nars.lab.grid2d.main;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import nars.lab.grid2d.main.Cell.Logic;
+import nars.lab.grid2d.main.Cell.Machine;
+import nars.lab.grid2d.main.Cell.Material;
+import nars.storage.Memory;
+
+/**
+ * The rules of the cells (wires, logic gates, bridges, doors and lights),
+ * stepped on a pair of CellGrids, read and write, which are swapped after
+ * each step.
+ *
+ * The logic, material and machine of each cell are compiled into bits of an
+ * integer code, so that a step compares no enums or strings. A step is split
+ * into bands of columns, which run on the fork-join pool when the grid is
+ * large. The uncertain bridges draw their random numbers before, in the order
+ * of the cells, and the inputs and firings of the bands are applied after, in
+ * the same order, so that a step does not depend on how it was split.
+ */
+public class CellAutomaton {
+
+    /** what a step does outside the cells */
+    public interface Effects {
+        public void input(String narsese);
+
+        /** a turret at (i,j) fires */
+        public void fire(int i, int j);
+    }
+
+    static final int WIRE = 1, SWITCH = 1 << 1, OFFSWITCH = 1 << 2, GATE = 1 << 3;
+    static final int NOT = 1 << 4, AND = 1 << 5, OR = 1 << 6, XOR = 1 << 7;
+    static final int BRIDGE = 1 << 8, UNCERTAIN = 1 << 9, LOAD = 1 << 10;
+    static final int DOOR = 1 << 11, LAMP = 1 << 12, TURRET = 1 << 13, WALL = 1 << 14;
+
+    private static final int ON = 0, OFF = 1, OPENED = 2, CLOSED = 3, FIRE = 4;
+    /** the phases run on the bands */
+    private static final int LOAD_CELLS = 0, GLOW = 1, STEP = 2, STORE_CELLS = 3;
+
+    public CellGrid read;
+    public CellGrid write;
+
+    public final int w;
+    public final int h;
+    private final int[] code;
+    private final int[] door;
+    /** the columns with an uncertain bridge */
+    private final boolean[] uncertainColumn;
+    private final boolean[] open;
+    /** the light which each cell passes on, to an opaque cell and to any other */
+    private final float[] glow, through;
+
+    /** cells per band, below which a step is not split */
+    public int bandCells = 16384;
+    private int columns;
+    private int[][] events = new int[0][];
+    private int[] eventCount = new int[0];
+
+    /** for the uncertain bridges */
+    private final Random random;
+    private int keyn;
+    private Cell[][] cells;
+    /** the cells of Hauto which were edited since they were last read, unless all are to be read */
+    private final boolean[] dirty;
+    private int[] dirtyCells = new int[16];
+    private int dirtyCount;
+    private boolean allDirty = true;
+
+    /** draws from Memory.randomNumber, as Hauto did */
+    public CellAutomaton(CellGrid cells) {
+        this(cells, Memory.randomNumber);
+    }
+
+    public CellAutomaton(CellGrid cells, Random random) {
+        this.random = random;
+        this.read = cells;
+        this.write = new CellGrid(cells.w, cells.h);
+        write.copyFrom(cells);
+        this.w = cells.w;
+        this.h = cells.h;
+        this.code = new int[w * h];
+        this.door = new int[w * h];
+        this.uncertainColumn = new boolean[w];
+        this.open = new boolean[w * h];
+        this.glow = new float[w * h];
+        this.through = new float[w * h];
+        this.dirty = new boolean[w * h];
+        compile();
+    }
+
+    public static int compile(int logic, int material, int machine) {
+        int c = 0;
+        if (logic == Logic.WIRE.ordinal()) c |= WIRE;
+        else if (logic == Logic.SWITCH.ordinal()) c |= SWITCH;
+        else if (logic == Logic.OFFSWITCH.ordinal()) c |= OFFSWITCH;
+        else if (logic == Logic.NOT.ordinal()) c |= GATE | NOT;
+        else if (logic == Logic.AND.ordinal()) c |= GATE | AND;
+        else if (logic == Logic.OR.ordinal()) c |= GATE | OR;
+        else if (logic == Logic.XOR.ordinal()) c |= GATE | XOR;
+        else if (logic == Logic.BRIDGE.ordinal()) c |= BRIDGE;
+        else if (logic == Logic.UNCERTAINBRIDGE.ordinal()) c |= BRIDGE | UNCERTAIN;
+        else if (logic == Logic.Load.ordinal()) c |= LOAD;
+        if (material == Material.Door.ordinal()) c |= DOOR;
+        else if (material == Material.StoneWall.ordinal()) c |= WALL;
+        if (machine == Machine.Light.ordinal()) c |= LAMP;
+        else if (machine == Machine.Turret.ordinal()) c |= LAMP | TURRET;
+        return c;
+    }
+
+    /** the codes of all the cells, after their logic, material or machine were changed in read */
+    public final void compile() {
+        Arrays.fill(uncertainColumn, false);
+        for (int k = 0; k < code.length; k++)
+            compile(k);
+    }
+
+    /** the code of a cell, after its logic, material or machine was changed in read */
+    public void compile(int k) {
+        code[k] = compile(read.logic[k], read.material[k], read.machine[k]);
+        door[k] = ((code[k] & DOOR) != 0) ? read.doorNumber(k) : -2;
+        if ((code[k] & UNCERTAIN) != 0)
+            uncertainColumn[k / h] = true;
+    }
+
+    /** a cell of Hauto was edited, so it is read again before the next step */
+    public void changed(int k) {
+        if (dirty[k] || allDirty)
+            return;
+        dirty[k] = true;
+        if (dirtyCount == dirtyCells.length)
+            dirtyCells = Arrays.copyOf(dirtyCells, dirtyCount * 2);
+        dirtyCells[dirtyCount++] = k;
+    }
+
+    /** any cell of Hauto may have been edited, so all are read again before the next step */
+    public void changed() {
+        allDirty = true;
+    }
+
+    /** read the cells of Hauto which were edited since the last step, or all of them after changed() */
+    public void load(Cell[][] cells) {
+        if (allDirty) {
+            this.cells = cells;
+            Arrays.fill(uncertainColumn, false);
+            run(LOAD_CELLS);
+            this.cells = null;
+            allDirty = false;
+        }
+        else {
+            for (int n = 0; n < dirtyCount; n++) {
+                final int k = dirtyCells[n];
+                loadCell(cells[k / h][k % h], k);
+            }
+        }
+        for (int n = 0; n < dirtyCount; n++)
+            dirty[dirtyCells[n]] = false;
+        dirtyCount = 0;
+    }
+
+    /** write the cells which the last step changed to the cells of Hauto, which held the state before it */
+    public void store(Cell[][] cells) {
+        this.cells = cells;
+        run(STORE_CELLS);
+        this.cells = null;
+    }
+
+    /** one step from read to write, which are then swapped; keyn is the door whose key the agent holds */
+    public void step(int keyn, Effects effects) {
+        this.keyn = keyn;
+        for (int i = 1; i < w - 1; i++) {
+            if (uncertainColumn[i]) {
+                for (int k = i * h + 1; k < (i + 1) * h - 1; k++) {
+                    if ((code[k] & UNCERTAIN) != 0)
+                        open[k] = random.nextDouble() > 0.5;
+                }
+            }
+        }
+
+        run(GLOW);
+        final int bands = run(STEP);
+
+        for (int b = 0; b < bands; b++) {
+            final int[] e = events[b];
+            for (int n = 0; n < eventCount[b]; n++) {
+                final int k = e[n] >> 3;
+                final String name = read.name[k];
+                switch (e[n] & 7) {
+                    case ON: effects.input("<" + name + " --> [on]>. :|:"); break;
+                    case OFF: effects.input("(--,<" + name + " --> [on]>). :|: %1.00;0.90%"); break;
+                    case OPENED: effects.input("<" + name + " --> [opened]>. :|:"); break;
+                    case CLOSED: effects.input("(--,<" + name + " --> [opened]>). :|: %1.00;0.90%"); break;
+                    case FIRE: effects.fire(k / h, k % h); break;
+                }
+            }
+        }
+
+        final CellGrid t = read;
+        read = write;
+        write = t;
+    }
+
+    /** runs a phase on each band; the number of bands */
+    private int run(int phase) {
+        final int inner = w - 2;
+        columns = Math.max(1, Math.min(inner, bandCells / Math.max(1, h)));
+        final int bands = Math.max(1, (inner + columns - 1) / columns);
+        if (phase == STEP) {
+            if (events.length < bands) {
+                events = Arrays.copyOf(events, bands);
+                eventCount = new int[bands];
+            }
+            Arrays.fill(eventCount, 0);
+        }
+        if (bands == 1)
+            band(phase, 0);
+        else
+            ForkJoinPool.commonPool().invoke(new Bands(phase, 0, bands));
+        return bands;
+    }
+
+    private class Bands extends RecursiveAction {
+        private final int phase, from, to;
+
+        Bands(int phase, int from, int to) {
+            this.phase = phase;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                band(phase, from);
+            }
+            else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Bands(phase, from, middle), new Bands(phase, middle, to));
+            }
+        }
+    }
+
+    private void band(int phase, int b) {
+        int from = 1 + b * columns;
+        int to = Math.min(w - 1, from + columns);
+        switch (phase) {
+            case LOAD_CELLS:
+                //the border is read too
+                if (from == 1) from = 0;
+                if (to == w - 1) to = w;
+                for (int i = from; i < to; i++)
+                    loadColumn(i);
+                break;
+            case GLOW:
+                if (from == 1) from = 0;
+                if (to == w - 1) to = w;
+                for (int i = from; i < to; i++)
+                    glowColumn(i);
+                break;
+            case STEP:
+                for (int i = from; i < to; i++)
+                    stepColumn(i, b);
+                break;
+            case STORE_CELLS:
+                for (int i = from; i < to; i++)
+                    storeColumn(i);
+                break;
+        }
+    }
+
+    private void loadColumn(int i) {
+        final Cell[] column = cells[i];
+        for (int j = 0; j < h; j++)
+            loadCell(column[j], i * h + j);
+    }
+
+    /** into both grids, as the next step may be from either */
+    private void loadCell(Cell c, int k) {
+        final CellGrid r = read, w = write;
+        r.charge[k] = w.charge[k] = c.charge;
+        r.value[k] = w.value[k] = c.value;
+        r.value2[k] = w.value2[k] = c.value2;
+        r.light[k] = w.light[k] = c.light;
+        r.solid[k] = w.solid[k] = c.is_solid;
+        r.chargeFront[k] = w.chargeFront[k] = c.chargeFront;
+        final int logic = c.logic.ordinal(), material = c.material.ordinal(), machine = (c.machine == null) ? -1 : c.machine.ordinal();
+        //compiled again only when changed; a renamed cell has a new String
+        if ((r.logic[k] != logic) || (r.material[k] != material) || (r.machine[k] != machine) || (r.name[k] != c.name)) {
+            r.logic[k] = w.logic[k] = (byte) logic;
+            r.material[k] = w.material[k] = (byte) material;
+            r.machine[k] = w.machine[k] = (byte) machine;
+            r.name[k] = w.name[k] = c.name;
+            code[k] = compile(logic, material, machine);
+            door[k] = ((code[k] & DOOR) != 0) ? r.doorNumber(k) : -2;
+        }
+        if ((code[k] & UNCERTAIN) != 0)
+            uncertainColumn[k / h] = true;
+    }
+
+    private void glowColumn(int i) {
+        final CellGrid r = read;
+        for (int k = i * h; k < (i + 1) * h; k++) {
+            final float g = Math.max(r.charge[k] * 0.2f, r.light[k]);
+            glow[k] = g;
+            through[k] = (r.solid[k] || ((code[k] & WALL) != 0)) ? 0.0f : g;
+        }
+    }
+
+    private void storeColumn(int i) {
+        //after the swap, write has the state before the step, which the cells have
+        final CellGrid r = read, w = write;
+        final Cell[] column = cells[i];
+        for (int j = 1; j < h - 1; j++) {
+            final int k = i * h + j;
+            if ((r.charge[k] == w.charge[k]) && (r.value[k] == w.value[k]) && (r.value2[k] == w.value2[k])
+                    && (r.light[k] == w.light[k]) && (r.solid[k] == w.solid[k]) && (r.chargeFront[k] == w.chargeFront[k]))
+                continue;
+            final Cell c = column[j];
+            c.charge = r.charge[k];
+            c.value = r.value[k];
+            c.value2 = r.value2[k];
+            c.light = r.light[k];
+            c.is_solid = r.solid[k];
+            c.chargeFront = r.chargeFront[k];
+        }
+    }
+
+    private void event(int b, int k, int kind) {
+        int[] e = events[b];
+        if (e == null)
+            e = events[b] = new int[16];
+        else if (eventCount[b] == e.length)
+            e = events[b] = Arrays.copyOf(e, e.length * 2);
+        e[eventCount[b]++] = (k << 3) | kind;
+    }
+
+    /** the rules for the cells of one column */
+    private void stepColumn(int i, int b) {
+        final CellGrid r = read, w = write;
+        final int[] code = this.code;
+        final float[] rcharge = r.charge, rvalue = r.value, rvalue2 = r.value2, rlight = r.light;
+        final boolean[] rsolid = r.solid, rfront = r.chargeFront;
+        final int h = this.h;
+        final int first = i * h + 1, end = (i + 1) * h - 1;
+        //the rules below change these for few cells
+        System.arraycopy(rcharge, first, w.charge, first, end - first);
+        System.arraycopy(rvalue, first, w.value, first, end - first);
+        System.arraycopy(rvalue2, first, w.value2, first, end - first);
+        System.arraycopy(rsolid, first, w.solid, first, end - first);
+        Arrays.fill(w.chargeFront, first, end, false);
+        for (int k = first; k < end; k++) {
+            final int left = k - h, right = k + h, up = k + 1, down = k - 1;
+            final int c = code[k];
+            final float charge = rcharge[k];
+            final boolean front = rfront[k];
+
+            if (((c & LAMP) != 0) && (charge == 1)) {
+                if (rlight[k] != 1.0f) {
+                    if ((c & TURRET) != 0)
+                        event(b, k, FIRE);
+                    event(b, k, ON);
+                }
+                w.light[k] = 1.0f;
+            }
+            else {
+                //only an opaque cell takes light from walls
+                final float[] g = (rsolid[k] || ((c & WALL) != 0)) ? glow : through;
+                w.light[k] = Math.max(Math.max(g[right], g[left]), Math.max(g[up], g[down])) / 1.1f;
+            }
+
+            //most cells are floor or wall, to which only the bridges below apply
+            final boolean active = (c & ~WALL) != 0;
+
+            if (active && ((c & DOOR) != 0)) {
+                if (wireCharged(k, 1.0f)) {
+                    w.solid[k] = false;
+                    if (rsolid[k])
+                        event(b, k, OPENED);
+                }
+                else if (!rsolid[k] && (keyn != door[k])) {
+                    w.solid[k] = true;
+                    event(b, k, CLOSED);
+                }
+            }
+
+            if (active && ((c & WIRE) != 0)) {
+                if (!front && (charge == 0) && wireCharged(k, 1.0f)) {
+                    w.charge[k] = 1.0f;
+                    w.chargeFront[k] = true;
+                }
+                if (!front && (charge == 1) && wireCharged(k, 0.0f)) {
+                    w.charge[k] = 0.0f;
+                    w.chargeFront[k] = true;
+                }
+                if (!front && (charge == 0) && ((((code[up] | code[down] | code[left] | code[right]) & SWITCH) != 0)
+                        || (((code[left] & GATE) != 0) && (rvalue[left] == 1)) || (((code[right] & GATE) != 0) && (rvalue[right] == 1)))) {
+                    w.charge[k] = 1.0f;
+                    w.chargeFront[k] = true;
+                }
+                if (!front && (charge == 1) && ((((code[up] | code[down] | code[left] | code[right]) & OFFSWITCH) != 0)
+                        || (((code[left] & GATE) != 0) && (rvalue[left] == 0)) || (((code[right] & GATE) != 0) && (rvalue[right] == 0)))) {
+                    w.charge[k] = 0.0f;
+                    w.chargeFront[k] = true;
+                }
+            }
+
+            if (active && ((c & GATE) != 0)) {
+                final float upCharge = rcharge[up], downCharge = rcharge[down];
+                if ((c & NOT) != 0) {
+                    if ((upCharge == 0) || (upCharge == 1))
+                        w.value[k] = (upCharge == 0) ? 1 : 0;
+                    if ((downCharge == 0) || (downCharge == 1))
+                        w.value[k] = (downCharge == 0) ? 1 : 0;
+                }
+                else if ((c & AND) != 0)
+                    w.value[k] = ((upCharge == 1) && (downCharge == 1)) ? 1.0f : 0.0f;
+                else if ((c & OR) != 0)
+                    w.value[k] = ((upCharge == 1) || (downCharge == 1)) ? 1.0f : 0.0f;
+                else
+                    w.value[k] = ((upCharge == 1) ^ (downCharge == 1)) ? 1.0f : 0.0f;
+            }
+
+            if (active && ((c & BRIDGE) != 0) && (((c & UNCERTAIN) == 0) || open[k])) {
+                if (rfront[left] && ((code[left] & WIRE) != 0))
+                    w.value[k] = rcharge[left];
+                else if (rfront[right] && ((code[right] & WIRE) != 0))
+                    w.value[k] = rcharge[right];
+
+                if (rfront[up] && ((code[up] & WIRE) != 0))
+                    w.value2[k] = rcharge[up];
+                else if (rfront[down] && ((code[down] & WIRE) != 0))
+                    w.value2[k] = rcharge[down];
+            }
+
+            if (!front && ((charge == 0) || (charge == 1)) && (((code[right] | code[left] | code[down]) & BRIDGE) != 0)) {
+                final float v = (charge == 0) ? 1 : 0;
+                if ((((code[right] & BRIDGE) != 0) && (rvalue[right] == v)) || (((code[left] & BRIDGE) != 0) && (rvalue[left] == v))
+                        || (((code[down] & BRIDGE) != 0) && (rvalue2[down] == v))) {
+                    w.charge[k] = v;
+                    w.chargeFront[k] = true;
+                }
+            }
+
+            if (active && ((c & LOAD) != 0)) {
+                w.charge[k] = Math.max(rcharge[up], Math.max(rcharge[down], Math.max(rcharge[left], rcharge[right])));
+                w.chargeFront[k] = false;
+            }
+
+            if (active && ((c & LAMP) != 0) && (rlight[k] == 1.0f) && (w.light[k] != 1.0f))
+                event(b, k, OFF);
+        }
+    }
+
+    /** whether a wire next to k has that charge */
+    private boolean wireCharged(int k, float charge) {
+        final int[] code = this.code;
+        final float[] rcharge = read.charge;
+        final int h = this.h;
+        return (((code[k + h] & WIRE) != 0) && (rcharge[k + h] == charge))
+                || (((code[k - h] & WIRE) != 0) && (rcharge[k - h] == charge))
+                || (((code[k + 1] & WIRE) != 0) && (rcharge[k + 1] == charge))
+                || (((code[k - 1] & WIRE) != 0) && (rcharge[k - 1] == charge));
+    }
+}
@@ -0,0 +1,104 @@
+package nars.lab.grid2d.main;
+
+import java.util.Arrays;
+import nars.lab.grid2d.main.Cell.Logic;
+import nars.lab.grid2d.main.Cell.Material;
+
+/**
+ * The state of a grid of cells, as one primitive array per field of Cell
+ * (structure of arrays). Cell (x,y) is at index x*h+y, so that its
+ * neighbours are at k-h (left), k+h (right), k+1 (up) and k-1 (down).
+ * Enums are stored by their ordinal; machine is -1 for none.
+ */
+public class CellGrid {
+
+    public final int w;
+    public final int h;
+
+    public final float[] charge;
+    public final float[] value;
+    public final float[] value2;
+    public final float[] light;
+    public final float[] height;
+    public final boolean[] solid;
+    public final boolean[] chargeFront;
+    public final byte[] logic;
+    public final byte[] material;
+    public final byte[] machine;
+    public final String[] name;
+
+    public CellGrid(int w, int h) {
+        this.w = w;
+        this.h = h;
+        final int n = w * h;
+        charge = new float[n];
+        value = new float[n];
+        value2 = new float[n];
+        light = new float[n];
+        height = new float[n];
+        solid = new boolean[n];
+        chargeFront = new boolean[n];
+        logic = new byte[n];
+        material = new byte[n];
+        machine = new byte[n];
+        name = new String[n];
+
+        //as a new Cell
+        Arrays.fill(charge, -0.5f);
+        Arrays.fill(height, 64);
+        Arrays.fill(logic, (byte) Logic.NotALogicBlock.ordinal());
+        Arrays.fill(material, (byte) Material.Empty.ordinal());
+        Arrays.fill(machine, (byte) -1);
+        Arrays.fill(name, "");
+    }
+
+    public int index(int x, int y) {
+        return x * h + y;
+    }
+
+    public int x(int k) {
+        return k / h;
+    }
+
+    public int y(int k) {
+        return k % h;
+    }
+
+    public void copyFrom(CellGrid g) {
+        System.arraycopy(g.charge, 0, charge, 0, charge.length);
+        System.arraycopy(g.value, 0, value, 0, value.length);
+        System.arraycopy(g.value2, 0, value2, 0, value2.length);
+        System.arraycopy(g.light, 0, light, 0, light.length);
+        System.arraycopy(g.height, 0, height, 0, height.length);
+        System.arraycopy(g.solid, 0, solid, 0, solid.length);
+        System.arraycopy(g.chargeFront, 0, chargeFront, 0, chargeFront.length);
+        System.arraycopy(g.logic, 0, logic, 0, logic.length);
+        System.arraycopy(g.material, 0, material, 0, material.length);
+        System.arraycopy(g.machine, 0, machine, 0, machine.length);
+        System.arraycopy(g.name, 0, name, 0, name.length);
+    }
+
+    /** index of the last cell of that name, or -1 */
+    public int find(String n) {
+        int found = -1;
+        for (int k = 0; k < name.length; k++) {
+            if (name[k].equals(n))
+                found = k;
+        }
+        return found;
+    }
+
+    /** as Hauto.doornumber */
+    public int doorNumber(int k) {
+        if (material[k] != Material.Door.ordinal())
+            return -2;
+        return Integer.parseInt(name[k].replaceAll("door", "").replaceAll("\\}", "").replaceAll("\\{", ""));
+    }
+
+    /** whether an agent can enter the cell, as Grid2DSpace.whyNonTraversible */
+    public boolean traversable(int k) {
+        final int m = material[k], l = logic[k];
+        return !solid[k] && (m != Material.StoneWall.ordinal()) && (m != Material.Water.ordinal())
+                && (l != Logic.BRIDGE.ordinal()) && (l != Logic.UNCERTAINBRIDGE.ordinal());
+    }
+}
@@ -0,0 +1,12 @@
+package nars.lab.grid2d.main;
+
+/**
+ * An environment in which the chamber operators (^go-to, ^pick, ^activate,
+ * ^deactivate) act: TestChamber with its window, or HeadlessChamber.
+ */
+public interface Chamber {
+
+    /** carries out an operation on the named object or place */
+    public void operate(String arg, String opname);
+
+}
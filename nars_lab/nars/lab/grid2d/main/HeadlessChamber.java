@@ -0,0 +1,404 @@
+package nars.lab.grid2d.main;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import nars.NAR;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.lab.grid2d.main.Cell.Logic;
+import nars.lab.grid2d.main.Level.Entity;
+import nars.lab.grid2d.operator.Activate;
+import nars.lab.grid2d.operator.Deactivate;
+import nars.lab.grid2d.operator.Goto;
+import nars.lab.grid2d.operator.Pick;
+import nars.language.Term;
+import nars.storage.Memory;
+import nars.util.EventEmitter.EventObserver;
+import nars.util.Events;
+
+/**
+ * TestChamber without a display: a level, the agent and the operators which
+ * move it, simulated in step with the reasoner, as fast as it runs. The cells
+ * are kept in primitive arrays and stepped by CellAutomaton. All the state is
+ * in the instance, so that several chambers can run in one JVM, each with its
+ * own NAR on its own thread. The automaton draws from a Random of its own, so
+ * the world of a chamber is reproducible from its seed; the reasoner is not
+ * when several run at once, since every NAR draws from the static
+ * Memory.randomNumber, which is also reseeded when any of them is reset.
+ *
+ * The chamber counts the operations executed and the cycle at which the
+ * environment reports that the goal holds, for benchmarking.
+ */
+public class HeadlessChamber implements Chamber {
+
+    private static final int SWITCH = Logic.SWITCH.ordinal(), OFFSWITCH = Logic.OFFSWITCH.ordinal();
+
+    public final NAR nar;
+    private final Narsese narsese;
+
+    private final CellAutomaton automaton;
+    private final List<Entity> entities;
+    private int entityID;
+
+    private int x, y;
+    private Entity inventory;
+    private int keyn = -1;
+    private int target = -1;
+    private String goal = "", opname = "", lastgone = "";
+    private boolean executed;
+
+    /** cycles between the updates of the grid and the agent, which also follow an operation at once */
+    public int period = 20;
+    /** false is minimal feedback */
+    public boolean complexFeedback = true;
+
+    private Term goalTerm;
+    private long goalTime = -1;
+    private final Map<String,Integer> operations = new TreeMap();
+    private long steps;
+    private long cycles;
+    private long nanos;
+
+    /** for the shortest path */
+    private final int[] parent, queue, visited;
+    private int visit;
+
+    public HeadlessChamber(NAR nar, Level level) {
+        this(nar, level, new Random(Memory.randomSeed));
+    }
+
+    /** @param random for the uncertain bridges, used by this chamber only */
+    public HeadlessChamber(NAR nar, Level level, Random random) {
+        this.nar = nar;
+        this.narsese = new Narsese(nar);
+        this.automaton = new CellAutomaton(level.cells, random);
+        this.entities = new ArrayList();
+        for (Entity e : level.entities)
+            entities.add(new Entity(e.kind, e.name, e.x, e.y));
+        this.entityID = level.maxID + 1;
+        this.x = level.agentX;
+        this.y = level.agentY;
+
+        final int n = automaton.w * automaton.h;
+        parent = new int[n];
+        queue = new int[n];
+        visited = new int[n];
+
+        nar.memory.addOperator(new Goto(this, "^go-to"));
+        nar.memory.addOperator(new Pick(this, "^pick"));
+        nar.memory.addOperator(new Activate(this, "^activate"));
+        nar.memory.addOperator(new Deactivate(this, "^deactivate"));
+
+        nar.memory.event.on(Events.FrameEnd.class, new EventObserver() {
+            @Override
+            public void event(Class event, Object[] arguments) {
+                if (executed || (nar.time() % period == 0))
+                    update();
+            }
+        });
+    }
+
+    /** input the goal, whose report by the environment ends run() */
+    public void setGoal(String statement) throws InvalidInputException {
+        goalTerm = narsese.parseTerm(statement);
+        goalTime = -1;
+        nar.addInput(statement + "! :|:");
+    }
+
+    /** steps the reasoner until the goal is reached, or for at most maxCycles; the cycles run */
+    public long run(long maxCycles) {
+        final long start = System.nanoTime();
+        long c = 0;
+        for (; (c < maxCycles) && !isGoalReached(); c++)
+            nar.step(1);
+        nanos += System.nanoTime() - start;
+        cycles += c;
+        return c;
+    }
+
+    public boolean isGoalReached() {
+        return goalTime >= 0;
+    }
+
+    /** the cycle at which the goal was reported, or -1 */
+    public long getGoalTime() {
+        return goalTime;
+    }
+
+    /** the number of executions of each operation */
+    public Map<String,Integer> getOperations() {
+        return operations;
+    }
+
+    public int getOperationCount() {
+        int n = 0;
+        for (int c : operations.values())
+            n += c;
+        return n;
+    }
+
+    public long getAutomatonSteps() {
+        return steps;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public CellGrid getCells() {
+        return automaton.read;
+    }
+
+    public List<Entity> getEntities() {
+        return entities;
+    }
+
+    public Entity getInventory() {
+        return inventory;
+    }
+
+    @Override
+    public void operate(String arg, String opname) {
+        executed = true;
+        final Integer n = operations.get(opname);
+        operations.put(opname, (n == null) ? 1 : n + 1);
+        this.opname = opname;
+        goal = arg;
+        if (opname.equals("go-to")) {
+            final CellGrid g = automaton.read;
+            final int k = g.find(arg);
+            if (k >= 0)
+                target = k;
+            for (Entity e : entities) {
+                if (e.name.equals(arg))
+                    target = g.index(e.x, e.y);
+            }
+        }
+    }
+
+    /** one step of the automaton and of the agent */
+    public void update() {
+        automaton.step(keyn, effects);
+        steps++;
+        updateAgent();
+        executed = false;
+    }
+
+    /** input from the environment, noting when it reports the goal */
+    private void input(String s) {
+        nar.addInput(s);
+        if ((goalTerm != null) && (goalTime < 0)) {
+            final int e = s.indexOf(". :|:");
+            if (e > 0) {
+                try {
+                    if (goalTerm.equals(narsese.parseTerm(s.substring(0, e))))
+                        goalTime = nar.time();
+                }
+                catch (InvalidInputException ex) {
+                }
+            }
+        }
+    }
+
+    private void updateAgent() {
+        if (inventory != null) {
+            inventory.x = x;
+            inventory.y = y;
+        }
+        if ((inventory == null) || !inventory.isKey())
+            keyn = -1;
+
+        final CellGrid g = automaton.read;
+        final int here = g.index(x, y);
+        final int next = (target < 0) ? -1 : nextStep(here, target);
+        if ((next >= 0) && (next != here)) {
+            x = g.x(next);
+            y = g.y(next);
+            return;
+        }
+
+        //at the destination, or it can not be reached
+        target = -1;
+        if (!goal.equals("") && !opname.equals(""))
+            arrived(here);
+        opname = "";
+    }
+
+    /** the operation on what is where the agent is, as in TestChamber */
+    private void arrived(int here) {
+        final CellGrid r = automaton.read, w = automaton.write;
+        Entity obi = null;
+        for (Entity e : entities) {
+            if (e.name.equals(goal) && (e.x == x) && (e.y == y)) {
+                obi = e;
+                break;
+            }
+        }
+        if ((obi == null) && !r.name[here].equals(goal))
+            return;
+
+        if (opname.equals("pick")) {
+            if (inventory != null) {
+                //we have to drop it
+                inventory.x = x;
+                inventory.y = y;
+                entities.add(inventory);
+            }
+            inventory = obi;
+            if (obi != null) {
+                entities.remove(obi);
+                if (obi.name.startsWith("{key")) {
+                    keyn = Integer.parseInt(obi.name.replaceAll("key", "").replace("}", "").replace("{", ""));
+                    for (int k = 0; k < r.solid.length; k++) {
+                        if (r.doorNumber(k) == keyn) {
+                            r.solid[k] = false;
+                            w.solid[k] = false;
+                        }
+                    }
+                }
+            }
+            input("<" + goal + " --> hold>. :|:");
+        }
+        else if (opname.equals("deactivate") || opname.equals("activate")) {
+            final boolean on = opname.equals("activate");
+            for (int k = 0; k < r.name.length; k++) {
+                if (r.name[k].equals(goal) && (r.logic[k] == (on ? OFFSWITCH : SWITCH))) {
+                    r.logic[k] = w.logic[k] = (byte) (on ? SWITCH : OFFSWITCH);
+                    r.charge[k] = w.charge[k] = on ? 1.0f : 0.0f;
+                    automaton.compile(k);
+                    if (complexFeedback)
+                        input(on ? "<" + goal + " --> [on]>. :|:" : "(--,<" + goal + " --> [on]>). :|: %1.00;0.90%");
+                }
+            }
+        }
+        if (opname.equals("go-to")) {
+            if (!goal.equals(lastgone))
+                input("<" + goal + " --> [at]>. :|:");
+            lastgone = goal;
+            if (goal.startsWith("{pizza")) {
+                Entity eaten = null;
+                for (Entity e : entities) {
+                    if (e.name.equals(goal))
+                        eaten = e;
+                }
+                if (eaten != null)
+                    entities.remove(eaten);
+                input("<" + goal + " --> [at]>. :|:");
+            }
+        }
+    }
+
+    /** the cell after from on a shortest path to to, from itself, or -1 if there is none */
+    private int nextStep(int from, int to) {
+        if (from == to)
+            return from;
+        final CellGrid g = automaton.read;
+        final int[] offsets = { g.h, -g.h, 1, -1 };
+        final int v = ++visit;
+        int head = 0, tail = 0;
+        queue[tail++] = from;
+        visited[from] = v;
+        while (head < tail) {
+            final int k = queue[head++];
+            if (k == to) {
+                int s = k;
+                while (parent[s] != from)
+                    s = parent[s];
+                return s;
+            }
+            for (int o : offsets) {
+                final int n = k + o;
+                if ((n < 0) || (n >= visited.length) || (visited[n] == v) || !g.traversable(n))
+                    continue;
+                if (((o == 1) || (o == -1)) && (g.x(n) != g.x(k)))
+                    continue;
+                visited[n] = v;
+                parent[n] = k;
+                queue[tail++] = n;
+            }
+        }
+        return -1;
+    }
+
+    /** the inputs of the cells, and the pizzas of turrets */
+    private final CellAutomaton.Effects effects = new CellAutomaton.Effects() {
+        @Override
+        public void input(String narsese) {
+            HeadlessChamber.this.input(narsese);
+        }
+
+        @Override
+        public void fire(int i, int j) {
+            if (!occupied(i, j)) {
+                entities.add(new Entity("Pizza", "{pizza" + entityID + "}", i, j));
+                entityID++;
+            }
+        }
+    };
+
+    private boolean occupied(int i, int j) {
+        if ((x == i) && (y == j))
+            return true;
+        for (Entity e : entities) {
+            if ((e.x == i) && (e.y == j))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        final double seconds = nanos / 1.0e9;
+        return "cycles=" + cycles
+                + " goal=" + (isGoalReached() ? String.valueOf(goalTime) : "no")
+                + " operations=" + getOperationCount() + ' ' + operations
+                + " automaton=" + steps
+                + " cycles/s=" + ((seconds > 0) ? Math.round(cycles / seconds) : 0);
+    }
+
+    /**
+     * Runs chambers in parallel, each with its own reasoner, and reports on each;
+     * the world of chamber i is seeded with i.
+     * Arguments: level [goal [cycles [chambers [file]]]], where the file has
+     * Narsese which is input before the goal, for example
+     * simple "<{light1} --> [on]>" 100000 4 knowledge.nal
+     */
+    public static void main(String[] args) throws Exception {
+        final String level = (args.length > 0) ? args[0] : "simple";
+        final String goal = (args.length > 1) ? args[1] : null;
+        final long cycles = (args.length > 2) ? Long.parseLong(args[2]) : 100000;
+        final int count = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
+        final String knowledge = (args.length > 4) ? new String(Files.readAllBytes(Paths.get(args[4])), StandardCharsets.UTF_8) : null;
+
+        final HeadlessChamber[] chambers = new HeadlessChamber[count];
+        final Thread[] threads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            final HeadlessChamber c = chambers[i] = new HeadlessChamber(TestChamber.newNAR(), Level.load(level), new Random(i));
+            if (knowledge != null)
+                c.nar.addInput(knowledge);
+            if (goal != null)
+                c.setGoal(goal);
+            threads[i] = new Thread(new Runnable() {
+                @Override public void run() {
+                    c.run(cycles);
+                }
+            }, "chamber " + i);
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+        for (int i = 0; i < count; i++)
+            System.out.println(level + " #" + i + ": " + chambers[i]);
+    }
+}
@@ -0,0 +1,121 @@
+package nars.lab.grid2d.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A level saved by the editor (.lvl): the cells, then "OBJECTS" and the
+ * agent, keys and pizzas, read without a Grid2DSpace.
+ */
+public class Level {
+
+    public static final String levelPath = "./nars_lab/nars/lab/grid2d/level/";
+
+    /** a key or pizza lying on the grid */
+    public static class Entity {
+        public final String kind;
+        public final String name;
+        public int x;
+        public int y;
+
+        public Entity(String kind, String name, int x, int y) {
+            this.kind = kind;
+            this.name = name;
+            this.x = x;
+            this.y = y;
+        }
+
+        public boolean isKey() {
+            return "Key".equals(kind);
+        }
+    }
+
+    public final CellGrid cells;
+    public final List<Entity> entities = new ArrayList();
+    public int agentX = -1, agentY = -1;
+    /** the highest number in the names of the level */
+    public int maxID = -1;
+
+    public Level(CellGrid cells) {
+        this.cells = cells;
+    }
+
+    /** a level by its file, or its name in the level directory */
+    public static Level load(String file) {
+        if (!new File(file).exists())
+            file = levelPath + file + (file.endsWith(".lvl") ? "" : ".lvl");
+        try {
+            return parse(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("no level " + file, e);
+        }
+    }
+
+    public static Level parse(String text) {
+        final String[] parts = text.split("OBJECTS");
+        final List<String[]> rows = new ArrayList();
+        int w = 0, h = 0;
+        for (String cell : parts[0].split(";")) {
+            final String[] c = cell.trim().split(",", -1);
+            if (c.length < 14)
+                continue;
+            rows.add(c);
+            w = Math.max(w, Integer.parseInt(c[0]) + 1);
+            h = Math.max(h, Integer.parseInt(c[1]) + 1);
+        }
+
+        final Level l = new Level(new CellGrid(w, h));
+        final CellGrid g = l.cells;
+        for (String[] c : rows) {
+            String name = c[11];
+            if (!name.equals("") && !name.contains("{"))
+                name = "{" + name + "}";
+            final int k = g.index(Integer.parseInt(c[0]), Integer.parseInt(c[1]));
+            g.charge[k] = Float.parseFloat(c[2]);
+            g.chargeFront[k] = Boolean.parseBoolean(c[3]);
+            g.height[k] = Float.parseFloat(c[5]);
+            g.solid[k] = Boolean.parseBoolean(c[6]);
+            g.light[k] = Float.parseFloat(c[7]);
+            g.logic[k] = Byte.parseByte(c[8]);
+            g.machine[k] = c[9].equals("") ? -1 : Byte.parseByte(c[9]);
+            g.material[k] = Byte.parseByte(c[10]);
+            g.name[k] = name;
+            g.value[k] = Float.parseFloat(c[12]);
+            g.value2[k] = Float.parseFloat(c[13]);
+            l.noteID(name);
+        }
+
+        if (parts.length > 1) {
+            for (String obj : parts[1].split(";")) {
+                final String[] val = obj.trim().split(",", -1);
+                if (val.length < 7)
+                    continue;
+                String name = val[1];
+                if (!name.equals("") && !name.contains("{"))
+                    name = "{" + name + "}";
+                final int x = Integer.parseInt(val[5]);
+                final int y = Integer.parseInt(val[6]);
+                if (val[0].equals("GridAgent")) {
+                    l.agentX = x;
+                    l.agentY = y;
+                }
+                else if (val[0].equals("Key") || val[0].equals("Pizza")) {
+                    l.entities.add(new Entity(val[0], name, x, y));
+                    l.noteID(name);
+                }
+            }
+        }
+        return l;
+    }
+
+    private void noteID(String name) {
+        final String digits = name.replaceAll("[^0-9]", "");
+        if (!digits.isEmpty() && (digits.length() < 10))
+            maxID = Math.max(maxID, Integer.parseInt(digits));
+    }
+}
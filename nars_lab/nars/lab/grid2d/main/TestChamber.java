@@ -4,7 +4,6 @@ import java.util.List;
 import nars.util.EventEmitter.EventObserver;
 import nars.util.Events;
 import nars.NAR;
-import nars.config.Parameters;
 import nars.config.Plugins;
 import nars.lab.grid2d.main.Cell.Logic;
 import nars.lab.grid2d.main.Cell.Material;
@@ -21,7 +20,7 @@ import nars.lab.grid2d.operator.Pick;
 import nars.gui.NARSwing;
 import processing.core.PVector;
 
-public class TestChamber {
+public class TestChamber implements Chamber {
 
     public static boolean staticInformation=false;
     //TIMING
@@ -37,13 +36,7 @@ public class TestChamber {
     
     public static void main(String[] args) {
 
-        //set NAR architecture parameters:
-        //builder...
-        Parameters.CONSIDER_NEW_OPERATION_BIAS = 1.0f; //not that much events in testchamber anyway
-        Parameters.SEQUENCE_BAG_SIZE = 100; //but many possible different ways to achieve certain things
-        NAR nar = new NAR();
-        nar.param.decisionThreshold.set(0.51);
-        //set NAR runtime parmeters:  
+        NAR nar = newNAR();
 
         /*for(NAR.PluginState pluginstate : nar.getPlugins()) {
             if(pluginstate.plugin instanceof InternalExperience || pluginstate.plugin instanceof FullInternalExperience) {
@@ -53,8 +46,6 @@ public class TestChamber {
   
         //nar.addPlugin(new TemporalParticlePlanner());
         
-        //(nar.param).duration.set(10);
-        (nar.param).noiseLevel.set(0); 
         new NARSwing(nar);
 
         new TestChamber(nar);
@@ -65,6 +56,22 @@ public class TestChamber {
 
     
     
+    /** a reasoner set up for the chamber */
+    public static NAR newNAR() {
+        //set NAR architecture parameters:
+        //builder...
+        Plugins p = new Plugins();
+        p.param.newOperationBias.set(1.0f); //not that much events in testchamber anyway
+        p.param.sequenceBagSize.set(100); //but many possible different ways to achieve certain things
+        NAR nar = new NAR(p);
+        nar.param.decisionThreshold.set(0.51);
+        //set NAR runtime parmeters:  
+
+        //(nar.param).duration.set(10);
+        (nar.param).noiseLevel.set(0); 
+        return nar;
+    }
+
     static Grid2DSpace space;
     
     public PVector lasttarget = new PVector(5, 25); //not work
@@ -108,6 +115,16 @@ public class TestChamber {
             }
         //}
     }
+    @Override
+    public void operate(String arg, String opname) {
+        executed=true;
+        if ("go-to".equals(opname))
+            executed_going=true;
+        System.out.println("Executed: ^" + opname);
+        System.out.println(" --- " + arg);
+        operateObj(arg, opname);
+    }
+
     boolean invalid=false;
     public static boolean active=true;
     public static boolean executed=false;
@@ -273,7 +290,7 @@ public class TestChamber {
                                                     for(int j=0;j<cells.w;j++) {
                                                         if(Hauto.doornumber(cells.readCells[i][j])==keyn) {
                                                             cells.readCells[i][j].is_solid=false;
-                                                            cells.writeCells[i][j].is_solid=false;
+                                                            cells.changed(i, j);
                                                         }
                                                     }
                                                 }
@@ -288,9 +305,8 @@ public class TestChamber {
                                                 if(cells.readCells[i][j].name.equals(goal)) {
                                                     if(cells.readCells[i][j].logic==Logic.SWITCH) {
                                                         cells.readCells[i][j].logic=Logic.OFFSWITCH;
-                                                        cells.writeCells[i][j].logic=Logic.OFFSWITCH;
                                                         cells.readCells[i][j].charge=0.0f;
-                                                        cells.writeCells[i][j].charge=0.0f;
+                                                        cells.changed(i, j);
                                                         if(ComplexFeedback)
                                                             nar.addInput("(--,<"+goal+" --> [on]>). :|: %1.00;0.90%");
                                                     }
@@ -306,9 +322,8 @@ public class TestChamber {
                                                 if(cells.readCells[i][j].name.equals(goal)) {
                                                     if(cells.readCells[i][j].logic==Logic.OFFSWITCH) {
                                                         cells.readCells[i][j].logic=Logic.SWITCH;
-                                                        cells.writeCells[i][j].logic=Logic.SWITCH;
                                                         cells.readCells[i][j].charge=1.0f;
-                                                        cells.writeCells[i][j].charge=1.0f;
+                                                        cells.changed(i, j);
                                                         if(ComplexFeedback)
                                                             nar.addInput("<"+goal+" --> [on]>. :|:");
                                                     }
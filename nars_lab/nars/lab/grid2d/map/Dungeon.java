@@ -20,10 +20,12 @@ public class Dungeon {
 
     double ChanceRoom = 75;
     private final Cell[][] _dungeonMap;
+    private final Hauto _hauto;
     public int Corridors;
 
     public Dungeon(Hauto a) {
         this._dungeonMap = a.readCells;
+        this._hauto = a;
         _xsize = xmax = a.w;
         _ysize = ymax = a.h;
     }
@@ -43,6 +45,7 @@ public class Dungeon {
 
             _dungeonMap[x][y].height = h;
             _dungeonMap[x][y].material = m; 
+            _hauto.changed(x, y);
         }
     
 
@@ -15,7 +15,6 @@ public class Maze {
 	public static void buildMaze(Hauto m, int x1, int y1, int x2, int y2) {
             m.forEach(x1,y1,x2,y2, new SetMaterial(Material.StoneWall));
             buildInnerMaze(m,x1+1,y1+1,x2-1,y2-1);
-            m.copyReadToWrite();
 	}
 	
 	public static void buildInnerMaze(Hauto m, int x1, int y1, int x2, int y2) {
@@ -45,7 +44,6 @@ public class Maze {
                                 m.at(x, y, new SetMaterial(Material.DirtFloor));
                                 m.at(x+dx, y+dy, new SetMaterial(Material.DirtFloor));
                                m.readCells[x][y].setHeight( (int)(Math.random() * 24 + 1));
-                                m.writeCells[x][y].setHeight( (int)(Math.random() * 24 + 1));
                                 finishedCount++;
                             }
 			}
@@ -23,7 +23,7 @@ package nars.lab.grid2d.operator;
 import java.util.List;
 import nars.storage.Memory;
 import nars.entity.Task;
-import nars.lab.grid2d.main.TestChamber;
+import nars.lab.grid2d.main.Chamber;
 import nars.language.Term;
 import nars.operator.Operation;
 import nars.operator.Operator;
@@ -34,8 +34,8 @@ import nars.operator.Operator;
  */
 public class Goto extends Operator {
 
-    TestChamber chamb;
-    public Goto(TestChamber chamb, String name) {
+    Chamber chamb;
+    public Goto(Chamber chamb, String name) {
         super(name);
         this.chamb=chamb;
     }
@@ -45,12 +45,8 @@ public class Goto extends Operator {
         //Operation content = (Operation) task.getContent();
         //Operator op = content.getOperator();
          
-        TestChamber.executed=true;
-        TestChamber.executed_going=true;
-        System.out.println("Executed: " + this);
         for (Term t : args) {
-            System.out.println(" --- " + t);
-            chamb.operateObj(t.toString(),"go-to");
+            chamb.operate(t.toString(),"go-to");
             break;
         }
         
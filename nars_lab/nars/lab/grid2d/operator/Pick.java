@@ -23,7 +23,7 @@ package nars.lab.grid2d.operator;
 import java.util.List;
 import nars.storage.Memory;
 import nars.entity.Task;
-import nars.lab.grid2d.main.TestChamber;
+import nars.lab.grid2d.main.Chamber;
 import nars.language.Term;
 import nars.operator.Operation;
 import nars.operator.Operator;
@@ -34,8 +34,8 @@ import nars.operator.Operator;
  */
 public class Pick extends Operator {
 
-    TestChamber chamb;
-    public Pick(TestChamber chamb, String name) {
+    Chamber chamb;
+    public Pick(Chamber chamb, String name) {
         super(name);
         this.chamb=chamb;
     }
@@ -45,11 +45,8 @@ public class Pick extends Operator {
         //Operation content = (Operation) task.getContent();
         //Operator op = content.getOperator();
          
-        TestChamber.executed=true;
-        System.out.println("Executed: " + this);
         for (Term t : args) {
-            System.out.print(" --- " + t);
-            chamb.operateObj(t.toString(),"pick");
+            chamb.operate(t.toString(),"pick");
             break;
         }
         
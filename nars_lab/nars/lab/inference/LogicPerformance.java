@@ -68,7 +68,7 @@ public class LogicPerformance {
             //String x = toString() + "\n";
             Sentence bestSolution = t.getBestSolution();            
             Sentence parentBelief = t.getParentBelief();
-            Task parentTask = t.getParentTask();
+            Term parentTerm = t.getParentTerm();
             
             addVertex(t);
             at(t, t.getCreationTime());
@@ -98,20 +98,10 @@ public class LogicPerformance {
                 addEdge(parentBelief, t, new UniqueEdge("belief"));
                 at(parentBelief, parentBelief.getCreationTime());
             }
-            if (parentTask!=null) {
-                //x += "  parentTask=" + parentTask + " @ " + parentTask.getCreationTime() + "\n";
-                if (t.equals(parentTask)) {
-                    //System.err.println(t + " equals parentTask: " + parentTask);
-                    //System.err.println(t.getExplanation());
-                }
-                else {
-                    addVertex(parentTask);
-                    addEdge(parentTask, t, new UniqueEdge("parent"));
-
-                    if (maxLevels > 0)
-                        explain(parentTask, maxLevels-1);
-                }
-                            
+            if (parentTerm!=null) {
+                //the parent task itself is not kept, only its term
+                addVertex(parentTerm);
+                addEdge(parentTerm, t, new UniqueEdge("parent"));
             }
             else {
                 addVertex("INPUT");
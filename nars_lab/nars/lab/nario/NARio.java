@@ -594,9 +594,6 @@ public class NARio extends Run {
                                     
                                     Task task = operation.getTask();
                                     //if ((task.getParentTask()!=null) && (task.getParentBelief()!=null)) {
-                                        Task parent = task.getParentTask();
-                                        Task root = task.getRootTask();
-                                        
                                         //System.out.print(nar.getTime() + ": " + operation.getTask() + " caused by " + task.getParentBelief() + ", parent=" + parent);
                                         
                                         /*if (parent!=root) {
@@ -221,13 +221,12 @@ public class MultipleExecutionManager {
 
     }
 
-    protected Execution getExecution(final Task parent) {
+    protected Execution getExecution(final long parent) {
+        if (parent < 0)
+            return null;
         for (final Execution t : tasks) {
-            Task pt = t.t.getParentTask();
-            if (pt != null) {
-                if (pt.equals(parent)) {
-                    return t;
-                }
+            if (t.t.getParentTaskId() == parent) {
+                return t;
             }
         }
         return null;
@@ -235,7 +234,7 @@ public class MultipleExecutionManager {
 
     public boolean addExecution(final Concept c, final Task t) {
 
-        Execution existingExecutable = getExecution(t.getParentTask());
+        Execution existingExecutable = getExecution(t.getParentTaskId());
         boolean valid = true;
         if (existingExecutable != null) {
 
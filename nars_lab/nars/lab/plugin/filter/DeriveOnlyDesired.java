@@ -6,8 +6,14 @@ package nars.lab.plugin.filter;
 
 import nars.control.DerivationContext;
 import nars.control.DerivationContext.DerivationFilter;
+import nars.entity.BudgetValue;
 import nars.entity.Sentence;
+import nars.entity.Stamp;
 import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Symbols;
+import nars.language.Conjunction;
+import nars.language.Term;
 
 /**
 <patham9_> desire value form the entire motivation management, what i did was allowing only input judgements and derived goals (no derived judgements) :D
@@ -23,5 +29,13 @@ public class DeriveOnlyDesired implements DerivationFilter {
         }
         return null;        
     }
+
+    @Override
+    public String rejectEarly(DerivationContext nal, Term content, char punctuation, TruthValue truth, BudgetValue budget, Stamp stamp, boolean revised, boolean single) {
+        //the sentence keeps an eternal stamp, unless it cuts a trailing interval from a sequence
+        if ((punctuation != Symbols.GOAL_MARK) && stamp.isEternal() && !(content instanceof Conjunction))
+            return "Not Goal";
+        return null;
+    }
     
 }
@@ -94,8 +94,7 @@ public class PerceptionAccel implements Plugin, EventEmitter.EventObserver {
                 evB[u]=l;
                 u++;
             }
-            st.baseLength=evB.length;
-            st.evidentialBase=evB;
+            st.setEvidentialBase(evB);
             
             boolean eventBufferDidNotHaveSoMuchEvents=false;
             for(int i=0;i<relterms.length;i++) {
@@ -0,0 +1,52 @@
+package nars.core;
+
+import java.util.Random;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.WorkingCycle.Activation;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.inference.BudgetFunctions;
+import nars.inference.BudgetFunctions.Activating;
+import nars.io.Narsese.InvalidInputException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ActivationTest {
+
+    /** a composed activation has the same effect as the activations applied one by one */
+    @Test public void testComposition() {
+        Random r = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            BudgetValue stepwise = new BudgetValue(r.nextFloat(), r.nextFloat(), r.nextFloat());
+            BudgetValue batched = stepwise.clone();
+            Activation a = new Activation(null);
+            for (int j = r.nextInt(10); j >= 0; j--) {
+                BudgetValue amount = new BudgetValue(r.nextFloat(), r.nextFloat(), r.nextFloat());
+                BudgetFunctions.activate(stepwise, amount, Activating.TaskLink);
+                a.add(amount);
+            }
+            a.apply(batched);
+            assertEquals(stepwise.getPriority(), batched.getPriority(), 1.0e-5f);
+            assertEquals(stepwise.getDurability(), batched.getDurability(), 1.0e-5f);
+            assertEquals(stepwise.getQuality(), batched.getQuality(), 0);
+        }
+    }
+
+    @Test public void testBatchedDeduction() throws InvalidInputException {
+        NAR n = new NAR(new Plugins());
+        n.param.batchActivation = true;
+        n.addInput("<(&,a,d) --> b>.\n<b --> c>.\n<(&,a,d) --> c>?\n");
+        n.run(200);
+
+        assertEquals("applied at the end of each cycle", 0, n.memory.concepts.getPendingActivations());
+        Concept ac = n.concept("<(&,a,d) --> c>");
+        assertTrue(ac != null);
+        boolean derived = false;
+        for (Task t : ac.beliefs)
+            derived |= (t.sentence.truth.getConfidence() > 0.8f) && (t.sentence.truth.getConfidence() < 0.82f);
+        assertTrue(derived);
+    }
+}
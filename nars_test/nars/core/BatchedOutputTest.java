@@ -0,0 +1,109 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.BudgetValue;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Output.ECHO;
+import nars.io.Output.OUT;
+import nars.io.Symbols;
+import nars.language.Term;
+import nars.util.Events.FrameEnd;
+import nars.util.Events.FrameStart;
+import nars.web.BatchedOutput;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BatchedOutputTest {
+
+    final NAR n = new NAR(new Plugins());
+    final List<String> messages = new ArrayList();
+    boolean backlogged;
+
+    BatchedOutput output(int capacity) {
+        return new BatchedOutput(n, capacity) {
+            @Override public void send(String message) {
+                messages.add(message);
+            }
+            @Override public boolean isBacklogged() {
+                return backlogged;
+            }
+        };
+    }
+
+    Task task(String term, float priority) {
+        Sentence s = new Sentence(new Term(term), Symbols.JUDGMENT_MARK, new TruthValue(1f, 0.9f), new Stamp(n.memory));
+        return new Task(s, new BudgetValue(priority, 0.5f, 0.5f));
+    }
+
+    static void frame(BatchedOutput b, Object... echoes) {
+        b.event(FrameStart.class, new Object[0]);
+        for (Object e : echoes)
+            b.event(ECHO.class, new Object[] { e });
+        b.event(FrameEnd.class, new Object[0]);
+    }
+
+    /** the output of a frame is sent as one message */
+    @Test public void testCoalescing() {
+        BatchedOutput b = output(8);
+        frame(b, "a", "b", "c");
+        frame(b);
+        frame(b, "d");
+        assertEquals(2, messages.size());
+        assertEquals("ECHO: a\nECHO: b\nECHO: c", messages.get(0));
+        assertEquals("ECHO: d", messages.get(1));
+    }
+
+    /** a full buffer sheds the lowest priority tasks, and sends the rest in the order they arrived */
+    @Test public void testShedding() {
+        BatchedOutput b = output(3);
+        b.event(FrameStart.class, new Object[0]);
+        b.event(OUT.class, new Object[] { task("low", 0.2f) });
+        b.event(ECHO.class, new Object[] { "a" });
+        b.event(OUT.class, new Object[] { task("mid", 0.5f) });
+        b.event(OUT.class, new Object[] { task("lowest", 0.1f) });
+        b.event(OUT.class, new Object[] { task("high", 0.9f) });
+        assertEquals(3, b.getBuffered());
+        assertEquals(2, b.getDropped());
+        b.event(FrameEnd.class, new Object[0]);
+
+        assertEquals(1, messages.size());
+        String[] lines = messages.get(0).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("ECHO: a", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("OUT: mid."));
+        assertTrue(lines[2], lines[2].startsWith("OUT: high."));
+    }
+
+    /** while the receiver is backlogged, frames are merged into the next message */
+    @Test public void testBacklog() {
+        BatchedOutput b = output(8);
+        backlogged = true;
+        frame(b, "a");
+        frame(b, "b");
+        assertTrue(messages.isEmpty());
+        assertEquals(2, b.getBuffered());
+
+        backlogged = false;
+        frame(b, "c");
+        assertEquals(1, messages.size());
+        assertEquals("ECHO: a\nECHO: b\nECHO: c", messages.get(0));
+    }
+
+    /** output outside a frame is sent at once, since no frame will end */
+    @Test public void testPaused() {
+        BatchedOutput b = output(8);
+        backlogged = true;
+        frame(b, "a");
+        b.event(ECHO.class, new Object[] { "b" });
+        assertEquals(1, messages.size());
+        assertEquals("ECHO: a\nECHO: b", messages.get(0));
+        assertEquals(0, b.getBuffered());
+    }
+}
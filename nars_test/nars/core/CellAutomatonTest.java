@@ -0,0 +1,84 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import nars.lab.grid2d.main.CellAutomaton;
+import nars.lab.grid2d.main.CellGrid;
+import nars.lab.grid2d.main.Level;
+import nars.storage.Memory;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CellAutomatonTest {
+
+    /** a step split into bands, which may run in parallel, gives the cells, inputs and random draws of an unsplit one */
+    @Test public void testBands() {
+        for (String name : new String[] { "freq_generator", "uncertain_state", "switch_door_switch_light" }) {
+            CellGrid g = tile(Level.load(name).cells, 4);
+            CellAutomaton whole = new CellAutomaton(g);
+            CellGrid copy = new CellGrid(g.w, g.h);
+            copy.copyFrom(g);
+            CellAutomaton split = new CellAutomaton(copy);
+            split.bandCells = 3 * g.h;
+
+            List<String> wholeInputs = new ArrayList(), splitInputs = new ArrayList();
+            for (int s = 0; s < 100; s++) {
+                Memory.randomNumber.setSeed(s);
+                whole.step(-1, effects(wholeInputs));
+                long drawn = Memory.randomNumber.nextLong();
+                Memory.randomNumber.setSeed(s);
+                split.step(-1, effects(splitInputs));
+                assertEquals(drawn, Memory.randomNumber.nextLong());
+
+                assertArrayEquals(whole.read.charge, split.read.charge, 0);
+                assertArrayEquals(whole.read.value, split.read.value, 0);
+                assertArrayEquals(whole.read.value2, split.read.value2, 0);
+                assertArrayEquals(whole.read.light, split.read.light, 0);
+                assertTrue(Arrays.equals(whole.read.solid, split.read.solid));
+                assertTrue(Arrays.equals(whole.read.chargeFront, split.read.chargeFront));
+                assertEquals(wholeInputs, splitInputs);
+            }
+        }
+    }
+
+    static CellAutomaton.Effects effects(final List<String> inputs) {
+        return new CellAutomaton.Effects() {
+            @Override public void input(String narsese) {
+                inputs.add(narsese);
+            }
+            @Override public void fire(int i, int j) {
+                inputs.add("fire " + i + " " + j);
+            }
+        };
+    }
+
+    /** copies of the inside of a level, side by side */
+    static CellGrid tile(CellGrid g, int n) {
+        int iw = g.w - 2, ih = g.h - 2;
+        CellGrid t = new CellGrid(iw * n + 2, ih * n + 2);
+        for (int ti = 0; ti < n; ti++) {
+            for (int tj = 0; tj < n; tj++) {
+                for (int i = 1; i < g.w - 1; i++) {
+                    for (int j = 1; j < g.h - 1; j++) {
+                        int k = g.index(i, j), q = t.index(ti * iw + i, tj * ih + j);
+                        t.charge[q] = g.charge[k];
+                        t.chargeFront[q] = g.chargeFront[k];
+                        t.height[q] = g.height[k];
+                        t.solid[q] = g.solid[k];
+                        t.light[q] = g.light[k];
+                        t.logic[q] = g.logic[k];
+                        t.material[q] = g.material[k];
+                        t.machine[q] = g.machine[k];
+                        t.name[q] = g.name[k];
+                        t.value[q] = g.value[k];
+                        t.value2[q] = g.value2[k];
+                    }
+                }
+            }
+        }
+        return t;
+    }
+}
@@ -0,0 +1,122 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.config.Plugins;
+import nars.config.RuntimeParameters;
+import nars.control.WorkingCycle;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.entity.TaskLink;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.language.Term;
+import nars.storage.LevelBag;
+import nars.storage.Memory;
+import nars.storage.OffHeapConceptStore;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConceptStoreTest {
+
+    static List<String> beliefs(Concept c) {
+        List<String> l = new ArrayList();
+        for (Task t : c.beliefs)
+            l.add(t.sentence.toString());
+        return l;
+    }
+
+    static Term term(NAR n, String s) throws InvalidInputException {
+        return new Narsese(n).parseTerm(s);
+    }
+
+    static Concept forget(NAR n, Concept c) {
+        n.memory.concepts.takeOut(c.term);
+        n.memory.concepts.conceptRemoved(c);
+        return c;
+    }
+
+    @Test public void testRoundTrip() throws InvalidInputException {
+        NAR n = new NAR(new Plugins());
+        OffHeapConceptStore store = new OffHeapConceptStore(4096);
+        n.memory.concepts.setStore(store);
+        n.addInput("<a --> b>.\n<b --> c>.\n<a --> c>?\n");
+        n.run(50);
+
+        Concept before = forget(n, n.concept("<a --> b>"));
+        assertEquals(1, store.size());
+        assertTrue(n.concept("<a --> b>") == null);
+
+        Concept after = n.memory.conceptualize(new BudgetValue(0.1f, 0.1f, 0.1f), before.term);
+        assertTrue(after != before);
+        assertEquals(0, store.size());
+        assertEquals(beliefs(before), beliefs(after));
+        assertEquals(before.termLinks.size(), after.termLinks.size());
+        assertEquals(before.taskLinks.size(), after.taskLinks.size());
+        assertEquals("budget continues from the stored one", before.getQuality(), after.getQuality(), 1.0e-5f);
+    }
+
+    /** a task in a table and the target of a task link are restored as one Task, with its provenance */
+    @Test public void testSharedTasks() throws InvalidInputException {
+        NAR n = new NAR(new Plugins());
+        n.memory.concepts.setStore(new OffHeapConceptStore(4096));
+        n.addInput("<a --> b>.\n<b --> c>.\n<a --> c>?\n");
+        n.run(50);
+
+        Concept before = forget(n, n.concept("<a --> b>"));
+        Concept after = n.memory.conceptualize(new BudgetValue(0.1f, 0.1f, 0.1f), before.term);
+        Task belief = after.beliefs.get(0);
+        assertEquals(before.beliefs.get(0).id, belief.id);
+        assertEquals(before.beliefs.get(0).getParentTaskId(), belief.getParentTaskId());
+        int shared = 0;
+        for (TaskLink l : after.taskLinks.values()) {
+            if (l.targetTask == belief)
+                shared++;
+        }
+        assertEquals(1, shared);
+    }
+
+    @Test public void testSpaceIsReused() throws InvalidInputException {
+        NAR n = new NAR(new Plugins());
+        OffHeapConceptStore store = new OffHeapConceptStore(4096);
+        n.memory.concepts.setStore(store);
+        n.addInput("<a --> b>.\n<b --> c>.\n<a --> c>?\n");
+        n.run(50);
+
+        Term[] terms = { term(n, "a"), term(n, "b"), term(n, "<a --> b>"), term(n, "<b --> c>") };
+        for (int i = 0; i < 1000; i++) {
+            Term t = terms[i % terms.length];
+            forget(n, n.memory.concept(t));
+            n.memory.conceptualize(new BudgetValue(0.1f, 0.1f, 0.1f), t);
+        }
+        assertEquals(0, store.size());
+        assertEquals(0, store.getLiveBytes());
+        assertTrue(store.getAllocatedBytes() <= 2 * 4096);
+    }
+
+    /** with a small concept bag, concepts beyond it are kept in the store and brought back */
+    @Test public void testSmallConceptBag() throws InvalidInputException {
+        NAR n = new NAR(new Plugins()) {
+            @Override public Memory NewMemory(RuntimeParameters p) {
+                return new Memory(p,
+                        new WorkingCycle(new LevelBag(Parameters.CONCEPT_BAG_LEVELS, 8)),
+                        new LevelBag<>(Parameters.NOVEL_TASK_BAG_LEVELS, Parameters.NOVEL_TASK_BAG_SIZE),
+                        new LevelBag<>(Parameters.SEQUENCE_BAG_LEVELS, Parameters.SEQUENCE_BAG_SIZE));
+            }
+        };
+        OffHeapConceptStore store = new OffHeapConceptStore();
+        n.memory.concepts.setStore(store);
+        for (int i = 0; i < 10; i++)
+            n.addInput("<x" + i + " --> y" + i + ">.");
+        n.run(100);
+
+        assertTrue(n.memory.concepts.concepts.size() <= 8);
+        assertTrue(store.size() > 0);
+        Concept c = n.memory.conceptualize(new BudgetValue(0.5f, 0.5f, 0.5f), term(n, "<x0 --> y0>"));
+        assertEquals(1, c.beliefs.size());
+    }
+}
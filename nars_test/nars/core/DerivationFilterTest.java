@@ -0,0 +1,71 @@
+package nars.core;
+
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.DerivationContext;
+import nars.control.DerivationContext.DerivationFilter;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Narsese;
+import nars.language.Term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DerivationFilterTest {
+
+    /** rejects the derivations of one term before they are made */
+    static class RejectTerm implements DerivationFilter {
+        final String term;
+        int early, late;
+
+        RejectTerm(String term) {
+            this.term = term;
+        }
+
+        @Override
+        public String reject(DerivationContext nal, Task task, boolean revised, boolean single, Task parent, Sentence otherBelief) {
+            if (task.getTerm().toString().equals(term))
+                late++;
+            return null;
+        }
+
+        @Override
+        public String rejectEarly(DerivationContext nal, Term content, char punctuation, TruthValue truth, BudgetValue budget, Stamp stamp, boolean revised, boolean single) {
+            if (content.toString().equals(term)) {
+                early++;
+                return "Rejected";
+            }
+            return null;
+        }
+    }
+
+    static boolean believed(NAR n, String term) throws Exception {
+        Concept c = n.memory.concept(new Narsese(n).parseTerm(term));
+        return (c != null) && !c.beliefs.isEmpty();
+    }
+
+    @Test
+    public void testRejectEarly() throws Exception {
+        NAR n = new NAR(new Plugins());
+        n.addInput("<a --> b>.");
+        n.addInput("<b --> c>.");
+        n.run(100);
+        assertTrue(believed(n, "<a --> c>"));
+
+        n = new NAR(new Plugins());
+        RejectTerm f = new RejectTerm("<a --> c>");
+        n.addPlugin(f);
+        n.addInput("<a --> b>.");
+        n.addInput("<b --> c>.");
+        n.run(100);
+        assertTrue(f.early > 0);
+        //never made into a task
+        assertEquals(0, f.late);
+        assertTrue(!believed(n, "<a --> c>"));
+    }
+}
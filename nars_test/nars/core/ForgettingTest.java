@@ -0,0 +1,89 @@
+package nars.core;
+
+import nars.NAR;
+import nars.config.Plugins;
+import nars.config.RuntimeParameters.Forgetting;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.inference.BudgetFunctions;
+import nars.inference.UtilityFunctions;
+import nars.language.Term;
+import nars.storage.Bag;
+import nars.storage.LevelBag;
+import nars.storage.SumTreeBag;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ForgettingTest {
+
+    @Test public void testDecayTable() {
+        for (float d = 0.01f; d < 1f; d += 0.01f) {
+            for (float x = 0; x < 50; x += 0.37f) {
+                assertEquals(d + "^" + x, Math.pow(d, x), UtilityFunctions.decay(d, x), 1.0e-3);
+            }
+        }
+        assertEquals(1f, UtilityFunctions.decay(0.5f, 0), 0);
+        assertEquals(1f, UtilityFunctions.decay(1f, 10), 0);
+        assertEquals(0f, UtilityFunctions.decay(0f, 10), 0);
+    }
+
+    /** decaying in several steps gives the same result as decaying once over the whole interval */
+    @Test public void testLazyIsPathIndependent() {
+        BudgetValue stepwise = new BudgetValue(0.9f, 0.5f, 0.4f);
+        BudgetValue once = new BudgetValue(0.9f, 0.5f, 0.4f);
+        BudgetFunctions.forgetLazy(stepwise, 20, 0.1f, 0);
+        BudgetFunctions.forgetLazy(once, 20, 0.1f, 0);
+        assertEquals("first touch only records the time", 0.9f, once.getPriority(), 0);
+
+        for (long t = 7; t <= 70; t += 7)
+            BudgetFunctions.forgetLazy(stepwise, 20, 0.1f, t);
+        BudgetFunctions.forgetLazy(once, 20, 0.1f, 70);
+
+        assertEquals(once.getPriority(), stepwise.getPriority(), 1.0e-3);
+        float floor = 0.4f * 0.1f;
+        assertEquals(floor + (0.9f - floor) * Math.pow(0.5, 70 / 20.0), once.getPriority(), 1.0e-3);
+    }
+
+    /** an item which was not taken for long is decayed when it is selected, and another is chosen if it then ranks lower */
+    @Test public void testLazyReselection() {
+        NAR n = new NAR(new Plugins());
+        n.param.forgetting = Forgetting.Lazy;
+        n.run(100);
+        long now = n.time();
+        Concept stale = new Concept(new BudgetValue(0.95f, 0.1f, 0.1f), new Term("stale"), n.memory);
+        Concept fresh = new Concept(new BudgetValue(0.5f, 0.5f, 0.5f), new Term("fresh"), n.memory);
+        BudgetFunctions.forgetLazy(fresh.budget, 10, 0.1f, now);
+        for (Bag<Concept,Term> b : new Bag[] { new LevelBag<Concept,Term>(10, 10), new SumTreeBag<Concept,Term>(10) }) {
+            for (int i = 0; i < 20; i++) {
+                stale.budget.setPriority(0.95f);
+                stale.budget.setLastForgetTime(now - 100);
+                b.putIn(stale);
+                b.putIn(fresh);
+                Concept x = b.takeNext(10, n.memory);
+                if (x == stale)
+                    assertTrue("taken at its decayed priority", stale.getPriority() < 0.1f);
+                else
+                    assertSame(fresh, x);
+                b.clear();
+            }
+
+            //alone, it is taken all the same
+            stale.budget.setPriority(0.95f);
+            stale.budget.setLastForgetTime(now - 100);
+            b.putIn(stale);
+            assertSame(stale, b.takeNext(10, n.memory));
+            assertTrue(stale.getPriority() < 0.1f);
+        }
+    }
+
+    @Test public void testLazyMode() {
+        NAR n = new NAR(new Plugins());
+        n.param.forgetting = Forgetting.Lazy;
+        n.addInput("<a --> b>.");
+        n.addInput("<b --> c>.");
+        n.run(200);
+        assertTrue(n.memory.concept(new Term("a")).getPriority() < 0.9f);
+    }
+}
@@ -0,0 +1,109 @@
+package nars.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Properties;
+import nars.web.HTTPServer;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HTTPServerTest {
+
+    HTTPServer server;
+
+    @Before public void start() throws IOException {
+        server = new HTTPServer(0) {
+            @Override
+            public Response serve(String uri, String method, Properties header, Properties parms) {
+                if (uri.equals("/empty"))
+                    return new Response(HTTP_OK, MIME_PLAINTEXT, "");
+                return new Response(HTTP_OK, MIME_PLAINTEXT, "served " + uri);
+            }
+        };
+    }
+
+    @After public void stop() {
+        server.stop();
+    }
+
+    String get(String uri) throws IOException {
+        try (Socket s = new Socket("localhost", server.getPort())) {
+            s.setSoTimeout(5000);
+            s.getOutputStream().write(("GET " + uri + " HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+            ByteArrayOutputStream b = new ByteArrayOutputStream();
+            InputStream in = s.getInputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                b.write(buf, 0, n);
+            return b.toString("ISO-8859-1");
+        }
+    }
+
+    /** closes with a reset instead of a normal close */
+    static void reset(Socket s) throws IOException {
+        s.setSoLinger(true, 0);
+        s.close();
+    }
+
+    @Test public void testServe() throws IOException {
+        String r = get("/a");
+        assertTrue(r, r.startsWith("HTTP/1.1 200 OK"));
+        assertTrue(r, r.endsWith("served /a"));
+    }
+
+    @Test public void testEmptyBody() throws IOException {
+        String r = get("/empty");
+        assertTrue(r, r.startsWith("HTTP/1.1 200 OK"));
+        assertTrue(r, r.contains("Content-Length: 0\r\n"));
+        assertTrue(r, r.endsWith("\r\n\r\n"));
+    }
+
+    /** a request which arrives a few bytes at a time */
+    @Test public void testSlowRequest() throws Exception {
+        try (Socket s = new Socket("localhost", server.getPort())) {
+            s.setSoTimeout(5000);
+            OutputStream out = s.getOutputStream();
+            for (byte c : "GET /slow HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes("ISO-8859-1")) {
+                out.write(c);
+                out.flush();
+                Thread.sleep(1);
+            }
+            ByteArrayOutputStream b = new ByteArrayOutputStream();
+            InputStream in = s.getInputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                b.write(buf, 0, n);
+            String r = b.toString("ISO-8859-1");
+            assertTrue(r, r.endsWith("served /slow"));
+        }
+    }
+
+    @Test public void testSurvivesReset() throws Exception {
+        //reset halfway through a request
+        Socket s = new Socket("localhost", server.getPort());
+        s.getOutputStream().write("GET /partial HT".getBytes("ISO-8859-1"));
+        s.getOutputStream().flush();
+        Thread.sleep(50);
+        reset(s);
+
+        //reset before the response is read
+        for (int i = 0; i < 10; i++) {
+            s = new Socket("localhost", server.getPort());
+            OutputStream out = s.getOutputStream();
+            out.write("GET /unread HTTP/1.1\r\n\r\n".getBytes("ISO-8859-1"));
+            out.flush();
+            reset(s);
+        }
+        Thread.sleep(100);
+
+        String r = get("/b");
+        assertTrue(r, r.endsWith("served /b"));
+    }
+}
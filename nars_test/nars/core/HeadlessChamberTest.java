@@ -0,0 +1,159 @@
+package nars.core;
+
+import java.util.Arrays;
+import java.util.Random;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.lab.grid2d.main.Cell;
+import nars.lab.grid2d.main.Cell.Logic;
+import nars.lab.grid2d.main.Cell.Machine;
+import nars.lab.grid2d.main.Cell.Material;
+import nars.lab.grid2d.main.CellGrid;
+import nars.lab.grid2d.main.Hauto;
+import nars.lab.grid2d.main.HeadlessChamber;
+import nars.lab.grid2d.main.Level;
+import nars.storage.Memory;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HeadlessChamberTest {
+
+    /** the agent goes to the switch and turns it on, and the light reports that the goal holds */
+    @Test public void testSwitchOnLight() throws Exception {
+        HeadlessChamber c = new HeadlessChamber(new NAR(new Plugins()), Level.load("simple"));
+        c.setGoal("<{light1} --> [on]>");
+        int light = c.getCells().find("{light1}"), swtch = c.getCells().find("{switch0}");
+        for (int i = 0; i < 20; i++)
+            c.update();
+        assertTrue(c.getCells().light[light] < 1.0f);
+
+        c.operate("{switch0}", "go-to");
+        for (int i = 0; (i < 100) && (c.getCells().index(c.getX(), c.getY()) != swtch); i++)
+            c.update();
+        assertEquals(swtch, c.getCells().index(c.getX(), c.getY()));
+
+        c.operate("{switch0}", "activate");
+        for (int i = 0; (i < 100) && !c.isGoalReached(); i++)
+            c.update();
+        assertTrue(c.isGoalReached());
+        assertEquals(Logic.SWITCH.ordinal(), c.getCells().logic[swtch]);
+        assertEquals(1.0f, c.getCells().light[light], 0);
+        assertEquals(2, c.getOperationCount());
+    }
+
+    /** the cells change as they do in Hauto */
+    @Test public void testMatchesHauto() {
+        for (String name : new String[] { "freq_generator", "uncertain_event", "switch_door_switch_light" }) {
+            NAR n = new NAR(new Plugins());
+            Level level = Level.load(name);
+            Hauto hauto = new Hauto(level.cells.w, level.cells.h, n);
+            set(hauto.readCells, level.cells);
+            hauto.changed();
+            Random random = new Random();
+            HeadlessChamber c = new HeadlessChamber(n, level, random);
+            for (int s = 0; s < 100; s++) {
+                Memory.randomNumber.setSeed(s);
+                hauto.Exec();
+                random.setSeed(s);
+                c.update();
+                CellGrid g = c.getCells();
+                for (int i = 0; i < g.w; i++) {
+                    for (int j = 0; j < g.h; j++) {
+                        Cell x = hauto.readCells[i][j];
+                        int k = g.index(i, j);
+                        assertEquals(x.charge, g.charge[k], 0);
+                        assertEquals(x.chargeFront, g.chargeFront[k]);
+                        assertEquals(x.is_solid, g.solid[k]);
+                        assertEquals(x.light, g.light[k], 0);
+                        assertEquals(x.value, g.value[k], 0);
+                        assertEquals(x.value2, g.value2[k], 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /** the world of a chamber follows from its seed, whatever else draws random numbers meanwhile */
+    @Test public void testSeed() {
+        HeadlessChamber a = new HeadlessChamber(new NAR(new Plugins()), Level.load("uncertain_state"), new Random(7));
+        HeadlessChamber b = new HeadlessChamber(new NAR(new Plugins()), Level.load("uncertain_state"), new Random(7));
+        //the switch powers the uncertain bridge
+        for (HeadlessChamber c : new HeadlessChamber[] { a, b }) {
+            c.operate("{switch0}", "go-to");
+            for (int i = 0; i < 20; i++)
+                c.update();
+            c.operate("{switch0}", "activate");
+        }
+        for (int s = 0; s < 100; s++) {
+            a.update();
+            Memory.randomNumber.nextDouble();
+            b.update();
+            assertTrue(Arrays.equals(a.getCells().solid, b.getCells().solid));
+            assertArrayEquals(a.getCells().charge, b.getCells().charge, 0);
+            assertArrayEquals(a.getCells().light, b.getCells().light, 0);
+            assertArrayEquals(a.getCells().value, b.getCells().value, 0);
+            assertArrayEquals(a.getCells().value2, b.getCells().value2, 0);
+        }
+    }
+
+    /** an edit of one cell, which is all that is read again, steps as when all the cells are read again */
+    @Test public void testEdit() {
+        Level level = Level.load("switch_door_switch_light");
+        Hauto one = new Hauto(level.cells.w, level.cells.h, new NAR(new Plugins()));
+        Hauto all = new Hauto(level.cells.w, level.cells.h, new NAR(new Plugins()));
+        set(one.readCells, level.cells);
+        set(all.readCells, level.cells);
+        one.changed();
+        all.changed();
+        int swtch = level.cells.find("{switch0}"), i = level.cells.x(swtch), j = level.cells.y(swtch);
+        for (int s = 0; s < 100; s++) {
+            if (s % 30 == 29) {
+                for (Hauto h : new Hauto[] { one, all }) {
+                    Cell c = h.readCells[i][j];
+                    boolean on = (c.logic == Logic.SWITCH);
+                    c.logic = on ? Logic.OFFSWITCH : Logic.SWITCH;
+                    c.charge = on ? 0.0f : 1.0f;
+                }
+                one.changed(i, j);
+                all.changed();
+            }
+            Memory.randomNumber.setSeed(s);
+            one.Exec();
+            Memory.randomNumber.setSeed(s);
+            all.Exec();
+            for (int x = 0; x < one.w; x++) {
+                for (int y = 0; y < one.h; y++) {
+                    Cell a = one.readCells[x][y], b = all.readCells[x][y];
+                    assertEquals(b.charge, a.charge, 0);
+                    assertEquals(b.chargeFront, a.chargeFront);
+                    assertEquals(b.is_solid, a.is_solid);
+                    assertEquals(b.light, a.light, 0);
+                    assertEquals(b.value, a.value, 0);
+                    assertEquals(b.value2, a.value2, 0);
+                }
+            }
+        }
+    }
+
+    static void set(Cell[][] cells, CellGrid g) {
+        for (int i = 0; i < g.w; i++) {
+            for (int j = 0; j < g.h; j++) {
+                Cell c = cells[i][j];
+                int k = g.index(i, j);
+                c.charge = g.charge[k];
+                c.chargeFront = g.chargeFront[k];
+                c.height = g.height[k];
+                c.is_solid = g.solid[k];
+                c.light = g.light[k];
+                c.logic = Logic.values()[g.logic[k]];
+                c.machine = (g.machine[k] < 0) ? null : Machine.values()[g.machine[k]];
+                c.material = Material.values()[g.material[k]];
+                c.name = g.name[k];
+                c.value = g.value[k];
+                c.value2 = g.value2[k];
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package nars.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.io.InputJournal;
+import nars.io.Output.OUT;
+import nars.util.EventEmitter.EventObserver;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class InputJournalTest {
+
+    static List<String> collectOutput(NAR n) {
+        final List<String> out = new ArrayList();
+        n.on(OUT.class, new EventObserver() {
+            @Override public void event(Class event, Object[] args) {
+                out.add(n.time() + " " + args[0]);
+            }
+        });
+        return out;
+    }
+
+    @Test public void testReplayRepeatsRun() throws IOException {
+        File f = File.createTempFile("nars", ".journal");
+        f.deleteOnExit();
+
+        NAR a = new NAR(new Plugins());
+        List<String> recorded = collectOutput(a);
+        InputJournal.Recorder r = InputJournal.record(a, f);
+        a.addInput("<a --> b>.\n<b --> c>.\n<c --> d>. %0.9;0.8%\n<a --> d>?\n");
+        a.run(30);
+        a.addInput("<d --> e>. :|:");
+        a.addInput("<a --> e>?");
+        a.run(200);
+        r.close();
+        assertTrue(r.getRecords() >= 6);
+
+        NAR b = new NAR(new Plugins());
+        List<String> replayed = collectOutput(b);
+        long cycles = InputJournal.replay(b, f);
+
+        assertEquals(a.time(), cycles);
+        assertTrue(recorded.size() > 0);
+        assertEquals(recorded, replayed);
+    }
+}
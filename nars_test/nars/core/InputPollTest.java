@@ -0,0 +1,159 @@
+package nars.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.io.InPort;
+import nars.io.Input;
+import nars.io.InputThreads;
+import nars.io.Narsese;
+import nars.io.TextInput;
+import nars.language.Term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class InputPollTest {
+
+    /** a polled input which has nothing to read does not stop the reasoner, and what it reads later is input */
+    @Test public void testPolledInputDoesNotBlock() throws Exception {
+        NAR n = new NAR(new Plugins());
+        PipedWriter w = new PipedWriter();
+        InPort port = n.addInputPolled(new TextInput(new BufferedReader(new PipedReader(w))));
+        assertTrue(port.isPolled());
+
+        n.step(20);
+        assertEquals(20, n.time());
+        assertEquals(1, n.getInPorts().size());
+
+        w.write("<a --> b>.\n<b --> c>.\n");
+        w.flush();
+        for (int i = 0; (i < 200) && ((n.memory.concept(term(n, "<a --> b>")) == null) || (n.memory.concept(term(n, "<b --> c>")) == null)); i++) {
+            Thread.sleep(5);
+            n.step(1);
+        }
+        assertNotNull(n.memory.concept(term(n, "<a --> b>")));
+        assertNotNull(n.memory.concept(term(n, "<b --> c>")));
+
+        //the port is removed once its input ends
+        w.close();
+        for (int i = 0; (i < 200) && !n.getInPorts().isEmpty(); i++) {
+            Thread.sleep(5);
+            n.step(1);
+        }
+        assertTrue(n.getInPorts().isEmpty());
+    }
+
+    /** reset closes a polled input and stops its thread */
+    @Test public void testResetStopsPolling() throws IOException {
+        NAR n = new NAR(new Plugins());
+        PipedWriter w = new PipedWriter();
+        InPort port = n.addInputPolled(new TextInput(new BufferedReader(new PipedReader(w))));
+        n.step(5);
+        n.reset();
+        assertTrue(n.getInPorts().isEmpty());
+        assertTrue(port.input.finished(false));
+    }
+
+    static Term term(NAR n, String s) throws Exception {
+        return new Narsese(n).parseTerm(s);
+    }
+
+    /** a port which queues its inputs as they are */
+    static class StringPort extends InPort<String,String> {
+        StringPort(Input<String> input) {
+            super(input, new ArrayDeque(), 1.0f);
+        }
+        @Override public void perceive(String x) {
+            queue(x);
+        }
+    }
+
+    /** an input of count strings prefixed by name */
+    static Input<String> strings(final String name, final int count) {
+        return new Input<String>() {
+            int i = 0;
+            @Override public String next() {
+                return (i < count) ? name + (i++) : null;
+            }
+            @Override public boolean finished(boolean stop) {
+                return i >= count;
+            }
+        };
+    }
+
+    /** ports with input are chosen in proportion to their attention, in turn when it is equal */
+    @Test public void testAttentionWeighting() throws IOException {
+        StringPort a = new StringPort(strings("a", 100)), b = new StringPort(strings("b", 100)), c = new StringPort(strings("c", 100));
+        List<StringPort> ports = Arrays.asList(a, b, c);
+        for (StringPort p : ports)
+            p.update();
+
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 6; i++)
+            order.append(InPort.select(ports, i).next().charAt(0));
+        assertEquals("abcabc", order.toString());
+
+        a.setAttention(3);
+        b.setAttention(1);
+        c.setAttention(0);
+        Map<Character,Integer> count = new HashMap();
+        for (int i = 0; i < 80; i++) {
+            char k = InPort.select(ports, i).next().charAt(0);
+            count.put(k, count.containsKey(k) ? count.get(k) + 1 : 1);
+        }
+        assertEquals(60, (int)count.get('a'));
+        assertEquals(20, (int)count.get('b'));
+        assertTrue(!count.containsKey('c'));
+
+        //without attention, chosen only when the others have nothing
+        while (a.hasNext()) a.next();
+        while (b.hasNext()) b.next();
+        assertSame(c, InPort.select(ports, 100));
+    }
+
+    /** a rate limit spaces out the items taken, after a burst */
+    @Test public void testRateLimit() throws IOException {
+        StringPort a = new StringPort(strings("a", 100));
+        a.update();
+        a.setRateLimit(0.25f, 2);
+        List<StringPort> ports = Arrays.asList(a);
+        int taken = 0;
+        for (long t = 0; t < 40; t++) {
+            StringPort p = InPort.select(ports, t);
+            if (p != null) {
+                p.next();
+                taken++;
+            }
+        }
+        //a burst of 2, then one every 4 cycles
+        assertEquals(2 + 39 / 4, taken);
+    }
+
+    /** a polled port keeps the newest or the oldest inputs when they arrive faster than they are taken */
+    @Test public void testOverflow() throws Exception {
+        for (InPort.Overflow o : new InPort.Overflow[] { InPort.Overflow.DropOldest, InPort.Overflow.DropNewest }) {
+            StringPort p = new StringPort(strings("x", 10));
+            p.setCapacity(4);
+            p.setOverflow(o);
+            p.poll(InputThreads.get());
+            for (int i = 0; (i < 400) && (p.getDropped() < 6); i++)
+                Thread.sleep(5);
+            assertEquals(6, p.getDropped());
+            assertEquals(4, p.getItemsBuffered());
+
+            p.update();
+            assertEquals((o == InPort.Overflow.DropOldest) ? "x6" : "x0", p.next());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package nars.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.config.Plugins;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.io.Symbols;
+import nars.storage.MappedBeliefStore;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MappedBeliefStoreTest {
+
+    static List<String> beliefs(Concept c) {
+        List<String> l = new ArrayList();
+        for (Task t : c.beliefs)
+            l.add(t.sentence.toString());
+        return l;
+    }
+
+    static Concept restore(NAR n, String term) throws InvalidInputException {
+        return n.memory.conceptualize(new BudgetValue(0.5f, 0.5f, 0.5f), new Narsese(n).parseTerm(term));
+    }
+
+    @Test public void testWarmStart() throws IOException, InvalidInputException {
+        File f = File.createTempFile("beliefs", ".narb");
+        f.delete();
+        try {
+            NAR a = new NAR(new Plugins());
+            MappedBeliefStore s = MappedBeliefStore.open(a, f);
+            a.addInput("<a --> b>.\n<b --> c>.\n<a --> b>. %0.8;0.5%\n");
+            a.run(100);
+            List<String> ab = beliefs(a.concept("<a --> b>"));
+            List<String> ac = beliefs(a.concept("<a --> c>"));
+            assertTrue(ab.size() > 1);
+            assertTrue(!ac.isEmpty());
+            s.close();
+
+            NAR b = new NAR(new Plugins());
+            s = MappedBeliefStore.open(b, f);
+            assertTrue(s.getRecords() >= ab.size() + ac.size());
+            assertTrue("loaded on demand", b.concept("<a --> c>") == null);
+            assertEquals(ab, beliefs(restore(b, "<a --> b>")));
+            assertEquals(ac, beliefs(restore(b, "<a --> c>")));
+            s.close();
+        } finally {
+            f.delete();
+        }
+    }
+
+    /** a record left incomplete by a crash is dropped, and writing continues before it */
+    @Test public void testIncompleteRecord() throws IOException, InvalidInputException {
+        File f = File.createTempFile("beliefs", ".narb");
+        f.delete();
+        try {
+            NAR n = new NAR(new Plugins());
+            Narsese narsese = new Narsese(n);
+            MappedBeliefStore s = new MappedBeliefStore(n.memory, f, 4096);
+            for (int i = 0; i < 3000; i++) {
+                Sentence x = new Sentence(narsese.parseTerm("<x" + i + " --> y>"), Symbols.JUDGMENT_MARK,
+                        new TruthValue(1f, 0.9f), new Stamp(n.memory));
+                s.add(new Task(x, new BudgetValue(0.5f, 0.5f, 0.5f)));
+            }
+            long end = s.getEnd();
+            s.close();
+            assertTrue("spans several regions", end > 4 * 4096);
+
+            //the start of a record whose payload was not written
+            RandomAccessFile r = new RandomAccessFile(f, "rw");
+            r.seek(end);
+            r.writeInt(40);
+            r.writeInt(123);
+            r.writeInt(456);
+            r.close();
+
+            NAR m = new NAR(new Plugins());
+            s = new MappedBeliefStore(m.memory, f, 4096);
+            m.memory.concepts.setStore(s);
+            assertEquals(3000, s.getRecords());
+            assertEquals(end, s.getEnd());
+            assertEquals(1, restore(m, "<x0 --> y>").beliefs.size());
+            assertEquals(1, restore(m, "<x2999 --> y>").beliefs.size());
+            assertEquals(0, restore(m, "<x3000 --> y>").beliefs.size());
+            s.close();
+        } finally {
+            f.delete();
+        }
+    }
+
+    /** only the newest records of a term, enough to fill its belief table, are restored */
+    @Test public void testNewestRecords() throws IOException, InvalidInputException {
+        File f = File.createTempFile("beliefs", ".narb");
+        f.delete();
+        try {
+            NAR n = new NAR(new Plugins());
+            Narsese narsese = new Narsese(n);
+            MappedBeliefStore s = MappedBeliefStore.open(n, f);
+            int records = 3 * Parameters.CONCEPT_BELIEFS_MAX;
+            for (int i = 0; i < records; i++) {
+                Sentence x = new Sentence(narsese.parseTerm("<p --> q>"), Symbols.JUDGMENT_MARK,
+                        new TruthValue((float) i / records, 0.9f), new Stamp(n.memory));
+                s.add(new Task(x, new BudgetValue(0.5f, 0.5f, 0.5f)));
+            }
+            s.close();
+
+            NAR m = new NAR(new Plugins());
+            s = MappedBeliefStore.open(m, f);
+            Concept c = restore(m, "<p --> q>");
+            assertEquals(Parameters.CONCEPT_BELIEFS_MAX, c.beliefs.size());
+            float newest = 0;
+            for (Task t : c.beliefs) {
+                float freq = t.sentence.truth.getFrequency();
+                assertTrue("superseded record restored: " + freq, freq >= (float) (records - Parameters.CONCEPT_BELIEFS_MAX) / records - 0.01f);
+                newest = Math.max(newest, freq);
+            }
+            assertEquals((float) (records - 1) / records, newest, 0.01f);
+            s.close();
+        } finally {
+            f.delete();
+        }
+    }
+}
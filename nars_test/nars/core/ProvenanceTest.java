@@ -0,0 +1,101 @@
+package nars.core;
+
+import nars.NAR;
+import nars.entity.BudgetValue;
+import nars.entity.Provenance;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Symbols;
+import nars.language.Term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ProvenanceTest {
+
+    final NAR n = new NAR();
+    final Provenance p = n.memory.provenance;
+
+    Task task(String term, Task parent, Sentence belief) {
+        Sentence s = new Sentence(new Term(term), Symbols.JUDGMENT_MARK, new TruthValue(1f, 0.9f), new Stamp(n.memory));
+        Task t = (parent == null && belief == null) ? new Task(s, new BudgetValue(0.5f, 0.5f, 0.5f))
+                : new Task(s, new BudgetValue(0.5f, 0.5f, 0.5f), parent, belief);
+        p.add(t);
+        return t;
+    }
+
+    @Test public void testAncestry() {
+        Task input = task("a", null, null);
+        assertTrue(input.isInput());
+        assertEquals(Provenance.INPUT, input.getParentTaskId());
+
+        Task child = task("b", input, input.sentence);
+        Task grandchild = task("c", child, null);
+        assertFalse(child.isInput());
+        assertEquals(input.id, child.getParentTaskId());
+        assertEquals(input.getTerm(), child.getParentTerm());
+        assertSame(input.sentence, child.getParentBelief());
+        assertEquals(input.id, grandchild.getRootTaskId(p));
+        assertEquals(input.getTerm(), grandchild.getRootTerm(p));
+        assertTrue(grandchild.hasParent(p, input));
+
+        Task orphan = task("d", null, input.sentence);
+        assertFalse("derived, even though the parent is unknown", orphan.isInput());
+        assertNull(orphan.getParentTerm());
+        assertEquals(Provenance.INPUT, p.getRoot(input));
+    }
+
+    /** a task is explained by the chain of its ancestors, up to the input */
+    @Test public void testExplain() {
+        Task input = task("a", null, null);
+        Task child = task("b", input, input.sentence);
+        p.add(child, "Derived");
+        Task grandchild = task("c", child, child.sentence);
+
+        String[] lines = p.explain(grandchild).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(grandchild.toString(), lines[0]);
+        assertEquals("  parentBelief=" + child.sentence + " @ " + child.getCreationTime(), lines[1]);
+        assertEquals("  parentTask=#" + child.id + " b (Derived) from belief: a", lines[2]);
+        assertEquals("    #" + input.id + " a", lines[3]);
+
+        //once the ancestors are forgotten, only the parent term is left
+        for (int i = 0; i < p.getCapacity(); i++)
+            task("x", null, null);
+        lines = p.explain(grandchild).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("  parentTask=#" + child.id + " b", lines[2]);
+        assertEquals(grandchild.getExplanation(), p.explain(grandchild));
+    }
+
+    @Test public void testForgetting() {
+        Task input = task("a", null, null);
+        Task child = task("b", input, input.sentence);
+        Task grandchild = task("c", child, null);
+        for (int i = 0; i < p.getCapacity(); i++)
+            task("x", null, null);
+
+        assertEquals(Provenance.UNKNOWN, p.getParent(child.id));
+        assertFalse(grandchild.hasParent(p, input));
+        //what the task itself holds is not forgotten
+        assertEquals(input.id, child.getParentTaskId());
+        assertSame(input.sentence, child.getParentBelief());
+        assertFalse(child.isInput());
+    }
+
+    @Test public void testPerMemory() {
+        Task input = task("a", null, null);
+        Task child = task("b", input, null);
+        Task grandchild = task("c", child, null);
+        assertEquals(Provenance.UNKNOWN, new NAR().memory.provenance.getParent(child.id));
+
+        n.reset();
+        assertEquals(Provenance.UNKNOWN, p.getParent(child.id));
+        assertFalse(grandchild.hasParent(p, input));
+    }
+}
@@ -0,0 +1,87 @@
+package nars.core;
+
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.RealtimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RealtimeSchedulerTest {
+
+    /** a scheduler on a simulated clock, whose cycles take a fixed time */
+    static class Simulated extends RealtimeScheduler {
+        long now;
+        long cycleCost;
+        boolean idle;
+
+        Simulated(NAR n, float durationsPerSecond) {
+            super(n, durationsPerSecond);
+        }
+
+        @Override protected long nanoTime() {
+            return now;
+        }
+
+        @Override protected void runCycles(int cycles) {
+            super.runCycles(cycles);
+            now += cycles * cycleCost;
+        }
+
+        @Override protected boolean isIdle() {
+            return idle;
+        }
+    }
+
+    @Test public void testIdleCyclesAreCompressed() {
+        NAR n = new NAR(new Plugins());
+        //one cycle per 10ms
+        Simulated s = new Simulated(n, 100f / n.memory.getDuration());
+        assertEquals(1.0e7, s.getPeriodNS(), 1);
+        s.idle = true;
+
+        s.now += 1000000000L;
+        s.frame();
+        assertEquals("clock follows the wall time", 100, n.time());
+        assertEquals(1, s.getFrameCycles());
+        assertEquals(99, s.getCompressed());
+        assertEquals(0, s.getLag());
+
+        s.now += 4000000L;
+        assertEquals("waits for the next cycle", 6000000L, s.frame());
+        assertEquals(0, s.getFrameCycles());
+    }
+
+    @Test public void testLagIsReportedAndCaughtUp() {
+        NAR n = new NAR(new Plugins());
+        //one cycle per 1ms, each taking 2ms
+        Simulated s = new Simulated(n, 1000f / n.memory.getDuration());
+        s.cycleCost = 2000000L;
+
+        s.now += 100000000L;
+        assertEquals(0, s.frame());
+        assertEquals("cycles fitting in the frame at the measured cost", 1, s.getFrameCycles());
+        assertEquals(99, s.getLag());
+        s.frame();
+        assertEquals(5, s.getFrameCycles());
+        assertTrue(s.getLagMS() > 90);
+
+        //cycles become cheap: the lag is caught up
+        s.cycleCost = 1000L;
+        for (int i = 0; i < 20; i++)
+            s.frame();
+        assertEquals(0, s.getLag());
+        assertEquals(s.getDropped(), 0);
+    }
+
+    @Test public void testExcessLagIsDropped() {
+        NAR n = new NAR(new Plugins());
+        Simulated s = new Simulated(n, 1000f / n.memory.getDuration());
+        s.cycleCost = 1000L;
+        s.now += 3000000000L;
+        s.frame();
+        assertEquals("more than one second behind", 2000, s.getDropped());
+        assertEquals(1, s.getFrameCycles());
+        assertEquals(999, s.getLag());
+    }
+}
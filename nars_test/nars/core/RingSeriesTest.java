@@ -0,0 +1,112 @@
+package nars.core;
+
+import automenta.vivisect.RingSeries;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RingSeriesTest {
+
+    /** a bounded series keeps the newest samples as it wraps around */
+    @Test public void testWraparound() {
+        RingSeries s = new RingSeries(100);
+        for (int i = 0; i < 250; i++)
+            s.push(i);
+        assertEquals(150, s.getStart());
+        assertEquals(249, s.getEnd());
+        assertFalse(s.has(149));
+        assertTrue(Double.isNaN(s.get(149)));
+        assertEquals(150, s.get(150), 0);
+        assertEquals(249, s.get(249), 0);
+
+        double[] a = s.toArray();
+        assertEquals(100, a.length);
+        for (int i = 0; i < a.length; i++)
+            assertEquals(150 + i, a[i], 0);
+        assertArrayEquals(new double[] { 150, 249 }, s.getMinMax(0, 1000), 0);
+        assertArrayEquals(new double[] { 200, 209 }, s.getMinMax(200, 210), 0);
+
+        //too old to be kept
+        s.set(10, 1);
+        assertFalse(s.has(10));
+        assertEquals(150, s.getStart());
+
+        //past the whole window
+        s.set(1000, 7);
+        assertEquals(901, s.getStart());
+        assertFalse(s.has(999));
+        assertArrayEquals(new double[] { 7, 7 }, s.getMinMax(0, 2000), 0);
+    }
+
+    /** an unbounded series grows at either end, keeping its samples */
+    @Test public void testGrowth() {
+        RingSeries s = new RingSeries(-1);
+        for (int i = 0; i < 1000; i++)
+            s.push(i);
+        s.set(-10, 5);
+        s.set(5000, -1);
+        assertEquals(-10, s.getStart());
+        assertEquals(5000, s.getEnd());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, s.get(i), 0);
+        assertEquals(5, s.get(-10), 0);
+        assertFalse(s.has(-5));
+        assertFalse(s.has(3000));
+        assertArrayEquals(new double[] { -1, 999 }, s.getMinMax(-10, 5001), 0);
+        assertArrayEquals(new double[] { 0, 999 }, s.getMinMax(0, 1000), 0);
+        assertEquals(499.5, s.getMean(0, 1000), 1e-9);
+
+        s.setCapacity(500);
+        assertEquals(4501, s.getStart());
+        assertEquals(5000, s.getEnd());
+        assertArrayEquals(new double[] { -1, -1 }, s.getMinMax(0, 6000), 0);
+    }
+
+    /** the min and max of whole blocks follow samples which are overwritten, removed or dropped */
+    @Test public void testBlockMinMaxAfterOverwrite() {
+        int n = 2 * RingSeries.BLOCK;
+        RingSeries s = new RingSeries(n);
+        for (int i = 0; i < n; i++)
+            s.push(1000 + i);
+        assertArrayEquals(new double[] { 1000, 1000 + n - 1 }, s.getMinMax(0, n), 0);
+
+        //overwrite the extremes
+        s.set(0, 1001);
+        s.set(n - 1, 1001);
+        assertArrayEquals(new double[] { 1001, 1000 + n - 2 }, s.getMinMax(0, n), 0);
+        s.remove(n - 2);
+        assertArrayEquals(new double[] { 1001, 1000 + n - 3 }, s.getMinMax(RingSeries.BLOCK, n), 0);
+
+        //every slot is dropped and written again
+        for (int i = 0; i < n; i++)
+            s.push(i);
+        assertArrayEquals(new double[] { 0, n - 1 }, s.getMinMax(n, 2 * n), 0);
+        assertArrayEquals(new double[] { 0, RingSeries.BLOCK - 1 }, s.getMinMax(n, n + RingSeries.BLOCK), 0);
+        assertArrayEquals(new double[] { 10, RingSeries.BLOCK + 9 }, s.getMinMax(n + 10, n + RingSeries.BLOCK + 10), 0);
+    }
+
+    /** a stored NaN is a sample, unlike a missing one, but has no min, max or mean */
+    @Test public void testNaNSample() {
+        RingSeries s = new RingSeries(-1);
+        s.set(0, 1);
+        s.set(3, Double.NaN);
+        assertTrue(s.has(3));
+        assertFalse(s.has(2));
+        assertTrue(Double.isNaN(s.get(3)));
+        assertArrayEquals(new double[] { 1, 1 }, s.getMinMax(0, 4), 0);
+        assertEquals(1, s.getMean(0, 4), 0);
+        assertEquals("{0=1.0, 3=NaN}", s.toString());
+
+        //kept when the buffer is reallocated
+        s.set(1000, 2);
+        s.setCapacity(2000);
+        assertTrue(s.has(3));
+        assertFalse(s.has(2));
+
+        s.remove(3);
+        assertFalse(s.has(3));
+        assertEquals("{0=1.0, 1000=2.0}", s.toString());
+    }
+}
@@ -0,0 +1,81 @@
+package nars.core;
+
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.Shard;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.io.LoopbackTransport;
+import nars.io.Narsese;
+import nars.io.Narsese.InvalidInputException;
+import nars.language.Term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ShardTest {
+
+    static final String input = "<a --> b>.\n<b --> c>.\n<a --> c>?\n";
+
+    /** a group of one behaves exactly like an unsharded reasoner */
+    @Test public void testSingleShardUnchanged() {
+        NAR plain = new NAR(new Plugins());
+        List<String> expected = InputJournalTest.collectOutput(plain);
+        plain.addInput(input);
+        plain.run(100);
+
+        NAR sharded = new NAR(new Plugins());
+        new Shard(sharded.memory, 0, 1, new LoopbackTransport(1));
+        List<String> actual = InputJournalTest.collectOutput(sharded);
+        sharded.addInput(input);
+        sharded.run(100);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test public void testDeductionAcrossShards() throws InvalidInputException {
+        final int shards = 3;
+        LoopbackTransport transport = new LoopbackTransport(shards);
+        NAR[] n = new NAR[shards];
+        for (int i = 0; i < shards; i++) {
+            n[i] = new NAR(new Plugins());
+            new Shard(n[i].memory, i, shards, transport);
+        }
+
+        n[0].addInput(input);
+        for (int cycle = 0; cycle < 200; cycle++) {
+            for (NAR x : n)
+                x.step(1);
+        }
+
+        long forwarded = 0;
+        for (NAR x : n) {
+            forwarded += x.memory.getShard().getForwarded();
+            assertEquals("clocks stay in step", n[0].time(), x.time());
+        }
+        assertTrue(forwarded > 0);
+
+        //the conclusion reaches the shard owning its term
+        Term conclusion = new Narsese(n[0]).parseTerm("<a --> c>");
+        NAR owner = n[Shard.owner(conclusion, shards)];
+        Concept ac = owner.concept("<a --> c>");
+        assertTrue(ac != null);
+        boolean derived = false;
+        for (Task t : ac.beliefs)
+            derived |= (t.sentence.truth.getConfidence() > 0.8f) && (t.sentence.truth.getConfidence() < 0.82f);
+        assertTrue(derived);
+
+        //concepts are partitioned, not replicated
+        for (String c : new String[] { "<a --> b>", "<b --> c>", "<a --> c>", "a", "b", "c" }) {
+            int holders = 0;
+            for (int i = 0; i < shards; i++) {
+                if (n[i].concept(c) != null) {
+                    holders++;
+                    assertEquals(c + " at its owner", Shard.owner(new Narsese(n[0]).parseTerm(c), shards), i);
+                }
+            }
+            assertTrue(c, holders <= 1);
+        }
+    }
+}
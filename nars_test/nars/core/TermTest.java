@@ -18,6 +18,8 @@ package nars.core;
 
 import nars.NAR;
 import nars.config.Parameters;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 import nars.config.Plugins;
 import nars.entity.Concept;
@@ -26,10 +28,14 @@ import nars.io.Texts;
 import nars.io.Narsese;
 import nars.language.CompoundTerm;
 import nars.language.Inheritance;
+import nars.language.Interval;
 import nars.language.Statement;
 import nars.language.Term;
+import nars.language.Variable;
+import nars.lab.ioutils.ExampleFileInput;
 import nars.operator.Operation;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
@@ -295,4 +301,89 @@ public class TermTest {
         
         
     }
+
+    /** structural equality and hashing of compound terms agree with equality of their names, over the terms of the NAL test scripts */
+    @Test public void testStructuralEquality() throws Exception {
+        boolean structural = Parameters.TERM_ELEMENT_EQUIVALENCY;
+        Parameters.TERM_ELEMENT_EQUIVALENCY = true;
+        try {
+            Narsese p = new Narsese(new NAR(new Plugins()));
+            List<CompoundTerm> terms = new ArrayList();
+            for (Object o : ExampleFileInput.getUnitTests().values()) {
+                for (String line : ExampleFileInput.load((String)((Object[])o)[0]).split("\n")) {
+                    //inputs, and expected outputs
+                    line = line.trim().replaceFirst("^''\\w+\\('(.*)'\\)$", "$1");
+                    try {
+                        addCompounds(p.parseTask(line).getTerm(), terms);
+                    }
+                    catch (Exception notNarsese) { }
+                }
+            }
+            assertTrue(terms.size() > 1000);
+
+            for (CompoundTerm a : terms) {
+                for (CompoundTerm b : terms) {
+                    boolean sameName = a.name().equals(b.name());
+                    assertEquals(a + " " + b, sameName, a.equals(b));
+                    if (sameName)
+                        assertEquals(a.hashCode(), b.hashCode());
+                }
+
+                //terms changed in place
+                Term c = CompoundTerm.cloneDeepReplaceIntervals(a);
+                Term d = p.parseTerm(c.name().toString());
+                assertEquals(c, d);
+                assertEquals(d.hashCode(), c.hashCode());
+            }
+        }
+        finally {
+            Parameters.TERM_ELEMENT_EQUIVALENCY = structural;
+        }
+    }
+
+    /** intervals and the names of normalized variables are canonical, also when made by threads at once */
+    @Test public void testInternedAtoms() throws Exception {
+        final Interval[][] made = new Interval[4][];
+        final CharSequence[][] names = new CharSequence[4][];
+        Thread[] threads = new Thread[made.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int k = t;
+            threads[t] = new Thread() {
+                @Override public void run() {
+                    made[k] = new Interval[1000];
+                    names[k] = new CharSequence[1000];
+                    for (int i = 999; i >= 0; i--) {
+                        made[k][i] = Interval.interval(i);
+                        names[k][i] = Variable.getName('#', i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("+" + (i + 1), made[0][i].name().toString());
+            assertEquals(i, made[0][i].magnitude);
+            for (int t = 1; t < made.length; t++) {
+                assertSame(made[0][i], made[t][i]);
+                assertSame(names[0][i], names[t][i]);
+            }
+        }
+        assertEquals("#1", Variable.getName('#', 1));
+        assertEquals("?3f", Variable.getName('?', 0xf3));
+        assertEquals("$7ff", Variable.getName('$', 0xff7));
+        assertEquals("$5001", Variable.getName('$', 0x1005));
+        assertSame(Interval.interval(3), Interval.interval("+4"));
+        assertEquals(Interval.interval(100000), Interval.interval(100000));
+    }
+
+    static void addCompounds(Term t, List<CompoundTerm> l) {
+        if (t instanceof CompoundTerm) {
+            l.add((CompoundTerm)t);
+            for (Term c : ((CompoundTerm)t).term)
+                addCompounds(c, l);
+        }
+    }
 }
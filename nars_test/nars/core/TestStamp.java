@@ -1,8 +1,12 @@
 package nars.core;
 
 import java.util.Arrays;
+import java.util.Random;
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
+import static nars.entity.Stamp.baseOverlap;
 import static nars.entity.Stamp.toSetArray;
+import nars.entity.Stamp;
 import org.junit.Test;
 
 /**
@@ -30,4 +34,39 @@ public class TestStamp {
                 Arrays.hashCode(toSetArray(new long[] { 1,1,3 }))
         );    
     }
+
+    /** merged stamps detect cyclic and shared evidence as a scan of every pair of serials would */
+    @Test
+    public void testOverlap() {
+        Random r = new Random(1);
+        for (int n = 0; n < 2000; n++) {
+            long[] a = randomBase(r), b = randomBase(r);
+            Stamp x = new Stamp(a, 0, 0), y = new Stamp(b, 0, 0);
+            Stamp merged = new Stamp(x, y, 1);
+            long[] m = merged.evidentialBase;
+
+            assertEquals(pairs(a, a), x.evidenceIsCyclic());
+            assertEquals(pairs(m, m), merged.evidenceIsCyclic());
+            assertEquals(pairs(a, a) || pairs(b, b) || pairs(a, b), baseOverlap(x, y));
+            assertEquals(baseOverlap(x, y), baseOverlap(a, b));
+            assertTrue(merged.equals(new Stamp(m.clone(), 0, 0), false, false, true, false));
+            assertEquals(merged.evidentialHash(), Arrays.hashCode(toSetArray(m)));
+        }
+    }
+
+    static long[] randomBase(Random r) {
+        long[] b = new long[1 + r.nextInt(6)];
+        for (int i = 0; i < b.length; i++)
+            b[i] = r.nextInt(20);
+        return b;
+    }
+
+    /** whether a and b have equal elements at different positions, or at any position if they differ */
+    static boolean pairs(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++)
+            for (int j = 0; j < b.length; j++)
+                if (((a != b) || (i != j)) && (a[i] == b[j]))
+                    return true;
+        return false;
+    }
 }
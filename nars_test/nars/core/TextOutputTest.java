@@ -0,0 +1,101 @@
+package nars.core;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.BudgetValue;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import nars.io.Output.ECHO;
+import nars.io.Output.OUT;
+import nars.io.Symbols;
+import nars.io.TextOutput;
+import nars.language.Term;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TextOutputTest {
+
+    final NAR n = new NAR(new Plugins());
+
+    Task task(String term, float priority) {
+        Sentence s = new Sentence(new Term(term), Symbols.JUDGMENT_MARK, new TruthValue(1f, 0.9f), new Stamp(n.memory));
+        return new Task(s, new BudgetValue(priority, 0.5f, 0.5f));
+    }
+
+    /** a writer whose first write waits until it is released */
+    static class BlockedWriter extends Writer {
+        final StringWriter out = new StringWriter();
+        final CountDownLatch entered = new CountDownLatch(1), released = new CountDownLatch(1);
+
+        @Override public void write(char[] c, int off, int len) {
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+            }
+            out.write(c, off, len);
+        }
+        @Override public void flush() {
+        }
+        @Override public void close() {
+        }
+    }
+
+    /** lines are written in order; low priority tasks are shed once the queue is half full, and all lines once it is full */
+    @Test public void testShedding() throws Exception {
+        BlockedWriter w = new BlockedWriter();
+        TextOutput t = new TextOutput(n, new PrintWriter(w)).setAsync(4, 0.5f);
+        t.event(ECHO.class, "first");
+        assertTrue(w.entered.await(5, TimeUnit.SECONDS));
+
+        t.event(ECHO.class, "a");
+        t.event(ECHO.class, "b");
+        t.event(OUT.class, task("low", 0.1f));
+        t.event(OUT.class, task("high", 0.9f));
+        t.event(ECHO.class, "c");
+        t.event(ECHO.class, "full");
+        assertEquals(2, t.getDropped());
+
+        w.released.countDown();
+        t.stop();
+        String[] lines = w.out.toString().trim().split("\\s*\n");
+        assertEquals(Arrays.toString(lines), 5, lines.length);
+        assertEquals("ECHO: first", lines[0]);
+        assertEquals("ECHO: a", lines[1]);
+        assertEquals("ECHO: b", lines[2]);
+        assertTrue(lines[3], lines[3].startsWith("OUT: high."));
+        assertEquals("ECHO: c", lines[4]);
+    }
+
+    /** a LineOutput is called on the thread of the event, with every line, in order */
+    @Test public void testLineOutputOnCallerThread() {
+        final List<String> lines = new ArrayList();
+        final List<Thread> threads = new ArrayList();
+        TextOutput t = new TextOutput(n, new TextOutput.LineOutput() {
+            @Override public void println(String s) {
+                lines.add(s);
+                threads.add(Thread.currentThread());
+            }
+        }).setAsync(1, 0.5f);
+        for (int i = 0; i < 10; i++)
+            t.event(ECHO.class, "line" + i);
+        assertEquals(10, lines.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ECHO: line" + i, lines.get(i));
+            assertSame(Thread.currentThread(), threads.get(i));
+        }
+        t.stop();
+    }
+}
@@ -8,8 +8,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import nars.util.Events.Answer;
 import nars.NAR;
 import nars.config.Plugins;
+import nars.io.Narsese;
 import nars.util.AbstractObserver;
 import nars.lab.testutils.OutputContainsCondition;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
@@ -75,4 +77,20 @@ public class VariableTest {
         assertTrue(solutionFound.get());
         
     }
+
+    /** variables are renamed in order of first occurrence, the same each time a sentence is made */
+    @Test public void testNormalization() throws Exception {
+        Narsese p = new Narsese(n);
+        for (int i = 0; i < 2; i++) {
+            assertEquals("<<$1 --> a> ==> <$1 --> b>>",
+                    p.parseTask("<<$x --> a> ==> <$x --> b>>.").getTerm().toString());
+            assertEquals("<(&&,<#1 --> a>,<#1 --> b>) ==> <$2 --> c>>",
+                    p.parseTask("<(&&,<#y --> a>,<#y --> b>) ==> <$z --> c>>.").getTerm().toString());
+            assertEquals("<(&&,<?1 --> a>,<?2 --> b>) ==> <?1 --> c>>",
+                    p.parseTask("<(&&,<?q --> a>,<?r --> b>) ==> <?q --> c>>?").getTerm().toString());
+            //more variables than the buffers hold at first
+            assertEquals("(&&,<#1 --> a>,<#2 --> a>,<#3 --> a>,<#4 --> a>,<#5 --> a>,<#6 --> a>,<#7 --> a>,<#8 --> a>,<#9 --> a>,<#a --> a>)",
+                    p.parseTask("(&&,<#a --> a>,<#b --> a>,<#c --> a>,<#d --> a>,<#e --> a>,<#f --> a>,<#g --> a>,<#h --> a>,<#i --> a>,<#j --> a>).").getTerm().toString());
+        }
+    }
 }
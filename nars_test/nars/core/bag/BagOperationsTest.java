@@ -4,13 +4,19 @@
  */
 package nars.core.bag;
 
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import nars.NAR;
+import nars.config.Parameters;
 import nars.entity.BudgetValue;
 import nars.entity.Concept;
 import nars.entity.Item;
 import nars.language.Term;
 import nars.storage.Bag;
 import nars.storage.LevelBag;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
@@ -81,4 +87,148 @@ public class BagOperationsTest {
         }
         
     }
+
+    /** a bag which starts compact and is promoted must select items in the same order as one which never was compact */
+    @Test
+    public void testCompactMatchesFull() {
+        int compactSize = Parameters.BAG_COMPACT_SIZE;
+        LevelBag<Concept,Term> full, compact;
+        try {
+            Parameters.BAG_COMPACT_SIZE = 0;
+            full = new LevelBag(10, 20);
+            Parameters.BAG_COMPACT_SIZE = 8;
+            compact = new LevelBag(10, 20);
+        }
+        finally {
+            Parameters.BAG_COMPACT_SIZE = compactSize;
+        }
+        assertTrue(compact.isCompact());
+
+        boolean promoted = false;
+        Random a = new Random(1), b = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(randomOperation(full, a), randomOperation(compact, b));
+            assertEquals(full.size(), compact.size());
+            assertEquals(full.getMass(), compact.getMass(), 0.0001f);
+            assertEquals(names(full), names(compact));
+            promoted |= !compact.isCompact();
+            if (i % 500 == 0) {
+                full.clear();
+                compact.clear();
+                assertTrue(compact.isCompact());
+            }
+        }
+        assertTrue(promoted);
+    }
+
+    /** removing items of a compact bag while iterating it skips none */
+    @Test
+    public void testCompactIterationWithRemoval() {
+        LevelBag<Concept,Term> b = new LevelBag(10, 20);
+        b.putIn(makeConcept("a", 0.5f));
+        b.putIn(makeConcept("b", 0.5f));
+        b.putIn(makeConcept("c", 0.9f));
+        b.putIn(makeConcept("d", 0.5f));
+        assertTrue(b.isCompact());
+
+        List<String> visited = new ArrayList();
+        for (Concept c : b) {
+            visited.add(c.name().toString());
+            b.take(c.name());
+        }
+        assertEquals(Arrays.asList("c", "a", "b", "d"), visited);
+        assertEquals(0, b.size());
+    }
+
+    /** the incrementally kept statistics of a full bag must equal those found by scanning its items */
+    @Test
+    public void testStatisticsMatchScan() {
+        LevelBag<Concept,Term> b = new LevelBag(10, 50);
+        Random r = new Random(2);
+        int bins = Parameters.BAG_HISTOGRAM_BINS;
+        for (int i = 0; i < 3000; i++) {
+            randomOperation(b, r, 80);
+
+            float min = 1.0f, max = 0.0f;
+            double[] expected = new double[bins];
+            for (Concept c : b.values()) {
+                float p = c.getPriority();
+                min = Math.min(min, p);
+                max = Math.max(max, p);
+                expected[Bag.bin(p, bins - 1)]++;
+            }
+            for (int j = 0; j < bins; j++)
+                if (b.size() > 0) expected[j] /= b.size();
+
+            assertEquals(min, b.getMinPriority(), 0f);
+            assertEquals(max, b.getMaxPriority(), 0f);
+            assertArrayEquals(expected, b.getPriorityDistribution(new double[bins]), 1e-9);
+            if (i % 1000 == 999)
+                b.clear();
+        }
+    }
+
+    /** a priority changed in place while its item is in the bag is counted in the bin it was put in with, until it is put back */
+    @Test
+    public void testStatisticsAfterInPlaceChange() {
+        LevelBag<Concept,Term> b = new LevelBag(10, 50);
+        int bins = Parameters.BAG_HISTOGRAM_BINS;
+        List<Concept> items = new ArrayList();
+        for (int i = 0; i < 30; i++) {
+            Concept c = makeConcept("c" + i, (i % 10) / 10f + 0.05f);
+            items.add(c);
+            b.putIn(c);
+        }
+        assertTrue(!b.isCompact());
+        double[] before = b.getPriorityDistribution(new double[bins]);
+
+        for (Concept c : items)
+            c.budget.setPriority(0.4f + c.getPriority() / 2);
+        assertArrayEquals(before, b.getPriorityDistribution(new double[bins]), 1e-9);
+
+        //put back at their new priorities, half of them
+        for (int i = 0; i < items.size(); i += 2)
+            b.putIn(b.take(items.get(i).name()));
+        //and the others leave
+        for (int i = 1; i < items.size(); i += 2)
+            b.take(items.get(i).name());
+
+        double[] expected = new double[bins];
+        for (Concept c : b.values())
+            expected[Bag.bin(c.getPriority(), bins - 1)]++;
+        for (int j = 0; j < bins; j++)
+            expected[j] /= b.size();
+        assertArrayEquals(expected, b.getPriorityDistribution(new double[bins]), 1e-9);
+
+        for (int i = 0; i < items.size(); i += 2)
+            b.take(items.get(i).name());
+        assertEquals(0, b.size());
+        assertArrayEquals(new double[bins], b.getPriorityDistribution(new double[bins]), 0);
+    }
+
+    static String randomOperation(LevelBag<Concept,Term> b, Random r) {
+        return randomOperation(b, r, 30);
+    }
+
+    static String randomOperation(LevelBag<Concept,Term> b, Random r, int names) {
+        String name = "c" + r.nextInt(names);
+        switch (r.nextInt(3)) {
+            case 0:
+                Concept overflow = b.putIn(makeConcept(name, r.nextFloat()));
+                return overflow == null ? null : overflow.name().toString();
+            case 1:
+                Concept taken = b.take(new Term(name));
+                return taken == null ? null : taken.name().toString();
+            default:
+                Concept next = b.takeNext();
+                return next == null ? null : next.name().toString();
+        }
+    }
+
+    static List<String> names(Bag<Concept,Term> b) {
+        List<String> l = new ArrayList();
+        for (Concept c : b)
+            l.add(c.name().toString());
+        return l;
+    }
 }
@@ -0,0 +1,175 @@
+package nars.core.bag;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import nars.config.Parameters;
+import nars.entity.Concept;
+import nars.language.Term;
+import nars.storage.Bag;
+import nars.storage.SumTreeBag;
+import static nars.core.bag.BagOperationsTest.makeConcept;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SumTreeBagTest {
+
+    @Test
+    public void testSequence() {
+        BagOperationsTest.testBagSequence(new SumTreeBag(2));
+    }
+
+    @Test
+    public void testNewBag() {
+        assertTrue(Bag.newBag(Parameters.BagType.SumTree, 10, 5) instanceof SumTreeBag);
+        assertTrue(!(Bag.newBag(Parameters.BagType.Level, 10, 5) instanceof SumTreeBag));
+    }
+
+    /** items are sampled in proportion to their priority */
+    @Test
+    public void testProportionalSelection() {
+        SumTreeBag<Concept,Term> b = new SumTreeBag(10);
+        float[] p = { 0.05f, 0.1f, 0.2f, 0.25f, 0.4f };
+        float sum = 0;
+        for (int i = 0; i < p.length; i++) {
+            b.putIn(makeConcept("c" + i, p[i]));
+            sum += p[i];
+        }
+        int samples = 50000;
+        Map<String,Integer> count = new HashMap();
+        for (int i = 0; i < samples; i++) {
+            String n = b.peekNext().name().toString();
+            count.put(n, count.containsKey(n) ? count.get(n) + 1 : 1);
+        }
+        for (int i = 0; i < p.length; i++) {
+            double share = count.get("c" + i) / (double)samples;
+            assertEquals(p[i] / sum, share, 0.01);
+        }
+
+        //taking out and putting back keeps the proportions
+        count.clear();
+        for (int i = 0; i < samples; i++) {
+            Concept c = b.takeNext();
+            String n = c.name().toString();
+            count.put(n, count.containsKey(n) ? count.get(n) + 1 : 1);
+            assertNull(b.putIn(c));
+        }
+        for (int i = 0; i < p.length; i++)
+            assertEquals(p[i] / sum, count.get("c" + i) / (double)samples, 0.01);
+    }
+
+    /** random operations give the same contents, mass and overflow as a simple reference */
+    @Test
+    public void testMatchesReference() {
+        int capacity = 20;
+        SumTreeBag<Concept,Term> b = new SumTreeBag(capacity);
+        Map<String,Float> ref = new HashMap();
+        Random r = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            String name = "c" + r.nextInt(40);
+            switch (r.nextInt(3)) {
+                case 0: {
+                    //distinct priorities, so that the minimum is unique
+                    float p;
+                    do {
+                        p = (r.nextInt(1000) + 1) / 1000f;
+                    } while (ref.containsValue(p));
+                    if (ref.containsKey(name)) {
+                        b.take(new Term(name));
+                        ref.remove(name);
+                    }
+                    String expected = null;
+                    if (ref.size() == capacity) {
+                        expected = min(ref);
+                        if (p < ref.get(expected))
+                            expected = name;
+                    }
+                    Concept overflow = b.putIn(makeConcept(name, p));
+                    assertEquals(expected, overflow == null ? null : overflow.name().toString());
+                    ref.put(name, p);
+                    if (expected != null)
+                        ref.remove(expected);
+                    break;
+                }
+                case 1: {
+                    Concept taken = b.take(new Term(name));
+                    assertEquals(ref.remove(name) != null, taken != null);
+                    break;
+                }
+                default: {
+                    Concept next = b.takeNext();
+                    if (ref.isEmpty()) {
+                        assertNull(next);
+                    } else {
+                        assertNotNull(ref.remove(next.name().toString()));
+                    }
+                }
+            }
+
+            assertEquals(ref.size(), b.size());
+            assertEquals(ref.keySet(), names(b));
+            float mass = 0;
+            for (float p : ref.values())
+                mass += p;
+            assertEquals(mass, b.getMass(), 1e-3f);
+            if (!ref.isEmpty()) {
+                assertEquals(ref.get(min(ref)), b.getMinPriority(), 0f);
+                assertEquals(ref.get(max(ref)), b.getMaxPriority(), 0f);
+            }
+            float prev = Float.POSITIVE_INFINITY;
+            int n = 0;
+            for (Concept c : b) {
+                assertTrue("descending", c.getPriority() <= prev);
+                prev = c.getPriority();
+                n++;
+            }
+            assertEquals(ref.size(), n);
+        }
+    }
+
+    /** items of zero priority are still taken out when nothing else is left */
+    @Test
+    public void testZeroPriority() {
+        SumTreeBag<Concept,Term> b = new SumTreeBag(4);
+        Concept a = makeConcept("a", 0f);
+        b.putIn(a);
+        b.putIn(makeConcept("b", 0f));
+        assertNotNull(b.peekNext());
+        assertNotNull(b.takeNext());
+        assertNotNull(b.takeNext());
+        assertNull(b.takeNext());
+        b.putIn(a);
+        assertSame(a, b.takeNext());
+    }
+
+    static String min(Map<String,Float> m) {
+        String min = null;
+        for (Map.Entry<String,Float> e : m.entrySet()) {
+            if ((min == null) || (e.getValue() < m.get(min)))
+                min = e.getKey();
+        }
+        return min;
+    }
+
+    static String max(Map<String,Float> m) {
+        String max = null;
+        for (Map.Entry<String,Float> e : m.entrySet()) {
+            if ((max == null) || (e.getValue() > m.get(max)))
+                max = e.getKey();
+        }
+        return max;
+    }
+
+    static Set<String> names(Bag<Concept,Term> b) {
+        Set<String> s = new HashSet();
+        for (Concept c : b)
+            s.add(c.name().toString());
+        return s;
+    }
+}
@@ -4,6 +4,7 @@ import automenta.vivisect.TreeMLData;
 import java.awt.Color;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import nars.util.EventEmitter.EventObserver;
 import nars.util.Events;
 import nars.NAR;
@@ -31,10 +32,11 @@ import nars.storage.LevelBag;
 
 public class BagFairness {
 
-    final int bins = 10;
+    final int bins = Parameters.BAG_HISTOGRAM_BINS;
     TreeMLData fired[] = new TreeMLData[bins];
     TreeMLData[] held = new TreeMLData[bins];
     float fireCount[] = new float[bins];
+    double heldSum[] = new double[bins];
     long total = 0;
     
     private final ArrayList<Chart> charts;
@@ -95,10 +97,12 @@ public class BagFairness {
 
                 int concepts = ((WorkingCycle)n.memory.concepts).concepts.size();
 
+                Arrays.fill(d, 0);
                 ((WorkingCycle)n.memory.concepts).concepts.getPriorityDistribution(d);
                 for (int b = 0; b < bins; b++) {
 
                     held[b].add((int)n.time(), (float)d[b]);
+                    heldSum[b] += d[b];
                     fired[b].add((int)n.time(), fireCount[b]);
                 }
             }
@@ -126,6 +130,21 @@ public class BagFairness {
         
     }
 
+    /** share of the concepts fired and of those held in each priority bin */
+    public void printSummary(String label) {
+        double fires = 0, helds = 0;
+        for (int b = 0; b < bins; b++) {
+            fires += fireCount[b];
+            helds += heldSum[b];
+        }
+        System.out.println(label + " (bin: fired / held)");
+        for (int b = bins-1; b >= 0; b--) {
+            System.out.println("  " + Texts.n2(((double)b)/bins) + ": " + 
+                    Texts.n2(fires > 0 ? fireCount[b] / fires : 0) + " / " + 
+                    Texts.n2(helds > 0 ? heldSum[b] / helds : 0));
+        }
+    }
+
     /*protected void removalPriority(float p) {
         int b = (int)Math.floor(p * bins);
         held[b]++;
@@ -213,16 +232,22 @@ public class BagFairness {
         float minPri = 0.1f;
         float maxPri = 1.0f;
 
-        new NWindow("_", new MultiTimeline(1, 1, 1) {
+        //one experiment for each concept bag implementation
+        final Parameters.BagType[] types = Parameters.BagType.values();
+
+        new NWindow("_", new MultiTimeline(types.length, 1, types.length) {
 
             @Override public Chart[] getCharts(int experiment) {
                 
+                Parameters.CONCEPT_BAG_TYPE = types[experiment];
                 final NAR n = new NAR();
                 
-                ArrayList<Chart> ch = new BagFairness(n, 
+                BagFairness f = new BagFairness(n, 
                         new RandomTermInput(8, inputs, 0.01, 0.5, 0.5, minPri, maxPri), 
                         maxConcepts, /* concepts */
-                        numIterations-displayedIterations, numIterations /* iterations */).charts;
+                        numIterations-displayedIterations, numIterations /* iterations */);
+                f.printSummary(types[experiment] + " concept bag");
+                ArrayList<Chart> ch = f.charts;
                 return ch.toArray(new Chart[ch.size()]);
             }            
         }).show(1200, 900, true);
@@ -61,6 +61,7 @@ public class BooleanChallenge {
     
     Set<Term> answered = new HashSet();
     Map<Term,Double> questionScores = new HashMap();
+    Map<Term,Long> questionTimes = new HashMap();
     
     private final Narsese parser;
     private double score;
@@ -96,10 +97,8 @@ public class BooleanChallenge {
                     return;
                 }
                 
-                Task question = answer.getParentTask();
-                if (!question.sentence.isQuestion())
-                    return;
-                if (!questionScores.containsKey(question.getTerm())) {
+                Term question = answer.getParentTerm();
+                if ((question == null) || !questionScores.containsKey(question)) {
                     //this is a response to a question it asked itself
                     return;
                 }
@@ -173,10 +172,10 @@ public class BooleanChallenge {
         nar.addInput(a);
     }
     
-    void addScore(Task q, Task a, boolean correct, float confidence) {        
+    void addScore(Term q, Task a, boolean correct, float confidence) {        
 
-        Term questionTerm = q.getTerm();
-        long questionTime = q.getCreationTime();
+        Term questionTerm = q;
+        long questionTime = questionTimes.get(q);
         long answerTime = a.getCreationTime();
         long time = nar.time();
         
@@ -206,7 +205,7 @@ public class BooleanChallenge {
         }
 
         updateScore();
-        System.out.println(questionTime + "," + delay + ": " + q.sentence + " | " + a.sentence.truth + "  +/-(" + s + ")     " + score + " of " + qanswered + "/" + questionScores.size() + " <" + answered.size() + ">" );
+        System.out.println(questionTime + "," + delay + ": " + q + " | " + a.sentence.truth + "  +/-(" + s + ")     " + score + " of " + qanswered + "/" + questionScores.size() + " <" + answered.size() + ">" );
     }
     
     
@@ -277,6 +276,7 @@ public class BooleanChallenge {
                 return;
             }
             questionScores.putIfAbsent(t, null);            
+            questionTimes.putIfAbsent(t, nar.time());
         }
         else {
            if (questionScores.containsKey(t)) {
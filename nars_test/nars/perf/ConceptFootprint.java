@@ -0,0 +1,65 @@
+package nars.perf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.core.NALTest;
+import nars.entity.Concept;
+import nars.storage.LevelBag;
+
+/**
+ * Runs a NAL script and reports the estimated heap footprint of each concept's
+ * own structure (tables and link bags), and how many link bags are still compact.
+ *
+ * Usage: ConceptFootprint [script.nal] [cycles] [top]
+ */
+public class ConceptFootprint {
+
+    public static void report(final NAR n, final int top) {
+        List<Concept> concepts = new ArrayList();
+        for (Concept c : n.memory.concepts)
+            concepts.add(c);
+
+        Collections.sort(concepts, new Comparator<Concept>() {
+            @Override public int compare(Concept a, Concept b) {
+                return Long.compare(b.getFootprint(), a.getFootprint());
+            }
+        });
+
+        long total = 0;
+        int bags = 0, compactBags = 0;
+        for (Concept c : concepts) {
+            total += c.getFootprint();
+            for (Object b : new Object[] { c.taskLinks, c.termLinks }) {
+                if (b instanceof LevelBag) {
+                    bags++;
+                    if (((LevelBag)b).isCompact()) compactBags++;
+                }
+            }
+        }
+
+        System.out.println(concepts.size() + " concepts, " + total + " bytes total, "
+                + (concepts.isEmpty() ? 0 : total / concepts.size()) + " bytes/concept");
+        System.out.println(compactBags + " / " + bags + " link bags compact");
+        for (int i = 0; i < Math.min(top, concepts.size()); i++) {
+            Concept c = concepts.get(i);
+            System.out.println("  " + c.getFootprint() + "\t" + c.taskLinks.size() + " tasklinks\t"
+                    + c.termLinks.size() + " termlinks\t" + c.term);
+        }
+    }
+
+    public static void main(String[] args) {
+        String path = args.length > 0 ? args[0] : "nal/Examples/Example-MultiStep-edited.txt";
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int top = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        NAR n = new NAR(new Plugins());
+        n.addInput(NALTest.getExample(path));
+        n.run(cycles);
+
+        report(n, top);
+    }
+}
@@ -0,0 +1,237 @@
+package nars.perf;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.config.Plugins;
+import nars.io.TextInput;
+import nars.lab.ioutils.ExampleFileInput;
+import nars.lab.testutils.OutputCondition;
+import nars.storage.Memory;
+
+/**
+ * Runs the NAL test scripts on a pool of worker threads and writes a JSON
+ * report with the outcome, cycles-to-solution and wall time of each script.
+ *
+ * The reasoner keeps state in static fields (Memory.randomNumber, Term atoms,
+ * Parameters), so each worker loads the NARS classes through its own class
+ * loader. Scripts on different workers therefore never share statics, and each
+ * script starts from the same random seed regardless of scheduling.
+ *
+ * Usage: NALRegression [threads] [cycleBudget] [report.json] [structural]
+ *
+ * With "structural", compound terms are compared by structure instead of by
+ * name (Parameters.TERM_ELEMENT_EQUIVALENCY); the report should equal the
+ * one of a run without it.
+ */
+public class NALRegression {
+
+    public static int DEFAULT_CYCLE_BUDGET = 1550;
+    public static long SEED = 1;
+    public static boolean STRUCTURAL_TERMS = false;
+
+    /** outcome of one script */
+    public static class Result implements Comparable<Result> {
+        public String name;
+        public String path;
+        public boolean success;
+        /** cycle at which the last expected output appeared, or -1 */
+        public long cyclesToSolution = -1;
+        /** cycles actually run */
+        public long cycles;
+        public double wallMS;
+        public String error;
+
+        @Override
+        public int compareTo(Result o) {
+            return name.compareTo(o.name);
+        }
+    }
+
+    public static class Report {
+        public int threads;
+        public int cycleBudget;
+        public long seed;
+        public boolean structuralTerms;
+        public int passed;
+        public int total;
+        public double wallMS;
+        public List<Result> tests = new ArrayList();
+    }
+
+    /**
+     * Runs one script until all expected outputs have appeared, or the cycle
+     * budget is exhausted. Invoked reflectively in a worker's own class loader,
+     * so it only exchanges bootstrap types with the caller.
+     *
+     * @return { Boolean success, Long cyclesToSolution, Long cycles, String error }
+     */
+    public static Object[] runScript(final String path, final int cycleBudget, final long seed, final boolean structuralTerms) {
+        Memory.resetStatic();
+        Memory.randomNumber.setSeed(seed);
+        Parameters.DEBUG = true;
+        Parameters.TERM_ELEMENT_EQUIVALENCY = structuralTerms;
+
+        boolean error = false;
+        String errorMessage = null;
+        List<OutputCondition> expects = Collections.EMPTY_LIST;
+        NAR n = null;
+        try {
+            n = new NAR(new Plugins());
+            n.memory.setTestMode(true);
+            String example = ExampleFileInput.load(path);
+            expects = OutputCondition.getConditions(n, example, -1);
+
+            boolean hasInverse = false;
+            for (OutputCondition e : expects)
+                hasInverse |= e.isInverse();
+
+            n.addInput(new TextInput(example));
+
+            //same stopping rule as NAR.run(cycleBudget), but checks the expectations each cycle
+            final long start = n.time();
+            while (!n.getInPorts().isEmpty() || (n.time() - start < cycleBudget) || !n.memory.isProcessingInput()) {
+                n.step(1);
+                if (!hasInverse && allTrue(expects))
+                    break;
+            }
+        }
+        catch (Throwable e) {
+            error = true;
+            errorMessage = e.toString();
+        }
+
+        boolean success = !expects.isEmpty() && !error && allTrue(expects);
+        long lastSuccess = -1;
+        if (success) {
+            for (OutputCondition e : expects) {
+                lastSuccess = Math.max(lastSuccess, e.getTrueTime());
+            }
+        }
+        return new Object[] { success, lastSuccess, (n != null) ? n.time() : 0L, errorMessage };
+    }
+
+    private static boolean allTrue(final List<OutputCondition> expects) {
+        for (OutputCondition e : expects)
+            if (!e.isTrue()) return false;
+        return true;
+    }
+
+    /** a class loader which loads this class path independently of the application class loader */
+    private static ClassLoader newIsolatedLoader() throws MalformedURLException {
+        String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++)
+            urls[i] = new File(entries[i]).toURI().toURL();
+        return new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+    }
+
+    /** per worker thread: runScript in that worker's isolated loader */
+    private static final ThreadLocal<Method> runner = new ThreadLocal<Method>() {
+        @Override protected Method initialValue() {
+            try {
+                ClassLoader l = newIsolatedLoader();
+                Thread.currentThread().setContextClassLoader(l);
+                return l.loadClass(NALRegression.class.getName()).getMethod("runScript", String.class, int.class, long.class, boolean.class);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    public static Report run(final int threads, final int cycleBudget) throws Exception {
+        Map<String, Object> scripts = ExampleFileInput.getUnitTests();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "NALRegression worker");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        final Report report = new Report();
+        report.threads = threads;
+        report.cycleBudget = cycleBudget;
+        report.seed = SEED;
+        report.structuralTerms = STRUCTURAL_TERMS;
+
+        long start = System.nanoTime();
+
+        List<Future<Result>> futures = new ArrayList();
+        for (final Map.Entry<String, Object> e : scripts.entrySet()) {
+            final String path = (String)((Object[])e.getValue())[0];
+            futures.add(pool.submit(new java.util.concurrent.Callable<Result>() {
+                @Override public Result call() throws Exception {
+                    Result r = new Result();
+                    r.name = e.getKey();
+                    r.path = path;
+
+                    long t0 = System.nanoTime();
+                    Object[] o = (Object[]) runner.get().invoke(null, path, cycleBudget, SEED, STRUCTURAL_TERMS);
+                    r.wallMS = (System.nanoTime() - t0) / 1.0e6;
+
+                    r.success = (Boolean)o[0];
+                    r.cyclesToSolution = (Long)o[1];
+                    r.cycles = (Long)o[2];
+                    r.error = (String)o[3];
+                    return r;
+                }
+            }));
+        }
+
+        for (Future<Result> f : futures) {
+            Result r = f.get();
+            report.tests.add(r);
+            report.total++;
+            if (r.success) report.passed++;
+        }
+        pool.shutdown();
+
+        report.wallMS = (System.nanoTime() - start) / 1.0e6;
+        Collections.sort(report.tests);
+        return report;
+    }
+
+    public static void write(Report report, String path) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer w = new FileWriter(path)) {
+            gson.toJson(report, w);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int cycleBudget = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CYCLE_BUDGET;
+        String reportPath = args.length > 2 ? args[2] : "nal_regression.json";
+        STRUCTURAL_TERMS = args.length > 3 && args[3].equals("structural");
+
+        Report r = run(threads, cycleBudget);
+
+        for (Result t : r.tests) {
+            if (!t.success)
+                System.out.println("FAIL " + t.name + (t.error != null ? " " + t.error : ""));
+        }
+        System.out.println(r.passed + " / " + r.total + " passed in " + Math.round(r.wallMS) + " ms on " + threads + " threads");
+
+        write(r, reportPath);
+        System.out.println("Report: " + new File(reportPath).getAbsolutePath());
+    }
+}
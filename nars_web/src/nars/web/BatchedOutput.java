@@ -0,0 +1,221 @@
+package nars.web;
+
+import java.util.Arrays;
+import nars.NAR;
+import nars.entity.Task;
+import nars.io.Output;
+import nars.io.TextOutput;
+import nars.util.AbstractObserver;
+import nars.util.Events.FrameEnd;
+import nars.util.Events.FrameStart;
+
+/**
+ * Output channel which coalesces everything emitted during a NAR frame into a
+ * single newline-separated message, sent at the end of the frame.
+ *
+ * Signals are formatted as they arrive and buffered, up to a fixed capacity, in
+ * a min-heap by priority. When the buffer is full, the lowest priority task is
+ * shed to make room for a higher priority one, and a signal which would be
+ * shed at once is not formatted. If the receiver is still busy sending the
+ * previous message (isBacklogged), the frame's output stays buffered and is
+ * merged into the next message, so a slow client loses low-priority output
+ * instead of slowing the reasoner. Signals emitted outside a frame, while the
+ * NAR is paused, are sent at once.
+ */
+abstract public class BatchedOutput extends AbstractObserver {
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    /** priority assigned to non-task signals (input echo, errors, ...) so they are shed last */
+    private static final float NON_TASK_PRIORITY = 1.0f;
+
+    private static final Class[] events;
+    static {
+        events = new Class[Output.DefaultOutputEvents.length + 2];
+        System.arraycopy(Output.DefaultOutputEvents, 0, events, 0, Output.DefaultOutputEvents.length);
+        events[events.length-2] = FrameStart.class;
+        events[events.length-1] = FrameEnd.class;
+    }
+
+    private final NAR nar;
+
+    /** the formatted lines, their priorities and the order of their arrival, as a min-heap by priority */
+    private final String[] lines;
+    private final float[] priorities;
+    private final long[] order;
+    private int size;
+    private long arrivals;
+    /** (arrival * capacity + index) of the buffered lines, sorted at flush */
+    private final long[] sorted;
+
+    private volatile boolean inFrame;
+    private float minPriority = 0;
+    private boolean showStamp = true;
+    private long dropped;
+
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder message = new StringBuilder();
+
+    public BatchedOutput(NAR n) {
+        this(n, DEFAULT_CAPACITY);
+    }
+
+    public BatchedOutput(NAR n, int capacity) {
+        super(n, true, events);
+        this.nar = n;
+        this.lines = new String[capacity];
+        this.priorities = new float[capacity];
+        this.order = new long[capacity];
+        this.sorted = new long[capacity];
+    }
+
+    /** sends one coalesced message */
+    abstract public void send(String message);
+
+    /** whether the receiver still has unsent data, in which case sending is deferred */
+    public boolean isBacklogged() {
+        return false;
+    }
+
+    @Override
+    public void event(final Class channel, final Object[] args) {
+        if (channel == FrameStart.class) {
+            inFrame = true;
+            return;
+        }
+        if (channel == FrameEnd.class) {
+            inFrame = false;
+            if (!isBacklogged())
+                flush();
+            return;
+        }
+
+        final Object signal = args[0];
+        float p = NON_TASK_PRIORITY;
+        if (signal instanceof Task) {
+            p = ((Task)signal).getPriority();
+            if (p < minPriority)
+                return;
+        }
+        add(channel, signal, p);
+
+        //no frame will end to send it
+        if (!inFrame)
+            flush();
+    }
+
+    private synchronized void add(final Class channel, final Object signal, final float priority) {
+        final boolean full = (size == lines.length);
+        if (full) {
+            dropped++;
+            if (priorities[0] >= priority)
+                return;
+        }
+
+        final String s = TextOutput.getOutputString(channel, signal, true, showStamp, nar, line);
+        if (s == null) {
+            if (full)
+                dropped--;
+            return;
+        }
+
+        if (full) {
+            //replace the weakest
+            set(0, s, priority, arrivals++);
+            siftDown(0);
+        }
+        else {
+            set(size, s, priority, arrivals++);
+            siftUp(size++);
+        }
+    }
+
+    private void set(final int i, final String s, final float priority, final long arrival) {
+        lines[i] = s;
+        priorities[i] = priority;
+        order[i] = arrival;
+    }
+
+    private void swap(final int i, final int j) {
+        final String s = lines[i];
+        final float p = priorities[i];
+        final long o = order[i];
+        set(i, lines[j], priorities[j], order[j]);
+        set(j, s, p, o);
+    }
+
+    private boolean weaker(final int i, final int j) {
+        //of equal priorities, the earlier is shed first
+        return (priorities[i] < priorities[j]) || ((priorities[i] == priorities[j]) && (order[i] < order[j]));
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >> 1;
+            if (!weaker(i, parent))
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            final int l = 2 * i + 1, r = l + 1;
+            int weakest = i;
+            if ((l < size) && weaker(l, weakest))
+                weakest = l;
+            if ((r < size) && weaker(r, weakest))
+                weakest = r;
+            if (weakest == i)
+                break;
+            swap(i, weakest);
+            i = weakest;
+        }
+    }
+
+    /** sends all buffered output as one message, in the order it arrived */
+    public synchronized void flush() {
+        if (size == 0)
+            return;
+
+        final int capacity = lines.length;
+        for (int i = 0; i < size; i++)
+            sorted[i] = order[i] * capacity + i;
+        Arrays.sort(sorted, 0, size);
+
+        message.setLength(0);
+        for (int k = 0; k < size; k++) {
+            final int i = (int) (sorted[k] % capacity);
+            if (k > 0)
+                message.append('\n');
+            message.append(lines[i]);
+            lines[i] = null;
+        }
+        size = 0;
+        arrivals = 0;
+
+        send(message.toString());
+    }
+
+    public BatchedOutput setMinPriority(float minPriority) {
+        this.minPriority = minPriority;
+        return this;
+    }
+
+    public BatchedOutput setShowStamp(boolean showStamp) {
+        this.showStamp = showStamp;
+        return this;
+    }
+
+    /** number of signals discarded because the buffer was full */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /** number of signals waiting to be sent */
+    public synchronized int getBuffered() {
+        return size;
+    }
+
+}
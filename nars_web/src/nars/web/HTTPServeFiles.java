@@ -18,7 +18,6 @@
 package nars.web;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Properties;
@@ -180,9 +179,7 @@ public class HTTPServeFiles extends HTTPServer {
                 }
             }
 
-            FileInputStream fis = new FileInputStream(f);
-            fis.skip(startFrom);
-            Response r = new Response(HTTP_OK, mime, fis);
+            Response r = new Response(HTTP_OK, mime, f, startFrom);
             r.addHeader("Content-length", "" + (f.length() - startFrom));
             r.addHeader("Content-range", "" + startFrom + "-" + (f.length() - 1) + "/" + f.length());
             return r;
@@ -26,66 +26,59 @@ package nars.web;
  "(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE\n"+
  "OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.";
  */
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A simple, tiny, nicely embeddable HTTP 1.0 server in Java
+ * A small, embeddable HTTP/1.1 server, originally based on NanoHTTPD 1.1,
+ * Copyright &copy; 2001,2005-2007 Jarno Elonen (elonen@iki.fi,
+ * http://iki.fi/elonen/)
  *
  * <p>
- * NanoHTTPD version 1.1, Copyright &copy; 2001,2005-2007 Jarno Elonen
- * (elonen@iki.fi, http://iki.fi/elonen/)
- *
- * <p>
- * <b>Features + limitations: </b>
- * <ul>
- *
- * <li> Only one Java file </li>
- * <li> Java 1.1 compatible </li>
- * <li> Released as open source, Modified BSD licence </li>
- * <li> No fixed config files, logging, authorization etc. (Implement yourself
- * if you need them.) </li>
- * <li> Supports parameter parsing of GET and POST methods </li>
- * <li> Supports both dynamic content and file serving </li>
- * <li> Never caches anything </li>
- * <li> Doesn't limit bandwidth, request time or simultaneous connections </li>
- * <li> Default code serves files and shows all HTTP parameters and headers</li>
- * <li> File server supports directory listing, index.html and index.htm </li>
- * <li> File server does the 301 redirection trick for directories without
- * '/'</li>
- * <li> File server supports simple skipping for files (continue download) </li>
- * <li> File server uses current directory as a web root </li>
- * <li> File server serves also very long files without memory overhead </li>
- * <li> Contains a built-in list of most common mime types </li>
- * <li> All header names are converted lowercase so they don't vary between
- * browsers/clients </li>
- *
- * </ul>
+ * Connections are multiplexed by one selector thread using non-blocking
+ * channels. Parsed requests are handed to a bounded pool of handler threads
+ * which call serve(); when that pool and its queue are full the request is
+ * answered with 503 instead of spawning more threads. Connections are kept
+ * alive between requests (HTTP/1.1 default, or "Connection: keep-alive") and
+ * closed after KEEPALIVE_TIMEOUT_MS of inactivity. File responses are sent
+ * with FileChannel.transferTo.
  *
  * <p>
  * <b>Ways to use: </b>
  * <ul>
  *
- * <li> Run as a standalone app, serves files from current directory and shows
- * requests</li>
  * <li> Subclass serve() and embed to your own program </li>
- * <li> Call serveFile() from serve() with your own base directory </li>
+ * <li> Return a Response with a File for static content (see HTTPServeFiles) </li>
  *
  * </ul>
  *
@@ -98,11 +91,25 @@ abstract public class HTTPServer {
     // 
     boolean debug = false;
 
+    /** threads that run serve() */
+    public static final int DEFAULT_HANDLER_THREADS = 4;
+    
+    /** requests waiting for a handler beyond this are answered with 503 */
+    public static final int DEFAULT_HANDLER_QUEUE = 256;
+    
+    /** idle keep-alive connections are closed after this */
+    public static final int KEEPALIVE_TIMEOUT_MS = 15000;
+    
+    /** larger request headers+body are rejected */
+    public static final int MAX_REQUEST_SIZE = 1024 * 1024;
+    
+    private static final int SELECT_TIMEOUT_MS = 1000;
+    
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
     /**
-     * Override this to customize the server.
-     * <p>
-     *
-     * (By default, this delegates to serveFile() and allows directory listing.)
+     * Override this to customize the server. Called from one of the handler
+     * threads, so implementations must be thread-safe.
      *
      * @parm uri Percent-decoded URI without parameters, for example
      * "/index.cgi"
@@ -113,23 +120,6 @@ abstract public class HTTPServer {
      * @return HTTP response, see class Response for details
      */
     abstract public Response serve(String uri, String method, Properties header, Properties parms);
-    
-    /*{
-        if (debug) System.out.println(method + " '" + uri + "' ");
-
-        Enumeration e = header.propertyNames();
-        while (e.hasMoreElements()) {
-            String value = (String) e.nextElement();
-            if (debug) System.out.println("  HDR: '" + value + "' = '" + header.getProperty(value) + "'");
-        }
-        e = parms.propertyNames();
-        while (e.hasMoreElements()) {
-            String value = (String) e.nextElement();
-            if (debug) System.out.println("  PRM: '" + value + "' = '" + parms.getProperty(value) + "'");
-        }
-
-        return serveFile(uri, header, staticFilePath, true);
-    }*/
 
     /**
      * HTTP response. Return one of these from serve().
@@ -161,6 +151,17 @@ abstract public class HTTPServer {
             this.data = new ByteArrayInputStream(txt.getBytes());
         }
 
+        /**
+         * Sends the contents of a file, starting at byte offset 'from',
+         * directly from its FileChannel.
+         */
+        public Response(String status, String mimeType, File file, long from) {
+            this.status = status;
+            this.mimeType = mimeType;
+            this.file = file;
+            this.fileOffset = from;
+        }
+
         /**
          * Adds given line to the header.
          */
@@ -183,6 +184,12 @@ abstract public class HTTPServer {
          */
         public InputStream data;
 
+        /**
+         * File to send instead of data, may be null.
+         */
+        public File file;
+        public long fileOffset;
+
         /**
          * Headers for the HTTP response. Use addHeader() to add lines.
          */
@@ -194,8 +201,9 @@ abstract public class HTTPServer {
      */
     public static final String HTTP_OK = "200 OK", HTTP_REDIRECT = "301 Moved Permanently",
             HTTP_FORBIDDEN = "403 Forbidden", HTTP_NOTFOUND = "404 Not Found",
-            HTTP_BADREQUEST = "400 Bad Request", HTTP_INTERNALERROR = "500 Internal Server Error",
-            HTTP_NOTIMPLEMENTED = "501 Not Implemented";
+            HTTP_BADREQUEST = "400 Bad Request", HTTP_TOOLARGE = "413 Request Entity Too Large",
+            HTTP_INTERNALERROR = "500 Internal Server Error",
+            HTTP_NOTIMPLEMENTED = "501 Not Implemented", HTTP_UNAVAILABLE = "503 Service Unavailable";
 
     /**
      * Common mime types for dynamic content
@@ -206,295 +214,537 @@ abstract public class HTTPServer {
   // 
     // Socket & server code
     // 
+    
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ExecutorService handlers;
+    private final Thread selectorThread;
+    /** set by stop(); the selector thread then closes everything */
+    private volatile boolean stopped;
+    
+    /** connections whose response has been prepared by a handler thread */
+    private final ConcurrentLinkedQueue<Connection> responded = new ConcurrentLinkedQueue();
+    
     /**
      * Starts a HTTP server to given port.
      * <p>
      * Throws an IOException if the socket is already in use
      */
     public HTTPServer(int port) throws IOException {
+        this(port, DEFAULT_HANDLER_THREADS, DEFAULT_HANDLER_QUEUE);
+    }
+    
+    public HTTPServer(int port, int handlerThreads, int handlerQueue) throws IOException {
         myTcpPort = port;        
 
-        final ServerSocket ss = new ServerSocket(myTcpPort);
-        Thread t = new Thread(new Runnable() {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(myTcpPort));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        
+        handlers = new ThreadPoolExecutor(handlerThreads, handlerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(handlerQueue), new ThreadFactory() {
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "HTTPServer handler");
+                t.setDaemon(true);
+                return t;
+            }            
+        });
+        
+        selectorThread = new Thread(new Runnable() {
             @Override
             public void run() {
-                try {
-                    while (true) {
-                        new HTTPSession(ss.accept());
+                while (!stopped) {
+                    try {
+                        select();
+                    } catch (ClosedSelectorException e) {
+                        break;
+                    } catch (IOException | RuntimeException e) {
+                        //one failure must not stop the server
+                        if (!stopped)
+                            e.printStackTrace();
                     }
-                } catch (IOException ioe) {
                 }
+                closeAll();
             }
-        });
-        t.setDaemon(true);
-        t.start();
+        }, "HTTPServer selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
     }
 
-    /**
-     * Starts as a standalone file server and waits for Enter.
-     */
-    /*public static void main(String[] args) {
-     if (debug) System.out.println("NanoHTTPD 1.1 (C) 2001,2005-2007 Jarno Elonen\n"
-     + "(Command line options: [port] [--licence])\n");
-
-     // Show licence if requested
-     int lopt = -1;
-     for (int i = 0; i < args.length; ++i)
-     if (args[i].toLowerCase().endsWith("licence")) {
-     lopt = i;
-     if (debug) System.out.println(LICENCE + "\n");
-     }
-
-     // Change port if requested
-     int port = 80;
-     if (args.length > 0 && lopt != 0)
-     port = Integer.parseInt(args[0]);
-
-     if (args.length > 1 && args[1].toLowerCase().endsWith("licence"))
-     if (debug) System.out.println(LICENCE + "\n");
-
-     NanoHTTPD nh = null;
-     try {
-     nh = new NanoHTTPD(port);
-     } catch (IOException ioe) {
-     System.err.println("Couldn't start server:\n" + ioe);
-     System.exit(-1);
-     }
-     nh.staticFilePath = new File("");
-
-     if (debug) System.out.println("Now serving files in port " + port + " from \""
-     + new File("").getAbsolutePath() + "\"");
-     if (debug) System.out.println("Hit Enter to stop.\n");
-
-     try {
-     System.in.read();
-     } catch (Throwable t) {
-     }
-     ;
-     }*/
-    /**
-     * Handles one session, i.e. parses the HTTP request and returns the
-     * response.
-     */
-    public class HTTPSession implements Runnable {
+    /** the port listened on, which the system chose if 0 was given */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
 
-        public HTTPSession(Socket s) {
-            mySocket = s;
-            Thread t = new Thread(this);
-            t.setDaemon(true);
-            t.start();
+    /** stops accepting connections and closes all open ones, waiting for the selector thread to do so */
+    public void stop() {
+        stopped = true;
+        selector.wakeup();
+        handlers.shutdownNow();
+        if (Thread.currentThread() != selectorThread) {
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
+    }
 
-        @Override
-        public void run() {
+    /** called on the selector thread once it has stopped, so no channel is registered meanwhile */
+    private void closeAll() {
+        try {
+            for (SelectionKey k : selector.keys()) {
+                k.channel().close();
+            }
+            server.close();
+            selector.close();
+        } catch (IOException | ClosedSelectorException ex) {
+        }
+    }
+    
+    private void select() throws IOException {
+        selector.select(SELECT_TIMEOUT_MS);
+        
+        Connection c;
+        while ((c = responded.poll()) != null) {
             try {
-                InputStream is = mySocket.getInputStream();
-                if (is == null) {
-                    return;
+                c.startWrite();
+            }
+            catch (RuntimeException e) {
+                fail(c, e);
+            }
+        }
+
+        Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+        while (i.hasNext()) {
+            SelectionKey key = i.next();
+            i.remove();
+            
+            if (!key.isValid())
+                continue;
+            
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            
+            c = (Connection)key.attachment();
+            try {
+                if (key.isReadable())
+                    c.read();
+                if (key.isValid() && key.isWritable())
+                    c.write();
+            }
+            catch (IOException | RuntimeException e) {
+                fail(c, e);
+            }
+        }
+        
+        long now = System.currentTimeMillis();
+        for (SelectionKey k : selector.keys()) {
+            Object a = k.attachment();
+            if (a instanceof Connection) {
+                ((Connection)a).closeIfIdle(now);
+            }
+        }
+    }
+    
+    /** accepts one client; a failure closes only that client's channel */
+    private void accept() {
+        SocketChannel s = null;
+        try {
+            s = server.accept();
+            if (s != null) {
+                s.configureBlocking(false);
+                s.socket().setTcpNoDelay(true);
+                new Connection(s, s.register(selector, SelectionKey.OP_READ));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            if (debug) e.printStackTrace();
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException ex) {
                 }
-                BufferedReader in = new BufferedReader(new InputStreamReader(is));
-                String rline = in.readLine();
-                if (rline==null)
+            }
+        }
+    }
+    
+    /** closes a connection which failed, and only it */
+    private void fail(Connection c, Exception e) {
+        if (debug) e.printStackTrace();
+        c.close();
+    }
+    
+    /**
+     * One client connection. Reads requests on the selector thread, serves
+     * them on a handler thread, and writes the response back on the selector
+     * thread. Requests on a connection are answered one at a time, in order.
+     */
+    protected class Connection {
+        
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        
+        private ByteBuffer in = ByteBuffer.allocate(4096);
+        /** where the search for the end of the headers resumes, so a request arriving slowly is not scanned again */
+        private int scanned = 3;
+        /** the end of the headers of the buffered request, once found, or -1 */
+        private int headerEnd = -1;
+        private long lastActive;
+        
+        /** a request is being served or its response is being written */
+        private boolean busy;
+        private boolean keepAlive;
+        
+        private ByteBuffer[] out;
+        private FileChannel file;
+        private long filePos, fileEnd;
+
+        public Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+            this.lastActive = System.currentTimeMillis();
+            key.attach(this);
+        }
+        
+        void read() throws IOException {
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_REQUEST_SIZE) {
+                    error(HTTP_TOOLARGE, "Request too large.");
                     return;
-                
-                // Read the request line
-                StringTokenizer st = new StringTokenizer(rline);
-                if (!st.hasMoreTokens()) {
-                    sendError(HTTP_BADREQUEST, "BAD REQUEST: Syntax error. Usage: GET /example/file.html");
                 }
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(in.capacity() * 2, MAX_REQUEST_SIZE));
+                in.flip();
+                bigger.put(in);
+                in = bigger;
+            }
+            
+            int n = channel.read(in);
+            if (n < 0) {
+                close();
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            
+            if (!busy)
+                parse();
+        }
 
-                String method = st.nextToken();
-
-                if (!st.hasMoreTokens()) {
-                    sendError(HTTP_BADREQUEST, "BAD REQUEST: Missing URI. Usage: GET /example/file.html");
+        /** parses a complete request from the input buffer, if there is one, and dispatches it */
+        private void parse() {
+            final int len = in.position();
+            final byte[] b = in.array();
+            
+            if (headerEnd == -1) {
+                for (int i = scanned; i < len; i++) {
+                    if (b[i] == '\n' && b[i-1] == '\r' && b[i-2] == '\n' && b[i-3] == '\r') {
+                        headerEnd = i + 1;
+                        break;
+                    }
                 }
-
-                String uri = decodePercent(st.nextToken());
-
+                if (headerEnd == -1) {
+                    scanned = Math.max(3, len);
+                    return;
+                }
+            }
+            final int headerEnd = this.headerEnd;
+            
+            String[] lines = new String(b, 0, headerEnd, LATIN1).split("\r\n");
+            
+            // Read the request line
+            StringTokenizer st = new StringTokenizer(lines[0]);
+            if (st.countTokens() < 2) {
+                error(HTTP_BADREQUEST, "BAD REQUEST: Syntax error. Usage: GET /example/file.html");
+                return;
+            }
+            final String method = st.nextToken();
+            String uri = decodePercent(st.nextToken());
+            final String version = st.hasMoreTokens() ? st.nextToken() : "HTTP/1.0";
+            
+            // Parse headers; header names are forced lowercase since they
+            // are case insensitive and vary by client.
+            final Properties header = new Properties();
+            for (int l = 1; l < lines.length; l++) {
+                String line = lines[l];
+                int p = line.indexOf(':');
+                if (p > 0)
+                    header.put(line.substring(0, p).trim().toLowerCase(), line.substring(p + 1).trim());
+            }
+            
+            int contentLength = 0;
+            String cl = header.getProperty("content-length");
+            if (cl != null) {
+                try {
+                    contentLength = Integer.parseInt(cl.trim());
+                } catch (NumberFormatException ex) {
+                    error(HTTP_BADREQUEST, "BAD REQUEST: Invalid Content-Length.");
+                    return;
+                }
+            }
+            if (headerEnd + contentLength > MAX_REQUEST_SIZE) {
+                error(HTTP_TOOLARGE, "Request too large.");
+                return;
+            }
+            if (len < headerEnd + contentLength) {
+                //wait for the rest of the body
+                return;
+            }
+            
+            final Properties parms = new Properties();
+            if (uri != null) {
                 // Decode parameters from the URI
-                Properties parms = new Properties();
                 int qmi = uri.indexOf('?');
                 if (qmi >= 0) {
                     decodeParms(uri.substring(qmi + 1), parms);
                     uri = decodePercent(uri.substring(0, qmi));
                 }
-
-        // If there's another token, it's protocol version,
-                // followed by HTTP headers. Ignore version but parse headers.
-                // NOTE: this now forces header names uppercase since they are
-                // case insensitive and vary by client.
-                Properties header = new Properties();
-                if (st.hasMoreTokens()) {
-                    String line = in.readLine();
-                    while (line.trim().length() > 0) {
-                        int p = line.indexOf(':');
-                        header.put(line.substring(0, p).trim().toLowerCase(), line.substring(p + 1).trim());
-                        line = in.readLine();
-                    }
-                }
-
-        // If the method is POST, there may be parameters
-                // in data section, too, read it:
-                if (method.equalsIgnoreCase("POST")) {
-                    long size = 0x7FFFFFFFFFFFFFFFl;
-                    String contentLength = header.getProperty("content-length");
-                    if (contentLength != null) {
+            }
+            if (uri == null) {
+                error(HTTP_BADREQUEST, "BAD REQUEST: Bad percent-encoding.");
+                return;
+            }
+            
+            // If the method is POST, there may be parameters
+            // in data section, too
+            if (method.equalsIgnoreCase("POST")) {
+                String postLine = new String(b, headerEnd, contentLength, LATIN1).trim();
+                String content = decodePercent(postLine);
+                parms.setProperty("content", content != null ? content : postLine);
+            }
+            
+            //keep any pipelined bytes following this request
+            in.flip();
+            in.position(headerEnd + contentLength);
+            in.compact();
+            this.headerEnd = -1;
+            scanned = 3;
+            
+            String connection = header.getProperty("connection", "");
+            keepAlive = version.equals("HTTP/1.1") ? 
+                    !connection.equalsIgnoreCase("close") : connection.equalsIgnoreCase("keep-alive");
+            
+            busy = true;
+            key.interestOps(0);
+            
+            final String u = uri;
+            try {
+                handlers.execute(new Runnable() {
+                    @Override public void run() {
+                        Response r;
                         try {
-                            size = Integer.parseInt(contentLength);
-                        } catch (NumberFormatException ex) {
+                            r = serve(u, method, header, parms);
+                            if (r == null)
+                                r = new Response(HTTP_INTERNALERROR, MIME_PLAINTEXT, "SERVER INTERNAL ERROR: Serve() returned a null response.");
                         }
-                    }
-                    String postLine = "";
-                    char buf[] = new char[512];
-                    int read = in.read(buf);
-                    while (read >= 0 && size > 0 && !postLine.endsWith("\r\n")) {
-                        size -= read;
-                        postLine += String.valueOf(buf, 0, read);
-                        if (size > 0) {
-                            read = in.read(buf);
+                        catch (Exception e) {
+                            r = new Response(HTTP_INTERNALERROR, MIME_PLAINTEXT, "SERVER INTERNAL ERROR: " + e.toString());
                         }
-                    }
-                    postLine = postLine.trim();                                        
-                    parms.setProperty("content", decodePercent(postLine));
-                }
-
-                // Ok, now do the serve()
-                Response r = serve(uri, method, header, parms);
-                if (r == null) {
-                    sendError(HTTP_INTERNALERROR, "SERVER INTERNAL ERROR: Serve() returned a null response.");
-                } else {
-                    sendResponse(r.status, r.mimeType, r.header, r.data);
-                }
-
-                in.close();
-            } catch (IOException ioe) {
-                try {
-                    sendError(HTTP_INTERNALERROR, "SERVER INTERNAL ERROR: IOException: " + ioe.getMessage());
-                } catch (Throwable t) {
-                }
-            } catch (InterruptedException ie) {
-                // Thrown by sendError, ignore and exit the thread.
+                        prepare(r);
+                        responded.add(Connection.this);
+                        selector.wakeup();
+                    }                    
+                });
+            }
+            catch (RejectedExecutionException e) {
+                keepAlive = false;
+                prepare(new Response(HTTP_UNAVAILABLE, MIME_PLAINTEXT, "Server busy."));
+                startWrite();
             }
         }
-
-        /**
-         * Decodes the percent encoding scheme. <br/> For example:
-         * "an+example%20string" -> "an example string"
-         */
-        private String decodePercent(String str) throws InterruptedException {
+        
+        /** responds with an error and closes the connection afterward; called on the selector thread */
+        private void error(String status, String msg) {
+            busy = true;
+            keepAlive = false;
+            prepare(new Response(status, MIME_PLAINTEXT, msg));
+            startWrite();
+        }
+        
+        /** encodes the response headers and body into the output buffers */
+        private void prepare(Response r) {
+            ByteBuffer body = null;
+            long length = 0;
+            
             try {
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < str.length(); i++) {
-                    char c = str.charAt(i);
-                    switch (c) {
-                        case '+':
-                            sb.append(' ');
-                            break;
-                        case '%':
-                            sb.append((char) Integer.parseInt(str.substring(i + 1, i + 3), 16));
-                            i += 2;
-                            break;
-                        default:
-                            sb.append(c);
-                            break;
+                if (r.file != null) {
+                    file = new FileInputStream(r.file).getChannel();
+                    filePos = r.fileOffset;
+                    fileEnd = file.size();
+                    length = Math.max(0, fileEnd - filePos);
+                }
+                else if (r.data != null) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] buff = new byte[2048];
+                    int read;
+                    while ((read = r.data.read(buff)) > 0) {
+                        bytes.write(buff, 0, read);
                     }
+                    r.data.close();
+                    body = ByteBuffer.wrap(bytes.toByteArray());
+                    length = body.remaining();
                 }
-                return new String(sb.toString().getBytes());
-            } catch (Exception e) {
-                sendError(HTTP_BADREQUEST, "BAD REQUEST: Bad percent-encoding.");
-                return null;
             }
+            catch (IOException ioe) {
+                closeFile();
+                r = new Response(HTTP_INTERNALERROR, MIME_PLAINTEXT, "SERVER INTERNAL ERROR: IOException: " + ioe.getMessage());
+                prepare(r);
+                return;
+            }
+            
+            StringBuilder h = new StringBuilder(256);
+            h.append("HTTP/1.1 ").append(r.status).append(" \r\n");
+            if (r.mimeType != null) {
+                h.append("Content-Type: ").append(r.mimeType).append("\r\n");
+            }
+            if (r.header.getProperty("Date") == null) {
+                h.append("Date: ").append(formatDate(new Date())).append("\r\n");
+            }
+            boolean hasLength = false;
+            Enumeration e = r.header.keys();
+            while (e.hasMoreElements()) {
+                String k = (String) e.nextElement();
+                if (k.equalsIgnoreCase("content-length"))
+                    hasLength = true;
+                h.append(k).append(": ").append(r.header.getProperty(k)).append("\r\n");
+            }
+            if (!hasLength) {
+                h.append("Content-Length: ").append(length).append("\r\n");
+            }
+            h.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n");
+            h.append("\r\n");
+            
+            ByteBuffer head = ByteBuffer.wrap(h.toString().getBytes(LATIN1));
+            out = ((body != null) && body.hasRemaining()) ? new ByteBuffer[] { head, body } : new ByteBuffer[] { head };
         }
 
-        /**
-         * Decodes parameters in percent-encoded URI-format ( e.g.
-         * "name=Jack%20Daniels&pass=Single%20Malt" ) and adds them to given
-         * Properties.
-         */
-        private void decodeParms(String parms, Properties p) throws InterruptedException {
-            if (parms == null) {
+        /** whether any of the output buffers has bytes left to write */
+        private boolean outRemaining() {
+            for (ByteBuffer b : out) {
+                if (b.hasRemaining())
+                    return true;
+            }
+            return false;
+        }
+        
+        /** called on the selector thread once a response has been prepared */
+        void startWrite() {
+            if (!key.isValid()) {
+                closeFile();
                 return;
             }
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
 
-            StringTokenizer st = new StringTokenizer(parms, "&");
-            while (st.hasMoreTokens()) {
-                String e = st.nextToken();
-                int sep = e.indexOf('=');
-                if (sep >= 0) {
-                    p.put(decodePercent(e.substring(0, sep)).trim(), decodePercent(e.substring(sep + 1)));
+        void write() throws IOException {
+            lastActive = System.currentTimeMillis();
+            
+            if (outRemaining()) {
+                channel.write(out);
+                if (outRemaining())
+                    return;
+            }
+            if (file != null) {
+                if (filePos < fileEnd) {
+                    filePos += file.transferTo(filePos, fileEnd - filePos, channel);
+                    if (filePos < fileEnd)
+                        return;
                 }
+                closeFile();
             }
+            
+            out = null;
+            if (!keepAlive) {
+                close();
+                return;
+            }
+            busy = false;
+            key.interestOps(SelectionKey.OP_READ);
+            
+            //a pipelined request may already be buffered
+            parse();
         }
-
-        /**
-         * Returns an error message as a HTTP response and throws
-         * InterruptedException to stop furhter request processing.
-         */
-        private void sendError(String status, String msg) throws InterruptedException {
-            sendResponse(status, MIME_PLAINTEXT, null, new ByteArrayInputStream(msg.getBytes()));
-            throw new InterruptedException();
+        
+        void closeIfIdle(long now) {
+            if (!busy && (now - lastActive > KEEPALIVE_TIMEOUT_MS))
+                close();
         }
-
-
-        /**
-         * Sends given response to the socket.
-         */
-        private void sendResponse(String status, String mime, Properties header, InputStream data) {
-            try {
-                if (status == null) {
-                    throw new Error("sendResponse(): Status can't be null.");
-                }
-
-                OutputStream out = mySocket.getOutputStream();
-                PrintWriter pw = new PrintWriter(out);
-                pw.print("HTTP/1.0 " + status + " \r\n");
-
-                if (mime != null) {
-                    pw.print("Content-Type: " + mime + "\r\n");
-                }
-
-                if (header == null || header.getProperty("Date") == null) {
-                    pw.print("Date: " + gmtFrmt.format(new Date()) + "\r\n");
+        
+        private void closeFile() {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ex) {
                 }
+                file = null;
+            }
+        }
+        
+        void close() {
+            closeFile();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
 
-                if (header != null) {
-                    Enumeration e = header.keys();
-                    while (e.hasMoreElements()) {
-                        String key = (String) e.nextElement();
-                        String value = header.getProperty(key);
-                        pw.print(key + ": " + value + "\r\n");
-                    }
+    /**
+     * Decodes the percent encoding scheme. <br/> For example:
+     * "an+example%20string" -> "an example string"
+     * @return null if the encoding is invalid
+     */
+    private static String decodePercent(String str) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < str.length(); i++) {
+                char c = str.charAt(i);
+                switch (c) {
+                    case '+':
+                        sb.append(' ');
+                        break;
+                    case '%':
+                        sb.append((char) Integer.parseInt(str.substring(i + 1, i + 3), 16));
+                        i += 2;
+                        break;
+                    default:
+                        sb.append(c);
+                        break;
                 }
+            }
+            return new String(sb.toString().getBytes());
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-                pw.print("\r\n");
-                pw.flush();
+    /**
+     * Decodes parameters in percent-encoded URI-format ( e.g.
+     * "name=Jack%20Daniels&pass=Single%20Malt" ) and adds them to given
+     * Properties. Parameters with invalid encoding are skipped.
+     */
+    private static void decodeParms(String parms, Properties p) {
+        if (parms == null) {
+            return;
+        }
 
-                if (data != null) {
-                    byte[] buff = new byte[2048];
-                    while (true) {
-                        int read = data.read(buff, 0, 2048);
-                        if (read <= 0) {
-                            break;
-                        }
-                        out.write(buff, 0, read);
-                    }
-                }
-                out.flush();
-                out.close();
-                if (data != null) {
-                    data.close();
-                }
-            } catch (IOException ioe) {
-                // Couldn't write? No can do.
-                try {
-                    mySocket.close();
-                } catch (Throwable t) {
-                }
+        StringTokenizer st = new StringTokenizer(parms, "&");
+        while (st.hasMoreTokens()) {
+            String e = st.nextToken();
+            int sep = e.indexOf('=');
+            if (sep >= 0) {
+                String k = decodePercent(e.substring(0, sep));
+                String v = decodePercent(e.substring(sep + 1));
+                if (k != null && v != null)
+                    p.put(k.trim(), v);
             }
         }
-
-        private final Socket mySocket;
-    };
+    }
 
     /**
      * URL-encodes everything between "/"-characters. Encodes spaces as '%20'
@@ -546,9 +796,15 @@ abstract public class HTTPServer {
     }
 
     /**
-     * GMT date formatter
+     * GMT date formatter; SimpleDateFormat is not thread-safe, see formatDate
      */
     private static java.text.SimpleDateFormat gmtFrmt;
+    
+    private static String formatDate(Date d) {
+        synchronized (gmtFrmt) {
+            return gmtFrmt.format(d);
+        }
+    }
 
     static {
         gmtFrmt = new java.text.SimpleDateFormat("E, d MMM yyyy HH:mm:ss 'GMT'", Locale.US);
@@ -7,7 +7,6 @@
 package nars.web;
 
 import nars.NAR;
-import nars.io.TextOutput;
 import nars.io.TextOutput.LineOutput;
 
 /**
@@ -16,7 +15,7 @@ import nars.io.TextOutput.LineOutput;
  */
 abstract public class NARConnection implements LineOutput {
     public final NAR nar;
-    protected final TextOutput writer;
+    protected final BatchedOutput writer;
     int cycleIntervalMS;
     //private final TextReaction extraParser;
         
@@ -25,7 +24,15 @@ abstract public class NARConnection implements LineOutput {
         this.nar = nar;
         this.cycleIntervalMS = cycleIntervalMS;
              
-        this.writer = new TextOutput(nar, this);
+        this.writer = new BatchedOutput(nar) {
+            @Override public void send(String message) {
+                println(message);
+            }
+
+            @Override public boolean isBacklogged() {
+                return NARConnection.this.isBacklogged();
+            }            
+        };
     }
 
     public void read(final String message) {
@@ -35,9 +42,15 @@ abstract public class NARConnection implements LineOutput {
             resume();
     }
     
+    /** receives the output of one frame, as newline-separated lines */
     @Override
     abstract public void println(String output);
     
+    /** whether previously sent output has not yet been delivered; output is then deferred and low-priority items may be dropped */
+    public boolean isBacklogged() {
+        return false;
+    }
+    
     
     boolean running = false;
     
@@ -50,6 +63,7 @@ abstract public class NARConnection implements LineOutput {
     public void stop() {
         running = false;
         nar.stop();
+        writer.flush();
     }
     
     
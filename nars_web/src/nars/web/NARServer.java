@@ -36,7 +36,12 @@ public class NARServer  {
 
             final NARConnection n = new NARConnection(new NAR(), cycleIntervalMS) {
                 @Override public void println(String output) {
-                    conn.send(output);
+                    if (conn.isOpen())
+                        conn.send(output);
+                }
+
+                @Override public boolean isBacklogged() {
+                    return conn.hasBufferedData();
                 }
             };
             socketSession.put(conn, n);        